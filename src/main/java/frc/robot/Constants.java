@@ -19,9 +19,13 @@ import com.ctre.phoenix6.signals.InvertedValue;
 // Open Source Software; you can modify and/or share it under the terms of
 // the WPILib BSD license file in the root directory of this project.
 
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotBase;
 
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide
@@ -251,6 +255,11 @@ public final class Constants {
 
         public static final double INDEXER_FEED_SPEED = 0.85;
 
+        // Flywheel speed for shots aimed from anywhere, e.g. AutoShootCommand
+        public static final double AUTO_SHOOT_SPEED_MPS = 25.0;
+        // Flywheels are pre-spun for the shot inside this distance from the speaker
+        public static final double SPEAKER_PRESPIN_RANGE = Units.feetToMeters(25);
+
         public static final double AUTO_X_KP = 1.0;
         public static final double AUTO_X_KI = 0.0;
         public static final double AUTO_X_KD = 0.0;
@@ -265,15 +274,42 @@ public final class Constants {
 
         public static final int FRONT_INTAKE_MOTOR = 15;
 
+        public static final int ARM_ABSOLUTE_ENCODER_PORT = 4;
+        // Set once the port, offset and direction are confirmed on the robot. Until then the arm
+        // is seeded as stowed and the absolute encoder is only logged and compared.
+        public static final boolean ARM_ABSOLUTE_ENCODER_VERIFIED = false;
+        // Absolute encoder reading with the arm stowed
         public static final double ARM_ABSOLUTE_ENCODER_OFFSET = 0.6507399412684985;
         public static final double ARM_ABSOLUTE_CONVERSION_FACTOR = 49.87;
+        // Arm motor rotations at an arm angle of 0, see Arm.getArmAngleDegrees
+        public static final double ARM_ZERO_ANGLE_ROTATIONS = -12.25;
+        // Arm motor rotations when stowed, where the absolute encoder reads its offset
+        public static final double ARM_STOW_ROTATIONS = -12.0;
+        // How close the arm has to be to its setpoint to shoot, in motor rotations
+        public static final double ARM_SETPOINT_TOLERANCE_ROTATIONS = 0.2;
 
         public static String VISION_LIMELIGHT = "limelight-vanap";
         public static String DRIVER_LIMELIGHT = "limelight-panav";
 
+        // Driver Limelight (note detector) mount, 20 in up and pitched 22.5 degrees down
+        public static final Transform3d ROBOT_TO_NOTE_CAMERA = new Transform3d(
+                        new Translation3d(0.3, 0.0, Units.inchesToMeters(20.0)),
+                        new Rotation3d(0.0, Units.degreesToRadians(22.5), 0.0));
+
+        // Driver Limelight 3 detector pipeline resolution and field of view
+        public static final int NOTE_CAMERA_WIDTH_PX = 640;
+        public static final int NOTE_CAMERA_HEIGHT_PX = 480;
+        public static final double NOTE_CAMERA_HORIZONTAL_FOV_DEG = 62.5;
+        public static final double NOTE_CAMERA_VERTICAL_FOV_DEG = 48.9;
+
+        // Note size, 14 in across and 2 in tall, shared by the note tracker and the camera sim
+        public static final double NOTE_RADIUS = Units.inchesToMeters(14.0) / 2.0;
+        public static final double NOTE_HEIGHT = Units.inchesToMeters(2.0);
+
         public static final boolean tuningMode = true;
 
-        public static final Mode currentMode = Mode.REAL;
+        public static final Mode simMode = Mode.SIM;
+        public static final Mode currentMode = RobotBase.isReal() ? Mode.REAL : simMode;
 
         public static enum Mode {
                 /** Running on a real robot. */
@@ -20,6 +20,11 @@ import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 import edu.wpi.first.net.PortForwarder;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.util.AsyncLogWriter;
+import frc.robot.util.AutoBenchmark;
+import frc.robot.util.LimelightReplay;
+import frc.robot.util.LoggingPolicy;
+import frc.robot.util.TelemetryPublisher;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -30,6 +35,9 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
 public class Robot extends LoggedRobot {
   private Command autonomousCommand;
   private RobotContainer robotContainer;
+  private AutoBenchmark autoBenchmark;
+  private AsyncLogWriter logWriter;
+  private TelemetryPublisher telemetryPublisher;
 
   /**
    * This function is run when the robot is first started up and should be used for any
@@ -61,12 +69,29 @@ public class Robot extends LoggedRobot {
     // Set up data receivers & replay source
     switch (Constants.currentMode) {
       case REAL:
-        // Running on a real robot, log to a USB stick
-        Logger.addDataReceiver(new WPILOGWriter("/U"));
-        Logger.addDataReceiver(new NT4Publisher());
+        // Running on a real robot, log to a USB stick without blocking on it
+        logWriter =
+            new AsyncLogWriter(
+                "/U",
+                "RealOutputs/SwerveStates/",
+                "RealOutputs/Poses/",
+                "RealOutputs/Drive/Slip/",
+                "RealOutputs/Drive/PathTracking/");
+        Logger.addDataReceiver(logWriter);
+        // Dashboard gets a downsampled subset while on the field
+        telemetryPublisher = new TelemetryPublisher();
+        Logger.addDataReceiver(telemetryPublisher);
+        // Raw Limelight tables for LimelightReplay, AdvantageKit only has the parsed inputs
+        LimelightReplay.startRecording("/U/limelight");
         break;
 
       case SIM:
+        if (AutoBenchmark.isRequested()) {
+          // Headless auto benchmark, step the sim clock as fast as possible and log to a file
+          setUseTiming(false);
+          Logger.addDataReceiver(new WPILOGWriter("logs"));
+          break;
+        }
         // Running a physics simulator, log to NT
         Logger.addDataReceiver(new NT4Publisher());
         break;
@@ -102,6 +127,14 @@ public class Robot extends LoggedRobot {
     // This must be called from the robot's periodic block in order for anything in
     // the Command-based framework to work.
     CommandScheduler.getInstance().run();
+    LoggingPolicy.periodic();
+
+    if (logWriter != null) {
+      logWriter.periodic();
+    }
+    if (telemetryPublisher != null) {
+      telemetryPublisher.periodic();
+    }
   }
 
   /** This function is called once when the robot is disabled. */
@@ -111,11 +144,16 @@ public class Robot extends LoggedRobot {
   /** This function is called periodically when disabled. */
   @Override
   public void disabledPeriodic() {
+    robotContainer.disabledPeriodic();
   }
 
   /** This autonomous runs the autonomous command selected by your {@link RobotContainer} class. */
   @Override
   public void autonomousInit() {
+    if (autoBenchmark != null) {
+      // The benchmark schedules its own autos
+      return;
+    }
     autonomousCommand = robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
@@ -159,9 +197,18 @@ public class Robot extends LoggedRobot {
 
   /** This function is called once when the robot is first started up. */
   @Override
-  public void simulationInit() {}
+  public void simulationInit() {
+    if (AutoBenchmark.isRequested()) {
+      autoBenchmark = new AutoBenchmark(robotContainer::getPose, robotContainer::resetSimulationField);
+    }
+  }
 
   /** This function is called periodically whilst in simulation. */
   @Override
-  public void simulationPeriodic() {}
+  public void simulationPeriodic() {
+    robotContainer.simulationPeriodic();
+    if (autoBenchmark != null) {
+      autoBenchmark.periodic();
+    }
+  }
 }
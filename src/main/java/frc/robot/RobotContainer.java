@@ -10,15 +10,18 @@
 
 package frc.robot;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.networktables.LoggedDashboardChooser;
 
-import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation3d;
-import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
@@ -40,6 +43,7 @@ import frc.robot.commands.DriveCommands;
 import frc.robot.commands.FaceSpeaker;
 import frc.robot.commands.IntakeCommand;
 import frc.robot.commands.LobShootCommand;
+import frc.robot.commands.NoteChaseAuto;
 import frc.robot.commands.ShootCommand;
 import frc.robot.commands.WheelRadiusCharacterization;
 import frc.robot.subsystems.Leds;
@@ -54,11 +58,14 @@ import frc.robot.subsystems.climber.ClimberIOSim;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.drive.GyroIO;
 import frc.robot.subsystems.drive.GyroIOPigeon2;
+import frc.robot.subsystems.drive.GyroIOSim;
 import frc.robot.subsystems.drive.ModuleIO;
 import frc.robot.subsystems.drive.ModuleIOSim;
 import frc.robot.subsystems.drive.ModuleIOTBSwerve;
+import frc.robot.subsystems.drive.SwerveDriveSimulation;
 import frc.robot.subsystems.drive.VisionIO;
 import frc.robot.subsystems.drive.VisionIOLimelight;
+import frc.robot.subsystems.drive.VisionIOSim;
 import frc.robot.subsystems.indexer.Indexer;
 import frc.robot.subsystems.indexer.IndexerIO;
 import frc.robot.subsystems.indexer.IndexerIOReal;
@@ -72,7 +79,12 @@ import frc.robot.subsystems.shooter.ShooterIO;
 import frc.robot.subsystems.shooter.ShooterIOReal;
 import frc.robot.subsystems.shooter.ShooterIOSim;
 import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.LimelightReplay;
+import frc.robot.util.NoteSimulator;
 import frc.robot.util.NoteVisualizer;
+import frc.robot.util.CommandLog;
+import frc.robot.util.PathCache;
+import frc.robot.util.Warmup;
 
 /**
  * This class is where the bulk of the robot should be declared. Since Command-based is a
@@ -90,6 +102,11 @@ public class RobotContainer {
   private final Climber climber;
   private final NoteVisualizer visualizer = new NoteVisualizer();
 
+  // Physics sims of the drivetrain and game pieces, null unless running in SIM
+  private SwerveDriveSimulation driveSimulation = null;
+  private NoteSimulator noteSimulator = null;
+  private LimelightReplay limelightReplay = null;
+
   //divides the movement by the value of drive ratio.
   private double driveRatio = 1.0;
   private boolean slowMode = false;
@@ -101,9 +118,14 @@ public class RobotContainer {
   private final CommandXboxController outreachController = new CommandXboxController(2);
 
   // Dashboard inputs
-  private final LoggedDashboardChooser<Command> autoChooser;
+  private final LoggedDashboardChooser<String> autoChooser;
+  private final Map<String, Command> extraAutos = new HashMap<>();
+
+  private final Warmup warmup;
 
   private static final Translation3d blueSpeaker = new Translation3d(0.225, 5.55, 2.1);
+  // Physics sim robot starts against the blue subwoofer
+  private static final Pose2d SIM_START_POSE = new Pose2d(1.35, 5.55, new Rotation2d());
   private boolean autoShootToggle = true;
 
   public static boolean lobbing = false;
@@ -140,6 +162,10 @@ public class RobotContainer {
   /** The container for the robot. Contains subsystems, OI devices, and commands. */
   public RobotContainer() {
     Leds.getInstance();
+
+    // Log which scheduled commands are running, so logs can be searched by command
+    CommandLog.logScheduledCommands();
+
     switch (Constants.currentMode) {
       case REAL:
         // Real robot, instantiate hardware IO implementations
@@ -161,19 +187,24 @@ public class RobotContainer {
 
       case SIM:
         // Sim robot, instantiate physics sim IO implementations
+        driveSimulation = new SwerveDriveSimulation(SIM_START_POSE);
+        noteSimulator = new NoteSimulator(driveSimulation::getPose);
         drive =
             new Drive(
-                new GyroIO() {},
-                new VisionIO() {},
-                new ModuleIOSim(),
-                new ModuleIOSim(),
-                new ModuleIOSim(),
-                new ModuleIOSim());
+                new GyroIOSim(driveSimulation),
+                createSimVisionIO(),
+                new ModuleIOSim(driveSimulation, 0),
+                new ModuleIOSim(driveSimulation, 1),
+                new ModuleIOSim(driveSimulation, 2),
+                new ModuleIOSim(driveSimulation, 3));
+        drive.setPose(SIM_START_POSE);
+        drive.setSimulationPoseResetter(driveSimulation::setPose);
         arm = new Arm(new ArmIOSim());
-        indexer = new Indexer(new IndexerIOSim());
-        intake = new Intake(new IntakeIOSim());
+        indexer = new Indexer(new IndexerIOSim(noteSimulator));
+        intake = new Intake(new IntakeIOSim(noteSimulator));
         shooter = new Shooter(new ShooterIOSim(), indexer);
         climber = new Climber(new ClimberIOSim());
+        noteSimulator.setFlywheelSpeedSupplier(shooter::getVelocity);
         break;
 
       default:
@@ -202,6 +233,7 @@ public class RobotContainer {
     NamedCommands.registerCommand("Spin Flywheels", new InstantCommand(() -> shooter.setFlywheelSpeed(15)));
     NamedCommands.registerCommand("AutoShoot", new AutoShootCommand(arm, shooter, indexer, intake, drive));
     NamedCommands.registerCommand("AutoIntake", new AutoNoteAlignCommand(drive, intake, indexer, arm));
+    NamedCommands.registerCommand("NoteChase", NoteChaseAuto.noteChaseAuto(drive, intake, indexer, arm, shooter));
 
     NamedCommands.registerCommand("AmpPosition",
       new InstantCommand(() -> shootEnum = shootPositions.AMP)
@@ -212,23 +244,32 @@ public class RobotContainer {
     NamedCommands.registerCommand("SabotageShooter", new RunCommand(() -> shooter.setFlywheelSpeed(5), shooter));
 
 
-    // Set up auto routines
-    autoChooser = new LoggedDashboardChooser<>("Auto Choices", AutoBuilder.buildAutoChooser());
+    // Set up auto routines. Autos are built while disabled, and the paths followed outside of autos
+    // load in the background
+    PathCache.getInstance().start("Amp Path");
+    autoChooser = new LoggedDashboardChooser<>("Auto Choices");
+    autoChooser.addDefaultOption("None", "None");
+    for (String autoName : PathCache.getInstance().getAutoNames()) {
+      autoChooser.addOption(autoName, autoName);
+    }
+    extraAutos.put("None", Commands.none());
 
     // Set up FF characterization routines
-    // autoChooser.addOption(
+    // addExtraAuto(
     //     "Drive FF Characterization",
     //     new FeedForwardCharacterization(
     //         drive, drive::runCharacterizationVolts, drive::getCharacterizationVelocity));
 
-    autoChooser.addOption("ShootGrab", new InstantCommand(() -> arm.setArmSetpoint(-6))
+    addExtraAuto("ShootGrab", new InstantCommand(() -> arm.setArmSetpoint(-6))
       .andThen(new WaitCommand(1.5))
       .andThen(new ShootCommand(shooter, indexer, intake, arm, shootPositions.SUBWOOFER))
         .withTimeout(1.0)
       .andThen(DriveCommands.joystickDrive(drive, () -> -0.5, () -> 0, () -> 0))
         .withTimeout(1.5));
     
-    autoChooser.addOption(
+    addExtraAuto("Note Chase", NoteChaseAuto.noteChaseAuto(drive, intake, indexer, arm, shooter));
+
+    addExtraAuto(
       "Drive Wheel Characterization",
       drive.orientModules(Drive.getCircleOrientations())
       .andThen(
@@ -237,6 +278,10 @@ public class RobotContainer {
       .withName("Drive Wheel Radius Characterization"));
 
    
+    // Warm up the match code paths before the first enable
+    warmup = new Warmup(drive, shooter, arm, indexer, intake);
+    warmup.start();
+
     // Configure the button bindings
     configureButtonBindings();
   }
@@ -256,10 +301,10 @@ public class RobotContainer {
             () -> -outreachController.getRightX() / driveRatio));
 
     // Default commands
-    shooter.setDefaultCommand(new InstantCommand(() -> shooter.idleFlywheels(shootEnum), shooter));
-    intake.setDefaultCommand(new InstantCommand(() -> intake.stopIntake(), intake));
-    indexer.setDefaultCommand(new InstantCommand(() -> indexer.stopIndexer(), indexer));
-    climber.setDefaultCommand(new InstantCommand(() -> climber.stopClimber(), climber));
+    shooter.setDefaultCommand(flywheelSpinup());
+    intake.setDefaultCommand(new InstantCommand(() -> intake.stopIntake(), intake).withName("StopIntake"));
+    indexer.setDefaultCommand(new InstantCommand(() -> indexer.stopIndexer(), indexer).withName("StopIndexer"));
+    climber.setDefaultCommand(new InstantCommand(() -> climber.stopClimber(), climber).withName("StopClimber"));
     // led.setDefaultCommand(new InstantCommand(() -> led.setColor(rgbValues.GREEN), led));
 
     Trigger noteInIndexer = new Trigger(() -> indexer.noteInIndexer());
@@ -383,21 +428,78 @@ public class RobotContainer {
   }
 
   /**
-   * Automatically spin up flywheels when close to speaker, currently not functional
+   * Idles the flywheels while holding a note and spins them up for the shot ahead of reaching the
+   * speaker, see {@link Shooter#preSpinFlywheels}. Used as the shooter's default command.
    */
-  public void flywheelSpinup() {
-    if (DriverStation.isTeleopEnabled()
-      && drive.getPose()
-          .getTranslation()
-          .getDistance(
-            AllianceFlipUtil.apply(
-              blueSpeaker.toTranslation2d()))
-          < Units.feetToMeters(25)
-      && indexer.noteInIndexer()) {
-      new RunCommand(() -> shooter.setFlywheelSpeed(10), shooter);
+  public Command flywheelSpinup() {
+    return new InstantCommand(
+        () -> shooter.preSpinFlywheels(
+            drive.getDistanceFromSpeaker(), drive.getSpeakerClosingVelocity(), shootEnum),
+        shooter)
+        .withName("FlywheelSpinup");
+  }
+
+  /**
+   * Return the estimated pose of the robot
+   * @return robot pose
+   */
+  public Pose2d getPose() {
+    return drive.getPose();
+  }
+
+  /**
+   * Returns the simulated Limelights, or the real Limelight IO fed by a recorded log when a
+   * Limelight replay was requested.
+   */
+  private VisionIO createSimVisionIO() {
+    if (LimelightReplay.isRequested()) {
+      try {
+        limelightReplay = LimelightReplay.fromEnvironment();
+        return new VisionIOLimelight();
+      } catch (IOException e) {
+        DriverStation.reportError("Failed to load Limelight replay log: " + e.getMessage(), false);
+      }
+    }
+    return new VisionIOSim(driveSimulation::getPose, noteSimulator::getFieldNotes);
+  }
+
+  /** Steps the physics sims that are shared between subsystems. */
+  public void simulationPeriodic() {
+    if (driveSimulation != null) {
+      driveSimulation.update();
+      Logger.recordOutput("FieldSimulation/RobotPose", driveSimulation.getPose());
+      Logger.recordOutput("FieldSimulation/WheelSlipping", driveSimulation.getWheelSlipping());
+      Logger.recordOutput(
+          "FieldSimulation/PoseErrorMeters",
+          drive.getPose().getTranslation().getDistance(driveSimulation.getPose().getTranslation()));
+    }
+    if (noteSimulator != null) {
+      noteSimulator.update();
+    }
+    if (limelightReplay != null) {
+      limelightReplay.periodic();
     }
   }
 
+  /** Puts the simulated game pieces back in their starting positions, with a preloaded note. */
+  public void resetSimulationField() {
+    if (noteSimulator != null) {
+      noteSimulator.resetField(true);
+    }
+  }
+
+  /** Adds an auto option that isn't a PathPlanner auto. */
+  private void addExtraAuto(String name, Command command) {
+    extraAutos.put(name, command);
+    autoChooser.addOption(name, name);
+  }
+
+  /** Warms up the code paths and the path cache, one step per loop until both are done. */
+  public void disabledPeriodic() {
+    warmup.periodic();
+    PathCache.getInstance().periodic();
+  }
+
   public void autonomousInit() {
     // arm.setArmSetpoint(arm.getArmAngleDegrees());
   }
@@ -421,8 +523,11 @@ public class RobotContainer {
    * @return the command to run in autonomous
    */
   public Command getAutonomousCommand() {
-    if (autoChooser.get() != null) {
-      return autoChooser.get();
+    String autoName = autoChooser.get();
+    if (autoName != null) {
+      return extraAutos.containsKey(autoName)
+          ? extraAutos.get(autoName)
+          : PathCache.getInstance().getAuto(autoName);
       // .beforeStarting(new InstantCommand(() -> intake.setBarAngle(Constants.INTAKE_LOW_POSITION)));
     }
     return null;
@@ -6,15 +6,16 @@ package frc.robot.commands;
 
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.path.PathConstraints;
-import com.pathplanner.lib.path.PathPlannerPath;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
 import frc.robot.subsystems.Leds;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.indexer.Indexer;
 import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.PathCache;
 
 public class AmpDrive extends Command {
 
@@ -36,14 +37,9 @@ public class AmpDrive extends Command {
 
     ampPose = AllianceFlipUtil.apply(ampPose);
 
-    try {
-      pathCommand = AutoBuilder.pathfindThenFollowPath(
-        PathPlannerPath.fromPathFile("Amp Path"), 
-        new PathConstraints(1, 1, 360, 360));
-        
-    } catch (Exception e){
-      System.out.println("Amp Path not found "+e);
-    };
+    pathCommand = PathCache.getInstance().getPath("Amp Path")
+      .map(path -> AutoBuilder.pathfindThenFollowPath(path, new PathConstraints(1, 1, 360, 360)))
+      .orElse(Commands.none());
     
 
     Leds.getInstance().ampDrive = true;
@@ -4,13 +4,14 @@
 
 package frc.robot.commands;
 
+import java.util.Optional;
+
 import org.littletonrobotics.junction.Logger;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.util.Units;
-import edu.wpi.first.networktables.NetworkTable;
-import edu.wpi.first.networktables.NetworkTableEntry;
-import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
 import frc.robot.LimelightHelpers;
@@ -27,20 +28,33 @@ public class AutoNoteAlignCommand extends Command {
   private final Intake intake;
   private final Indexer indexer;
   private final Arm arm;
+  private final boolean stopFirst;
 
-  double camMountHeightIn = 20;
-  double camMountAngleDeg = -22.5;
-
-  // TODO: refine deadzone
-  double deadzone = 20;
+  // Turn towards the note in rad/s per radian of heading error
+  private static final double TURN_KP = 4.0;
+  // Forward speed while intaking, slowing as the note gets closer
+  private static final double APPROACH_SPEED_PER_METER = 1.5;
+  private static final double MIN_APPROACH_SPEED = 0.75;
+  private static final double MAX_APPROACH_SPEED = 2.0;
+  // Lateral offset of the note center that still ends up inside the intake
+  private static final double LATERAL_TOLERANCE_METERS = 0.1;
 
   boolean inRotTol;
 
   public AutoNoteAlignCommand(Drive drive, Intake intake, Indexer indexer, Arm arm) {
+    this(drive, intake, indexer, arm, true);
+  }
+
+  /**
+   * @param stopFirst Whether to stop the drive when starting, false when a path hands off to the
+   *     align still moving
+   */
+  public AutoNoteAlignCommand(Drive drive, Intake intake, Indexer indexer, Arm arm, boolean stopFirst) {
     this.drive = drive;
     this.intake = intake;
     this.indexer = indexer;
     this.arm = arm;
+    this.stopFirst = stopFirst;
 
     addRequirements(intake, indexer, drive);
   }
@@ -48,7 +62,9 @@ public class AutoNoteAlignCommand extends Command {
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
-    drive.stop();
+    if (stopFirst) {
+      drive.stop();
+    }
     LimelightHelpers.setLEDMode_ForceOn(Constants.DRIVER_LIMELIGHT);
     arm.setArmSetpoint(shootPositions.STOW.getShootAngle());
     Leds.getInstance().autoNoteAlign = true;
@@ -58,39 +74,35 @@ public class AutoNoteAlignCommand extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    NetworkTable chair = NetworkTableInstance.getDefault().getTable(Constants.DRIVER_LIMELIGHT);
-
-    if (chair.getEntry("tv").getDouble(0.0) != 1.0 || intake.getIntakeBreak()) {return;}
-    
-    NetworkTableEntry tx = chair.getEntry("tx");
-    double txDeg = tx.getDouble(0.0);
+    Optional<Translation2d> note = drive.getBestNote();
 
-    NetworkTableEntry ty = chair.getEntry("ty");
-    double tyDeg = ty.getDouble(0.0);
+    if (note.isEmpty() || intake.getIntakeBreak()) {return;}
 
-    double angleToGoalRad = Units.degreesToRadians(camMountAngleDeg + tyDeg);
+    Pose2d pose = drive.getPose();
+    Translation2d robotRelative = note.get().minus(pose.getTranslation()).rotateBy(pose.getRotation().unaryMinus());
+    double angleErrorRad = Math.atan2(robotRelative.getY(), robotRelative.getX());
 
-    double distanceIn = (0 - camMountHeightIn) / Math.tan(angleToGoalRad);
+    Logger.recordOutput("Note Align/Distance", robotRelative.getNorm());
+    Logger.recordOutput("Note Align/Angle Error", Math.toDegrees(angleErrorRad));
 
-    Logger.recordOutput("Note Align/Distance", distanceIn);
-
-    double adjustedDeadzone = deadzone / distanceIn;
-
-    Logger.recordOutput("Note Align/Adjusted Deadzone", adjustedDeadzone);
-
-    if (Math.abs(txDeg) < adjustedDeadzone) {
+    if (robotRelative.getX() > 0 && Math.abs(robotRelative.getY()) < LATERAL_TOLERANCE_METERS) {
       inRotTol = true;
-    } else {
-      drive.runVelocity(new ChassisSpeeds(0, 0, -((txDeg / 225) * drive.getMaxAngularSpeedRadPerSec())));
     }
 
+    double omega = MathUtil.clamp(
+      TURN_KP * angleErrorRad, -drive.getMaxAngularSpeedRadPerSec(), drive.getMaxAngularSpeedRadPerSec());
+
     Logger.recordOutput("Note Align/inRotTol", inRotTol);
 
     if(inRotTol) {
       intake.setIntakeSpeed(Constants.INTAKE_SPEED);
       indexer.setIndexerSpeed(Constants.INDEXER_FEED_SPEED);
 
-      drive.runVelocity(new ChassisSpeeds(2.0 * (distanceIn / 40), 0, 0));
+      double speed = MathUtil.clamp(
+        APPROACH_SPEED_PER_METER * robotRelative.getNorm(), MIN_APPROACH_SPEED, MAX_APPROACH_SPEED);
+      drive.runVelocity(new ChassisSpeeds(speed, 0, omega));
+    } else {
+      drive.runVelocity(new ChassisSpeeds(0, 0, omega));
     }
   }
 
@@ -15,6 +15,8 @@ import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.indexer.Indexer;
 import frc.robot.subsystems.intake.Intake;
 import frc.robot.subsystems.shooter.Shooter;
+import frc.robot.subsystems.shooter.ShotReadinessPredictor;
+import frc.robot.util.CommandLog;
 
 public class AutoShootCommand extends Command {
 
@@ -23,6 +25,7 @@ public class AutoShootCommand extends Command {
   private final Indexer indexer;
   private final Intake intake;
   private final Drive drive;
+  private final ShotReadinessPredictor readiness;
   private double targetMPS;
 
 
@@ -32,6 +35,7 @@ public class AutoShootCommand extends Command {
     this.indexer = indexer;
     this.intake = intake;
     this.drive = drive;
+    readiness = new ShotReadinessPredictor("AutoShootCommand/Readiness", shooter, arm);
 
     addRequirements(shooter, indexer, intake, drive);
   }
@@ -40,6 +44,8 @@ public class AutoShootCommand extends Command {
   @Override
   public void initialize() {
     Leds.getInstance().autoShootCommand = true;
+    readiness.reset();
+    CommandLog.started(this);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
@@ -47,11 +53,11 @@ public class AutoShootCommand extends Command {
   public void execute() {
     double armAngleInterpolated = shooter.interpolateArmAngle(drive.getDistanceFromSpeaker());
     arm.setArmSetpoint(armAngleInterpolated);
-    targetMPS = 25;
+    targetMPS = Constants.AUTO_SHOOT_SPEED_MPS;
 
     shooter.setFlywheelSpeed(targetMPS);
 
-    if (shooter.flywheelUpToSpeed(targetMPS) && arm.armAtSetpoint()) {
+    if (readiness.update(targetMPS)) {
       indexer.setIndexerSpeed(Constants.INDEXER_FEED_SPEED);
       intake.setIntakeSpeed(0.5);
     }
@@ -68,6 +74,7 @@ public class AutoShootCommand extends Command {
     }
     Leds.getInstance().autoShootCommand = false;
     Logger.recordOutput("Auto Rotate/Rotating", false);
+    CommandLog.ended(this);
   }
 
   // Returns true when the command should end.
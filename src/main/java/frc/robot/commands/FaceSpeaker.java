@@ -29,7 +29,11 @@ public class FaceSpeaker extends Command {
   public FaceSpeaker(Drive drive) {
     addRequirements(drive);
     this.drive = drive;
+    controller = createController();
+  }
 
+  /** Creates the heading controller, in degrees. Also used by Warmup to run the same math. */
+  public static PIDController createController() {
     switch (Constants.currentMode) {
       case REAL:
         kP = 0.12;
@@ -45,16 +49,28 @@ public class FaceSpeaker extends Command {
         break;
     }
 
-    controller = new PIDController(kP, kI, kD, 0.02);
+    PIDController controller = new PIDController(kP, kI, kD, 0.02);
     controller.setTolerance(toleranceDegrees);
     controller.enableContinuousInput(-180, 180);
+    return controller;
+  }
+
+  /** Heading that points the shooter at the speaker, in degrees. */
+  public static double goalDegrees(Drive drive) {
+    return drive.getRotationToSpeaker().getDegrees() + 180;
+  }
+
+  /** Turn speed towards the controller's setpoint, in degrees per second. */
+  public static double calculateRotationSpeed(PIDController controller, Drive drive) {
+    //30 degrees per second max rotation speed
+    return MathUtil.clamp(controller.calculate(drive.getPose().getRotation().getDegrees()), -30, 30);
   }
 
   // Called when the command is initially scheduled.
   @Override
   public void initialize() {
     controller.reset();
-    controller.setSetpoint(drive.getRotationToSpeaker().getDegrees() + 180);
+    controller.setSetpoint(goalDegrees(drive));
 
     Leds.getInstance().autoShootEndAngle = controller.getSetpoint() + 180;
     Leds.getInstance().autoShootStartAngle = drive.getPose().getRotation().getDegrees() + 180;
@@ -64,8 +80,7 @@ public class FaceSpeaker extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    //30 degrees per second max rotation speed
-    double rotationSpeed = MathUtil.clamp(controller.calculate(drive.getPose().getRotation().getDegrees()), -30, 30);
+    double rotationSpeed = calculateRotationSpeed(controller, drive);
 
     Leds.getInstance().autoShootCurrentAngle = drive.getPose().getRotation().getDegrees() + 180;
 
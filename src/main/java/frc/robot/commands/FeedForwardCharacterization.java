@@ -17,8 +17,6 @@ import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Subsystem;
 import frc.robot.util.PolynomialRegression;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
@@ -75,32 +73,24 @@ public class FeedForwardCharacterization extends Command {
   }
 
   public static class FeedForwardCharacterizationData {
-    private final List<Double> velocityData = new LinkedList<>();
-    private final List<Double> voltageData = new LinkedList<>();
+    private final PolynomialRegression regression = new PolynomialRegression(1);
 
     public void add(double velocity, double voltage) {
       if (Math.abs(velocity) > 1E-4) {
-        velocityData.add(Math.abs(velocity));
-        voltageData.add(Math.abs(voltage));
+        regression.add(Math.abs(velocity), Math.abs(voltage));
       }
     }
 
     public void print() {
-      if (velocityData.size() == 0 || voltageData.size() == 0) {
+      if (regression.size() == 0) {
         return;
       }
 
-      PolynomialRegression regression =
-          new PolynomialRegression(
-              velocityData.stream().mapToDouble(Double::doubleValue).toArray(),
-              voltageData.stream().mapToDouble(Double::doubleValue).toArray(),
-              1);
-
       System.out.println("FF Characterization Results:");
-      System.out.println("\tCount=" + Integer.toString(velocityData.size()) + "");
+      System.out.println("\tCount=" + Long.toString(regression.size()) + "");
       System.out.println(String.format("\tR2=%.5f", regression.R2()));
       System.out.println(String.format("\tkS=%.5f", regression.beta(0)));
       System.out.println(String.format("\tkV=%.5f", regression.beta(1)));
     }
   }
-}
\ No newline at end of file
+}
@@ -10,17 +10,21 @@ import frc.robot.RobotContainer.shootPositions;
 import frc.robot.subsystems.arm.Arm;
 import frc.robot.subsystems.indexer.Indexer;
 import frc.robot.subsystems.shooter.Shooter;
+import frc.robot.subsystems.shooter.ShotReadinessPredictor;
+import frc.robot.util.CommandLog;
 
 public class LobShootCommand extends Command {
 
   private final Arm arm;
   private final Shooter shooter;
   private final Indexer indexer;
+  private final ShotReadinessPredictor readiness;
 
   public LobShootCommand(Arm arm, Shooter shooter, Indexer indexer) {
     this.arm = arm;
     this.shooter = shooter;
     this.indexer = indexer;
+    readiness = new ShotReadinessPredictor("LobShootCommand/Readiness", shooter, arm);
 
     addRequirements(arm, shooter, indexer);
   }
@@ -30,12 +34,14 @@ public class LobShootCommand extends Command {
   public void initialize() {
     arm.setArmSetpoint(shootPositions.LOB.getShootAngle());
     shooter.setFlywheelSpeed(15.0);
+    readiness.reset();
+    CommandLog.started(this);
   }
 
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    if (shooter.flywheelUpToSpeed(15.0) && arm.armAtSetpoint()) {
+    if (readiness.update(15.0)) {
       indexer.setIndexerSpeed(Constants.INDEXER_FEED_SPEED);
     }
   }
@@ -45,6 +51,7 @@ public class LobShootCommand extends Command {
   public void end(boolean interrupted) {
     shooter.stopFlywheel();
     indexer.stopIndexer();
+    CommandLog.ended(this);
   }
 
   // Returns true when the command should end.
@@ -4,20 +4,26 @@
 
 package frc.robot.commands;
 
+import java.util.Optional;
+
 import org.littletonrobotics.junction.Logger;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
 import frc.robot.LimelightHelpers;
-import frc.robot.LimelightHelpers.LimelightResults;
-import frc.robot.LimelightHelpers.LimelightTarget_Detector;
 import frc.robot.subsystems.drive.Drive;
 import frc.robot.subsystems.indexer.Indexer;
 import frc.robot.subsystems.intake.Intake;
 
 public class NoteAlign extends Command {
 
+  // Robot center to note distance where the intake takes over
+  private static final double STOP_DISTANCE_METERS = 0.75;
+  private static final double LATERAL_TOLERANCE_METERS = 0.05;
+
   private Drive drive;
   private Indexer indexer;
   private Intake intake;
@@ -40,12 +46,9 @@ public class NoteAlign extends Command {
   // Called every time the scheduler runs while the command is scheduled.
   @Override
   public void execute() {
-    LimelightResults results = LimelightHelpers.getLatestResults("limelight-driver");
+    Optional<Translation2d> note = drive.getBestNote();
 
-    LimelightTarget_Detector[] notes = results.targetingResults.targets_Detector;
-    LimelightTarget_Detector closestNote = getClosestNote(notes);
-
-    Logger.recordOutput("NoteAlign/Note Count", notes.length);
+    Logger.recordOutput("NoteAlign/Note Count", drive.getTrackedNotes().size());
 
     double xRequest;
     double yRequest;
@@ -53,12 +56,14 @@ public class NoteAlign extends Command {
     boolean inXTol = false;
     boolean inYTol = false;
 
-    if (closestNote == null) {
-      System.out.println("\n\n note null :(\n\n");
+    if (note.isEmpty()) {
       return;
     }
 
-    if (closestNote.ty > -25) {
+    Pose2d pose = drive.getPose();
+    Translation2d robotRelative = note.get().minus(pose.getTranslation()).rotateBy(pose.getRotation().unaryMinus());
+
+    if (robotRelative.getX() > STOP_DISTANCE_METERS) {
       yRequest = 0.2;
     } else {
       yRequest = 0.0;
@@ -68,9 +73,9 @@ public class NoteAlign extends Command {
     Logger.recordOutput("NoteAlign/yRequest", yRequest);
     Logger.recordOutput("NoteAlign/inYTol", inYTol);
 
-    if (closestNote.tx < -1) {
+    if (robotRelative.getY() > LATERAL_TOLERANCE_METERS) {
       xRequest = 0.2;
-    } else if (closestNote.tx > 1) {
+    } else if (robotRelative.getY() < -LATERAL_TOLERANCE_METERS) {
       xRequest = -0.2;
     } else {
       xRequest = 0.0;
@@ -89,20 +94,6 @@ public class NoteAlign extends Command {
     }
   }
 
-  private LimelightTarget_Detector getClosestNote(LimelightTarget_Detector[] noteArray) {
-    LimelightTarget_Detector closestNote = null;
-    double closest = -999;
-
-    for (LimelightTarget_Detector note : noteArray) {
-      double distance = note.ty;
-      if (distance > closest) {
-        closestNote = note;
-        closest = note.ty;
-      }
-    }
-    return closestNote;
-  }
-
   // Called once the command ends or is interrupted.
   @Override
   public void end(boolean interrupted) {
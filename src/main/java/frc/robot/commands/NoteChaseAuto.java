@@ -0,0 +1,212 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.path.PathConstraints;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.subsystems.arm.Arm;
+import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.indexer.Indexer;
+import frc.robot.subsystems.intake.Intake;
+import frc.robot.subsystems.shooter.Shooter;
+import frc.robot.util.AllianceFlipUtil;
+import frc.robot.util.CommandLog;
+
+/**
+ * Autonomous that chases the notes the driver Limelight is tracking instead of following fixed paths.
+ *
+ * <p>Each step is picked when the previous one ends. With a note in the robot it shoots, driving
+ * into range first if needed. Otherwise it pathfinds to a point short of the best tracked note,
+ * arriving with speed so {@link AutoNoteAlignCommand} can carry straight through into the intake.
+ * With nothing tracked it drives to look at the next note mark it hasn't ruled out. A mark is ruled
+ * out once the robot has had a clear look at it and nothing is tracked there. Before each chase it
+ * estimates whether the note can still be picked up and shot before auto ends. If not, it shoots
+ * what it has, or stops and ends.
+ */
+public class NoteChaseAuto {
+  private static final String NAME = "NoteChaseAuto";
+  private static final double AUTO_LENGTH_SECS = 15.0;
+  private static final PathConstraints CONSTRAINTS =
+      new PathConstraints(3.0, 3.0, Units.degreesToRadians(540), Units.degreesToRadians(720));
+
+  // Estimates used for the time budget
+  private static final double AVERAGE_SPEED = 2.2;
+  private static final double INTAKE_SECS = 0.75;
+  private static final double SHOT_SECS = 1.0;
+
+  // Pathfinding hands off to the note align this far from the note, still moving
+  private static final double APPROACH_DISTANCE = 1.0;
+  private static final double APPROACH_END_VELOCITY = 1.0;
+  private static final double NOTE_ALIGN_TIMEOUT_SECS = 2.0;
+
+  // Shoot from here when out of range, blue side, shooter facing the speaker
+  private static final Pose2d SHOOT_POSE = new Pose2d(2.6, 5.55, new Rotation2d());
+  private static final double SHOOT_RANGE = 3.2;
+
+  // How close and how square the robot needs to be to a note mark to rule it out
+  private static final double LOOK_DISTANCE = 2.5;
+  private static final double LOOK_ANGLE_DEG = 20.0;
+  private static final double SAME_NOTE_DISTANCE = 0.5;
+
+  // Note marks in the order they are searched, blue side
+  private static final List<Translation2d> NOTE_MARKS =
+      List.of(
+          new Translation2d(2.8956, 7.0048),
+          new Translation2d(2.8956, 5.5535),
+          new Translation2d(2.8956, 4.1021),
+          new Translation2d(8.2705, 7.4585),
+          new Translation2d(8.2705, 5.7821),
+          new Translation2d(8.2705, 4.1057),
+          new Translation2d(8.2705, 2.4293),
+          new Translation2d(8.2705, 0.7529));
+
+  private NoteChaseAuto() {}
+
+  public static Command noteChaseAuto(
+      Drive drive, Intake intake, Indexer indexer, Arm arm, Shooter shooter) {
+    Timer timer = new Timer();
+    List<Translation2d> remainingMarks = new ArrayList<>();
+    boolean[] done = new boolean[1];
+
+    return Commands.runOnce(
+            () -> {
+              timer.restart();
+              remainingMarks.clear();
+              done[0] = false;
+              CommandLog.started(NAME);
+              NOTE_MARKS.forEach(mark -> remainingMarks.add(AllianceFlipUtil.apply(mark)));
+            })
+        .andThen(
+            Commands.defer(
+                    () -> nextStep(drive, intake, indexer, arm, shooter, remainingSecs(timer), remainingMarks, done),
+                    Set.of(drive, intake, indexer, arm, shooter))
+                .repeatedly()
+                .until(() -> done[0]))
+        .finallyDo(
+            () -> {
+              drive.stop();
+              CommandLog.ended(NAME);
+            })
+        .withName(NAME);
+  }
+
+  /** Time left in auto, from the match clock if there is one. */
+  private static double remainingSecs(Timer timer) {
+    double matchTime = DriverStation.getMatchTime();
+    return matchTime > 0.0 ? matchTime : AUTO_LENGTH_SECS - timer.get();
+  }
+
+  private static Command nextStep(
+      Drive drive,
+      Intake intake,
+      Indexer indexer,
+      Arm arm,
+      Shooter shooter,
+      double remainingSecs,
+      List<Translation2d> remainingMarks,
+      boolean[] done) {
+    Pose2d pose = drive.getPose();
+    Translation2d shootPosition = AllianceFlipUtil.apply(SHOOT_POSE.getTranslation());
+    ruleOutEmptyMarks(pose, drive.getTrackedNotes(), remainingMarks);
+    Logger.recordOutput("NoteChaseAuto/RemainingSecs", remainingSecs);
+    Logger.recordOutput("NoteChaseAuto/RemainingMarks", remainingMarks.toArray(Translation2d[]::new));
+
+    if (indexer.noteInIndexer()) {
+      Logger.recordOutput("NoteChaseAuto/Step", "Shoot");
+      return shoot(drive, intake, indexer, arm, shooter);
+    }
+
+    Optional<Translation2d> note = drive.getBestNote();
+    if (note.isPresent()) {
+      double secsNeeded =
+          (pose.getTranslation().getDistance(note.get()) + note.get().getDistance(shootPosition)) / AVERAGE_SPEED
+              + INTAKE_SECS
+              + SHOT_SECS;
+      if (secsNeeded < remainingSecs) {
+        Logger.recordOutput("NoteChaseAuto/Step", "Chase");
+        Logger.recordOutput("NoteChaseAuto/Target", note.get());
+        // The mark this note sits on doesn't need to be searched anymore
+        remainingMarks.removeIf(mark -> mark.getDistance(note.get()) < SAME_NOTE_DISTANCE);
+        return chase(drive, intake, indexer, arm, note.get());
+      }
+    } else if (!remainingMarks.isEmpty()) {
+      Translation2d mark = remainingMarks.get(0);
+      double secsNeeded =
+          (pose.getTranslation().getDistance(mark) + mark.getDistance(shootPosition)) / AVERAGE_SPEED
+              + INTAKE_SECS
+              + SHOT_SECS;
+      if (secsNeeded < remainingSecs) {
+        Logger.recordOutput("NoteChaseAuto/Step", "Search");
+        Logger.recordOutput("NoteChaseAuto/Target", mark);
+        // Stop short of the mark facing it, and switch to chasing as soon as anything is tracked
+        Rotation2d heading = mark.minus(pose.getTranslation()).getAngle();
+        return AutoBuilder.pathfindToPose(
+                new Pose2d(mark.minus(new Translation2d(LOOK_DISTANCE - 0.5, heading)), heading), CONSTRAINTS)
+            .until(() -> drive.getBestNote().isPresent())
+            .finallyDo(() -> remainingMarks.remove(mark));
+      }
+    }
+
+    // Nothing reachable is left, end so an auto can run whatever comes after
+    Logger.recordOutput("NoteChaseAuto/Step", "Done");
+    done[0] = true;
+    return Commands.runOnce(drive::stop, drive);
+  }
+
+  private static Command chase(Drive drive, Intake intake, Indexer indexer, Arm arm, Translation2d note) {
+    Pose2d pose = drive.getPose();
+    Rotation2d heading = note.minus(pose.getTranslation()).getAngle();
+    Command intakeNote = new AutoNoteAlignCommand(drive, intake, indexer, arm, false).withTimeout(NOTE_ALIGN_TIMEOUT_SECS);
+
+    if (pose.getTranslation().getDistance(note) <= APPROACH_DISTANCE * 1.5) {
+      return intakeNote;
+    }
+    return AutoBuilder.pathfindToPose(
+            new Pose2d(note.minus(new Translation2d(APPROACH_DISTANCE, heading)), heading),
+            CONSTRAINTS,
+            APPROACH_END_VELOCITY)
+        // Give up on the note if the tracker drops it, e.g. another robot took it
+        .until(() -> drive.getTrackedNotes().stream().noneMatch(tracked -> tracked.getDistance(note) < SAME_NOTE_DISTANCE))
+        .andThen(intakeNote.onlyIf(() -> drive.getBestNote().isPresent()));
+  }
+
+  private static Command shoot(Drive drive, Intake intake, Indexer indexer, Arm arm, Shooter shooter) {
+    Command aimAndShoot =
+        new FaceSpeaker(drive).withTimeout(1.0).andThen(new AutoShootCommand(arm, shooter, indexer, intake, drive).withTimeout(2.0));
+    if (drive.getDistanceFromSpeaker() <= SHOOT_RANGE) {
+      return aimAndShoot;
+    }
+    return AutoBuilder.pathfindToPoseFlipped(SHOOT_POSE, CONSTRAINTS).andThen(aimAndShoot);
+  }
+
+  /** Drops the note marks the robot has a clear look at with no tracked note on them. */
+  private static void ruleOutEmptyMarks(Pose2d pose, List<Translation2d> trackedNotes, List<Translation2d> marks) {
+    marks.removeIf(
+        mark -> {
+          Translation2d robotRelative = mark.minus(pose.getTranslation()).rotateBy(pose.getRotation().unaryMinus());
+          boolean inView =
+              robotRelative.getX() > 0.0
+                  && robotRelative.getNorm() < LOOK_DISTANCE
+                  && Math.abs(robotRelative.getAngle().getDegrees()) < LOOK_ANGLE_DEG;
+          return inView && trackedNotes.stream().noneMatch(note -> note.getDistance(mark) < SAME_NOTE_DISTANCE);
+        });
+  }
+}
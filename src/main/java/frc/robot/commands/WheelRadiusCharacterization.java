@@ -4,8 +4,6 @@
 
 package frc.robot.commands;
 
-import java.util.function.DoubleSupplier;
-
 import org.littletonrobotics.junction.Logger;
 
 import edu.wpi.first.math.MathUtil;
@@ -14,14 +12,31 @@ import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.Constants;
 import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.drive.Module;
 import frc.robot.util.LoggedTunableNumber;
+import frc.robot.util.PolynomialRegression;
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Spins the robot in place and measures the effective wheel radius from how far the wheels turn for
+ * the rotation the gyro measures.
+ *
+ * <p>The raw gyro yaw is used, not the pose, which is already corrected with the wheel radius being
+ * measured. Every loop adds a sample of wheel rotation against the arc each wheel travels, and the
+ * radius is the slope of a line fit over the whole run, so a bad sample or the ramp at the start
+ * doesn't skew it. The 95% confidence interval of the slope is logged alongside it. Consecutive
+ * samples are correlated, so treat the interval as a lower bound. When the run ends with enough
+ * rotation, the radius is printed and logged, and if the interval is tight enough it should be
+ * committed as {@link Module}'s wheel radius. It isn't applied automatically, so the radius stays in
+ * git and replayed logs use the same radius as the robot did.
+ */
 public class WheelRadiusCharacterization extends Command {
   private static final LoggedTunableNumber characterizationSpeed =
       new LoggedTunableNumber("WheelRadiusCharacterization/SpeedRadsPerSec", 0.1);
   private static final double driveRadius = Constants.DRIVETRAIN_RADIUS;
-  private final DoubleSupplier gyroYawRadsSupplier;
+  // Only save a result whose 95% confidence interval is within this fraction of the radius
+  private static final double MAX_RELATIVE_CONFIDENCE_INTERVAL = 0.01;
+  private static final double Z_95 = 1.96;
 
   @RequiredArgsConstructor
   public enum Direction {
@@ -34,6 +49,7 @@ public class WheelRadiusCharacterization extends Command {
   private final Drive drive;
   private final Direction omegaDirection;
   private final SlewRateLimiter omegaLimiter = new SlewRateLimiter(1.0);
+  private final PolynomialRegression regression = new PolynomialRegression(1);
 
   private double lastGyroYawRads = 0.0;
   private double accumGyroYawRads = 0.0;
@@ -41,20 +57,23 @@ public class WheelRadiusCharacterization extends Command {
   private double[] startWheelPositions;
 
   private double currentEffectiveWheelRadius = 0.0;
+  private double confidenceInterval = Double.POSITIVE_INFINITY;
 
   public WheelRadiusCharacterization(Drive drive, Direction omegaDirection) {
     this.drive = drive;
     this.omegaDirection = omegaDirection;
-    this.gyroYawRadsSupplier = () -> drive.getPose().getRotation().getRadians();
-  
+
     addRequirements(drive);
   }
 
   @Override
   public void initialize() {
     // Reset
-    lastGyroYawRads = gyroYawRadsSupplier.getAsDouble();
+    lastGyroYawRads = drive.getGyroYawRads();
     accumGyroYawRads = 0.0;
+    regression.clear();
+    currentEffectiveWheelRadius = 0.0;
+    confidenceInterval = Double.POSITIVE_INFINITY;
 
     startWheelPositions = drive.getWheelRadiusCharacterizationPosition();
 
@@ -67,33 +86,71 @@ public class WheelRadiusCharacterization extends Command {
     drive.runWheelRadiusCharacterization(
         omegaLimiter.calculate(omegaDirection.value * characterizationSpeed.get()));
 
+    if (!drive.isGyroConnected()) {
+      return;
+    }
+
     // Get yaw and wheel positions
-    accumGyroYawRads += MathUtil.angleModulus(gyroYawRadsSupplier.getAsDouble() - lastGyroYawRads);
-    lastGyroYawRads = gyroYawRadsSupplier.getAsDouble();
+    double gyroYawRads = drive.getGyroYawRads();
+    accumGyroYawRads += MathUtil.angleModulus(gyroYawRads - lastGyroYawRads);
+    lastGyroYawRads = gyroYawRads;
     double averageWheelPosition = 0.0;
-    double[] wheelPositiions = drive.getWheelRadiusCharacterizationPosition();
+    double[] wheelPositions = drive.getWheelRadiusCharacterizationPosition();
     for (int i = 0; i < 4; i++) {
-      averageWheelPosition += Math.abs(wheelPositiions[i] - startWheelPositions[i]);
+      averageWheelPosition += Math.abs(wheelPositions[i] - startWheelPositions[i]);
     }
     averageWheelPosition /= 4.0;
 
-    currentEffectiveWheelRadius = (accumGyroYawRads * driveRadius) / averageWheelPosition;
+    // Arc length each wheel travels = wheel radius * wheel rotation, the slope is the radius
+    regression.add(averageWheelPosition, Math.abs(accumGyroYawRads) * driveRadius);
+    if (regression.size() > 2) {
+      currentEffectiveWheelRadius = regression.beta(1);
+      double r2 = regression.R2();
+      confidenceInterval =
+          r2 > 0.0
+              ? Z_95 * Math.abs(currentEffectiveWheelRadius) * Math.sqrt((1.0 - r2) / (r2 * (regression.size() - 2)))
+              : Double.POSITIVE_INFINITY;
+    }
+
     Logger.recordOutput("Drive/RadiusCharacterization/DrivePosition", averageWheelPosition);
     Logger.recordOutput("Drive/RadiusCharacterization/AccumGyroYawRads", accumGyroYawRads);
+    Logger.recordOutput("Drive/RadiusCharacterization/Samples", regression.size());
     Logger.recordOutput(
         "Drive/RadiusCharacterization/CurrentWheelRadiusInches",
         Units.metersToInches(currentEffectiveWheelRadius));
+    Logger.recordOutput(
+        "Drive/RadiusCharacterization/ConfidenceIntervalInches",
+        Units.metersToInches(confidenceInterval));
   }
 
   @Override
   public void end(boolean interrupted) {
-    if (accumGyroYawRads <= Math.PI * 2.0) {
+    if (Math.abs(accumGyroYawRads) <= Math.PI * 2.0) {
       System.out.println("Not enough data for characterization");
-    } else {
+      return;
+    }
+
+    System.out.println(
+        "Effective Wheel Radius: "
+            + Units.metersToInches(currentEffectiveWheelRadius)
+            + " ± "
+            + Units.metersToInches(confidenceInterval)
+            + " inches (95%, "
+            + regression.size()
+            + " samples)");
+    boolean precise =
+        confidenceInterval < MAX_RELATIVE_CONFIDENCE_INTERVAL * currentEffectiveWheelRadius;
+    Logger.recordOutput(
+        "Drive/RadiusCharacterization/ResultInches",
+        Units.metersToInches(currentEffectiveWheelRadius));
+    Logger.recordOutput("Drive/RadiusCharacterization/ResultPrecise", precise);
+    if (precise) {
       System.out.println(
-          "Effective Wheel Radius: "
-              + Units.metersToInches(currentEffectiveWheelRadius)
-              + " inches");
+          "Commit to Module: WHEEL_RADIUS = Units.inchesToMeters("
+              + String.format("%.4f", Units.metersToInches(currentEffectiveWheelRadius))
+              + ")");
+    } else {
+      System.out.println("Confidence interval too wide, run it again before using this radius");
     }
   }
-}
\ No newline at end of file
+}
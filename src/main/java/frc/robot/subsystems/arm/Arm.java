@@ -4,7 +4,6 @@
 
 package frc.robot.subsystems.arm;
 
-import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 import edu.wpi.first.math.geometry.Pose3d;
@@ -17,11 +16,14 @@ import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj.util.Color8Bit;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.util.FeedforwardEstimator;
+import frc.robot.util.LoggingPolicy;
 
 /** Add your docs here. */
 public class Arm extends SubsystemBase {
     private ArmIO io;
     private ArmIOInputsAutoLogged inputs = new ArmIOInputsAutoLogged();
+    private FeedforwardEstimator feedforwardEstimator = new FeedforwardEstimator("Arm/FeedforwardEstimate", 0.1, true);
     
     public MechanismLigament2d arm;
     public MechanismLigament2d shooter;
@@ -51,7 +53,7 @@ public class Arm extends SubsystemBase {
     }
     
     public double getArmAngleDegrees() {
-        return (inputs.armRelativeAngleRotations + 12.25) / Constants.ARM_ABSOLUTE_CONVERSION_FACTOR * 360.0;
+        return (inputs.armRelativeAngleRotations - Constants.ARM_ZERO_ANGLE_ROTATIONS) / Constants.ARM_ABSOLUTE_CONVERSION_FACTOR * 360.0;
     }
 
     public void incrementArmAngle(double inc) {
@@ -79,9 +81,13 @@ public class Arm extends SubsystemBase {
         return io.getArmEncoderRotation();
     }
 
+    /** Returns the arm setpoint in motor rotations, the same units as the encoder rotation. */
+    public double getArmSetpoint() {
+        return inputs.armSetpoint;
+    }
+
     
 
-    @AutoLogOutput(key = "Arm/CAN Disconnect")
     public boolean getDisconnect() {
         return io.getDisconnect();
     }
@@ -90,13 +96,16 @@ public class Arm extends SubsystemBase {
     public void periodic() {
         io.updateInputs(inputs);
         Logger.processInputs("Arm/IO", inputs);
+        feedforwardEstimator.update(
+            inputs.armAppliedVolts, inputs.armVelocityRadPerSec, Math.cos(Units.degreesToRadians(getArmAngleDegrees())));
 
         arm.setAngle(getArmAngleDegrees());
 
         Pose3d actualArmPose = new Pose3d(-0.025, 0, 0.605, new Rotation3d(Units.degreesToRadians(getArmAngleDegrees()), 0, Units.degreesToRadians(90)));
-        Pose3d requestedArmPose = new Pose3d(-0.025, 0, 0.605, new Rotation3d(Units.degreesToRadians(((inputs.armSetpoint + 12.25) / Constants.ARM_ABSOLUTE_CONVERSION_FACTOR * 360.0)), 0, Units.degreesToRadians(90)));
+        Pose3d requestedArmPose = new Pose3d(-0.025, 0, 0.605, new Rotation3d(Units.degreesToRadians(((inputs.armSetpoint - Constants.ARM_ZERO_ANGLE_ROTATIONS) / Constants.ARM_ABSOLUTE_CONVERSION_FACTOR * 360.0)), 0, Units.degreesToRadians(90)));
     
-        Logger.recordOutput("Poses/Actual Arm", actualArmPose);
-        Logger.recordOutput("Poses/Requested Arn", requestedArmPose);
+        LoggingPolicy.record("Poses/Actual Arm", actualArmPose);
+        LoggingPolicy.record("Poses/Requested Arn", requestedArmPose);
+        LoggingPolicy.record("Arm/CAN Disconnect", getDisconnect());
     }
 }
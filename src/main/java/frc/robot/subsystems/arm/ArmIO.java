@@ -12,6 +12,7 @@ public interface ArmIO {
     @AutoLog
     public static class ArmIOInputs {
         public double armAbsoluteAngleRotations = 0.0;
+        public boolean armAbsoluteConnected = false;
         public double armRelativeAngleRotations = 0.0;
         public double armVelocityRadPerSec = 0.0;
         public double armAppliedVolts = 0.0;
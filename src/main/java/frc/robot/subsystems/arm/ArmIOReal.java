@@ -5,12 +5,15 @@ import org.littletonrobotics.junction.Logger;
 import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.Follower;
-import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.PositionVoltage;
 import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.GravityTypeValue;
 import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
+import edu.wpi.first.math.filter.MedianFilter;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DutyCycleEncoder;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
@@ -22,17 +25,37 @@ public class ArmIOReal implements ArmIO {
     private TalonFX m_armMotorRight;
     private DutyCycleEncoder encoder;
 
-    // create a Motion Magic request, voltage output
-    private final MotionMagicVoltage m_request = new MotionMagicVoltage(0);
+    private static final double LOOP_PERIOD_SECS = 0.02;
+
+    // Absolute readings above this are just below stow, not most of a turn past it
+    private static final double ABSOLUTE_WRAP = 0.9;
+    // Drift is only compared while the arm is still, so the two encoders' latency doesn't matter
+    private static final double STILL_RPS = 0.5;
+    // Drift beyond this is corrected while disabled, beyond the slip limit it's only reported
+    private static final double DRIFT_CORRECT_ROTATIONS = 0.1;
+    private static final double SLIP_ROTATIONS = 0.75;
+
+    private final MedianFilter driftFilter = new MedianFilter(25);
+    private boolean seededFromAbsolute = false;
+
+    // Profiles are planned per move and streamed to the motor as position setpoints
+    private final PositionVoltage m_request = new PositionVoltage(0);
+    private final ArmTrajectoryPlanner planner = new ArmTrajectoryPlanner();
+    private boolean following = false;
 
     private Alert armLeftMotorDisconnectAlert = new Alert("Arm Motor Disconnect", AlertType.kError);
     private Alert armRightMotorDisconnectAlert = new Alert("Arm Motor Disconnect", AlertType.kError);
+    private Alert absoluteDisconnectAlert =
+        new Alert("Arm absolute encoder disconnected, assuming the arm started stowed", AlertType.kWarning);
+    private Alert encoderSlipAlert =
+        new Alert("Arm encoders disagree, the zero has slipped. Check the arm before shooting", AlertType.kError);
 
     public ArmIOReal() {
         
 
         m_armMotorLeft = new TalonFX(Constants.ARM_MOTOR_LEFT);
         m_armMotorRight = new TalonFX(Constants.ARM_MOTOR_RIGHT);
+        encoder = new DutyCycleEncoder(Constants.ARM_ABSOLUTE_ENCODER_PORT, 1.0, Constants.ARM_ABSOLUTE_ENCODER_OFFSET);
 
         var armConfig = new TalonFXConfiguration();
 
@@ -51,27 +74,23 @@ public class ArmIOReal implements ArmIO {
 
         // armConfig.Feedback.SensorToMechanismRatio = 50;
 
-        // set slot 0 gains
+        // set slot 0 gains, gravity, velocity and acceleration come from the planner's feedforward
         var slot0Configs = armConfig.Slot0;
-        slot0Configs.GravityType = GravityTypeValue.Arm_Cosine;
         slot0Configs.kS = 0.28;// 0.25; // Add 0.25 V output to overcome static friction
-        slot0Configs.kV = 0.3;// 2.82; // A velocity target of 1 rps results in 0.12 V output
+        slot0Configs.kV = 0.0;// 0.3; // A velocity target of 1 rps results in 0.12 V output
         slot0Configs.kA = 0.0; // An acceleration of 1 rps/s requires 0.01 V output
         slot0Configs.kP = 5.75;// 0.0004; // A position error of 2.5 rotations results in 12 V output
         slot0Configs.kI = 0.7;// 0.0005; // no output for integrated error
         slot0Configs.kD = 0.15;// 0.0003; // A velocity error of 1 rps results in 0.1 V output
 
-        // set Motion Magic settings
-        var motionMagicConfigs = armConfig.MotionMagic;
-        motionMagicConfigs.MotionMagicCruiseVelocity = 40; // Target cruise velocity of 80 rps
-        motionMagicConfigs.MotionMagicAcceleration = 60; // Target acceleration of 160 rps/s (0.5 seconds)
-
         m_armMotorLeft.getConfigurator().apply(armConfig);
         m_armMotorRight.getConfigurator().apply(armConfig);
 
         m_armMotorRight.setControl(new Follower(Constants.ARM_MOTOR_LEFT, true));
 
-         m_armMotorLeft.setPosition(-12.0);
+         // Assume stowed until the absolute encoder has a reading, see updateInputs
+         m_armMotorLeft.setPosition(Constants.ARM_STOW_ROTATIONS);
+         planner.reset(Constants.ARM_STOW_ROTATIONS);
 
     }
 
@@ -80,7 +99,51 @@ public class ArmIOReal implements ArmIO {
         inputs.armSetpoint = armSetPoint;
         
         inputs.armRelativeAngleRotations = m_armMotorLeft.getPosition().getValueAsDouble();
+        double velocityRps = m_armMotorLeft.getVelocity().getValueAsDouble();
+        inputs.armVelocityRadPerSec =
+            Units.rotationsToRadians(velocityRps) / Constants.ARM_ABSOLUTE_CONVERSION_FACTOR;
+        inputs.armAppliedVolts = m_armMotorLeft.getMotorVoltage().getValueAsDouble();
         inputs.armCurrentAmps = m_armMotorLeft.getSupplyCurrent().getValueAsDouble();
+        inputs.armAbsoluteConnected = encoder.isConnected();
+        inputs.armAbsoluteAngleRotations = encoder.get();
+
+        if (inputs.armAbsoluteConnected) {
+            double absolutePosition = absoluteToRelative(inputs.armAbsoluteAngleRotations);
+            // A wrong port or direction would drive the arm into its limits, so only move the zero
+            // once the mapping is confirmed, and never while enabled
+            boolean mayCorrect = Constants.ARM_ABSOLUTE_ENCODER_VERIFIED && DriverStation.isDisabled();
+            if (!seededFromAbsolute && mayCorrect) {
+                // First reading after boot
+                seed(absolutePosition);
+                seededFromAbsolute = true;
+                inputs.armRelativeAngleRotations = absolutePosition;
+            } else if (Math.abs(velocityRps) < STILL_RPS) {
+                double drift = driftFilter.calculate(inputs.armRelativeAngleRotations - absolutePosition);
+                Logger.recordOutput("Arm/EncoderDrift", drift);
+                encoderSlipAlert.set(Constants.ARM_ABSOLUTE_ENCODER_VERIFIED && Math.abs(drift) > SLIP_ROTATIONS);
+                if (mayCorrect
+                    && Math.abs(drift) > DRIFT_CORRECT_ROTATIONS
+                    && Math.abs(drift) <= SLIP_ROTATIONS) {
+                    seed(absolutePosition);
+                    inputs.armRelativeAngleRotations = absolutePosition;
+                }
+            }
+        }
+        absoluteDisconnectAlert.set(!inputs.armAbsoluteConnected);
+
+        // Replan from where the arm is while disabled, then stream the next setpoint
+        if (DriverStation.isDisabled()) {
+            restartPlanner(inputs.armRelativeAngleRotations);
+        } else if (following) {
+            TrapezoidProfile.State setpoint = planner.calculate(LOOP_PERIOD_SECS);
+            m_armMotorLeft.setControl(
+                m_request
+                    .withPosition(setpoint.position)
+                    .withVelocity(setpoint.velocity)
+                    .withFeedForward(planner.getFeedforwardVolts()));
+            Logger.recordOutput("Arm/ProfilePosition", setpoint.position);
+            Logger.recordOutput("Arm/ProfileVelocity", setpoint.velocity);
+        }
         Logger.recordOutput("FwdSoftLimit", m_armMotorLeft.getFault_ForwardSoftLimit().getValue().booleanValue());
         Logger.recordOutput("RevSoftLimit", m_armMotorLeft.getFault_ReverseSoftLimit().getValue().booleanValue());
         
@@ -92,11 +155,42 @@ public class ArmIOReal implements ArmIO {
         armRightMotorDisconnectAlert.set(!rightCode.isOK());
     }
 
+    /**
+     * Seeds from the absolute encoder, or assumes the arm is stowed if it isn't connected or its
+     * mapping isn't confirmed yet.
+     */
     public void seedEncoders() {
-        m_armMotorLeft.setPosition(-12.0);
+        boolean useAbsolute = Constants.ARM_ABSOLUTE_ENCODER_VERIFIED && encoder.isConnected();
+        seed(useAbsolute ? absoluteToRelative(encoder.get()) : Constants.ARM_STOW_ROTATIONS);
+    }
+
+    private void seed(double position) {
+        m_armMotorLeft.setPosition(position);
+        driftFilter.reset();
+        encoderSlipAlert.set(false);
+        restartPlanner(position);
+    }
+
+    /** Converts an absolute reading, zeroed at stow, to the motor's relative rotations. */
+    private static double absoluteToRelative(double absoluteRotations) {
+        double fromStow = absoluteRotations > ABSOLUTE_WRAP ? absoluteRotations - 1.0 : absoluteRotations;
+        return Constants.ARM_STOW_ROTATIONS + fromStow * Constants.ARM_ABSOLUTE_CONVERSION_FACTOR;
+    }
+
+    public double getAbsoluteRotations() {
+        return encoder.get();
+    }
+
+    /** Plans the move to the current setpoint again from a new position at rest. */
+    private void restartPlanner(double position) {
+        planner.reset(position);
+        if (following) {
+            planner.setGoal(armSetPoint);
+        }
     }
 
     public void stopArm() {
+        following = false;
         m_armMotorLeft.setVoltage(0);
     }
 
@@ -107,17 +201,19 @@ public class ArmIOReal implements ArmIO {
     public void setArmSetpoint(double angle) {
         // set target position
         armSetPoint = angle;
-        m_armMotorLeft.setControl(m_request.withPosition(armSetPoint));
+        planner.setGoal(armSetPoint);
+        following = true;
     }
 
     public boolean armAtSetpoint(){
-        return Math.abs(getArmEncoderRotation() - armSetPoint) <= 0.2;
+        return Math.abs(getArmEncoderRotation() - armSetPoint) <= Constants.ARM_SETPOINT_TOLERANCE_ROTATIONS;
     }
 
 
     public void nudge(double degrees) {
         armSetPoint = m_armMotorLeft.getPosition().getValueAsDouble() + degrees;
-        m_armMotorLeft.setControl(m_request.withPosition(armSetPoint));
+        planner.setGoal(armSetPoint);
+        following = true;
     }
 
 }
@@ -0,0 +1,136 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.arm;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.math.util.Units;
+import frc.robot.Constants;
+
+/**
+ * Plans arm moves as trapezoid profiles sized for each move from the motor model, and computes the
+ * feedforward to follow them.
+ *
+ * <p>The acceleration is what the current limited motors have left after holding the arm against
+ * the worst gravity load between the start and the goal, so a move near horizontal is gentler
+ * than a move near vertical. The cruise speed is what the voltage budget allows after the same
+ * gravity load, leaving headroom for feedback. Both are capped by a safety factor so the arm
+ * doesn't overshoot when the model is off. Positions are in motor rotations like the TalonFX, and
+ * the arm angle follows {@link Arm#getArmAngleDegrees()}.
+ *
+ * <p>The mass, center of mass and inertia are estimates, check them against the kG and kA of
+ * Arm/FeedforwardEstimate.
+ */
+public class ArmTrajectoryPlanner {
+    private static final DCMotor ARM_MOTOR =
+        DCMotor.getFalcon500(2).withReduction(Constants.ARM_ABSOLUTE_CONVERSION_FACTOR);
+    private static final double ARM_MASS_KG = 6.0;
+    private static final double ARM_CENTER_OF_MASS_METERS = 0.25;
+    private static final double ARM_MOI = 0.6;
+    // Supply limit of both motors, the stator current can only be higher
+    private static final double CURRENT_LIMIT_AMPS = 2.0 * Constants.ARM_CURRENT_LIMIT;
+    private static final double VOLTAGE_BUDGET = 8.0;
+    private static final double SAFETY_FACTOR = 0.5;
+
+    private TrapezoidProfile profile = null;
+    private TrapezoidProfile.State setpoint = new TrapezoidProfile.State();
+    private TrapezoidProfile.State goal = new TrapezoidProfile.State();
+    private double lastVelocity = 0.0;
+    private double acceleration = 0.0;
+
+    /** Returns the arm angle for an encoder position. */
+    public static double armRadians(double motorRotations) {
+        return Units.rotationsToRadians(
+            (motorRotations - Constants.ARM_ZERO_ANGLE_ROTATIONS) / Constants.ARM_ABSOLUTE_CONVERSION_FACTOR);
+    }
+
+    private static double toMotorRotations(double armRadians) {
+        return Units.radiansToRotations(armRadians) * Constants.ARM_ABSOLUTE_CONVERSION_FACTOR;
+    }
+
+    private static double gravityTorque(double armRadians) {
+        return ARM_MASS_KG * 9.81 * ARM_CENTER_OF_MASS_METERS * Math.cos(armRadians);
+    }
+
+    /** Largest |cos| between two angles. */
+    private static double maxAbsCos(double a, double b) {
+        double low = Math.min(a, b);
+        double high = Math.max(a, b);
+        if (Math.floor(high / Math.PI) >= Math.ceil(low / Math.PI)) {
+            return 1.0;
+        }
+        return Math.max(Math.abs(Math.cos(low)), Math.abs(Math.cos(high)));
+    }
+
+    /**
+     * Returns the profile limits for a move, in motor rotations.
+     *
+     * @param fromRotations Start position
+     * @param toRotations Goal position
+     */
+    public static TrapezoidProfile.Constraints constraints(double fromRotations, double toRotations) {
+        double gravity = gravityTorque(0.0) * maxAbsCos(armRadians(fromRotations), armRadians(toRotations));
+
+        double torque = ARM_MOTOR.getTorque(CURRENT_LIMIT_AMPS);
+        double accel = SAFETY_FACTOR * Math.max(0.0, torque - gravity) / ARM_MOI;
+
+        double backEmfVolts = VOLTAGE_BUDGET - gravity / ARM_MOTOR.KtNMPerAmp * ARM_MOTOR.rOhms;
+        double velocity =
+            SAFETY_FACTOR * Math.min(ARM_MOTOR.freeSpeedRadPerSec, backEmfVolts * ARM_MOTOR.KvRadPerSecPerVolt);
+
+        return new TrapezoidProfile.Constraints(toMotorRotations(velocity), toMotorRotations(accel));
+    }
+
+    /**
+     * Returns the voltage to hold the arm against gravity and follow a profile.
+     *
+     * @param positionRotations Profile position
+     * @param velocityRps Profile velocity
+     * @param accelerationRpsSq Profile acceleration
+     */
+    public static double feedforwardVolts(double positionRotations, double velocityRps, double accelerationRpsSq) {
+        double radPerRotation = Units.rotationsToRadians(1.0) / Constants.ARM_ABSOLUTE_CONVERSION_FACTOR;
+        double torque =
+            gravityTorque(armRadians(positionRotations)) + ARM_MOI * accelerationRpsSq * radPerRotation;
+        return ARM_MOTOR.getVoltage(torque, velocityRps * radPerRotation);
+    }
+
+    /** Starts following from a position at rest, e.g. after being disabled. */
+    public void reset(double positionRotations) {
+        profile = null;
+        setpoint = new TrapezoidProfile.State(positionRotations, 0.0);
+        goal = setpoint;
+        lastVelocity = 0.0;
+        acceleration = 0.0;
+    }
+
+    /** Plans a move to a new goal, starting from the current setpoint so a move can be redirected. */
+    public void setGoal(double goalRotations) {
+        if (profile != null && goalRotations == goal.position) {
+            return;
+        }
+        goal = new TrapezoidProfile.State(goalRotations, 0.0);
+        profile = new TrapezoidProfile(constraints(setpoint.position, goalRotations));
+    }
+
+    /** Advances the setpoint by one loop. */
+    public TrapezoidProfile.State calculate(double dtSecs) {
+        if (profile != null) {
+            setpoint = profile.calculate(dtSecs, setpoint, goal);
+        }
+        acceleration = (setpoint.velocity - lastVelocity) / dtSecs;
+        lastVelocity = setpoint.velocity;
+        return setpoint;
+    }
+
+    public TrapezoidProfile.State getSetpoint() {
+        return setpoint;
+    }
+
+    /** Feedforward for the current setpoint. */
+    public double getFeedforwardVolts() {
+        return feedforwardVolts(setpoint.position, setpoint.velocity, acceleration);
+    }
+}
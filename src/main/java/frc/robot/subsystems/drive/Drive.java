@@ -16,10 +16,13 @@ package frc.robot.subsystems.drive;
 import static edu.wpi.first.units.Units.Volts;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.networktables.LoggedDashboardBoolean;
 
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.config.PIDConstants;
@@ -29,21 +32,25 @@ import com.pathplanner.lib.pathfinding.Pathfinding;
 import com.pathplanner.lib.util.DriveFeedforwards;
 import com.pathplanner.lib.util.PathPlannerLogging;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.interpolation.TimeInterpolatableBuffer;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.BuiltInAccelerometer;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
@@ -53,6 +60,7 @@ import frc.robot.LimelightHelpers.LimelightTarget_Fiducial;
 import frc.robot.util.AllianceFlipUtil;
 import frc.robot.util.EqualsUtil;
 import frc.robot.util.LocalADStarAK;
+import frc.robot.util.LoggingPolicy;
 import frc.robot.util.SwerveSetpoint;
 
 
@@ -64,16 +72,27 @@ public class Drive extends SubsystemBase {
       Math.hypot(TRACK_WIDTH_X / 2.0, TRACK_WIDTH_Y / 2.0);
   private static final double MAX_ANGULAR_SPEED = MAX_LINEAR_SPEED / DRIVE_BASE_RADIUS;
 
+  // Obstacle sizes for driver Limelight detections
+  private static final int NOTE_CLASS_ID = 0;
+  private static final double NOTE_OBSTACLE_RADIUS = 0.25;
+  private static final double ROBOT_OBSTACLE_RADIUS = 0.6;
+
+  // Odometry weight of a slipping wheel's measured distance
+  private static final double SLIPPING_ODOMETRY_WEIGHT = 0.2;
+
   private final GyroIO gyroIO;
   private final GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
 
   private final VisionIO visionIO;
   private final VisionIOInputsAutoLogged visionInputs = new VisionIOInputsAutoLogged();
 
-  private BuiltInAccelerometer accelerometer = new BuiltInAccelerometer();
-
   private final SysIdRoutine sysId;
 
+  // Switch to compare tracking between the motor controller and roboRIO closed loops. Off until the
+  // onboard gains have been A/B tested on the robot.
+  private final LoggedDashboardBoolean onboardModuleControl =
+      new LoggedDashboardBoolean("Drive/OnboardModuleControl", false);
+
   private final Module[] modules = new Module[4]; // FL, FR, BL, BR
   private boolean[] turnCANDisconnect = new boolean[4];
   private boolean[] driveCANDisconnect = new boolean[4];
@@ -102,9 +121,35 @@ public class Drive extends SubsystemBase {
         new SwerveModulePosition()
       };
 
+  // Wheel distances fed to the pose estimator, with slipping wheels weighted down
+  private SwerveModulePosition[] odometryPositions =
+      new SwerveModulePosition[] {
+        new SwerveModulePosition(),
+        new SwerveModulePosition(),
+        new SwerveModulePosition(),
+        new SwerveModulePosition()
+      };
+  private final SlipDetector slipDetector = new SlipDetector(getModuleTranslations());
+
   private SwerveDrivePoseEstimator m_poseEstimator =
     new SwerveDrivePoseEstimator(kinematics, rawGyroRotation, lastModulePositions, new Pose2d());
 
+  private final LocalADStarAK pathfinder = new LocalADStarAK();
+
+  // Recent poses, so detections can be placed where the robot was when the frame was captured
+  private final TimeInterpolatableBuffer<Pose2d> poseHistory = TimeInterpolatableBuffer.createBuffer(1.0);
+  private double lastObstacleFrameTimestamp = Double.NEGATIVE_INFINITY;
+  private final NoteTracker noteTracker = new NoteTracker();
+
+  // Measured period of the last loop, used to discretize chassis speeds
+  private double loopPeriodSecs = 0.02;
+  private double lastPeriodicTimestamp = Double.NaN;
+  // Latest target pose of the path being followed, null when no path is running
+  private Pose2d pathTargetPose = null;
+
+  // Moves the physics sim robot along with odometry resets, no-op on the real robot
+  private Consumer<Pose2d> simulationPoseResetter = pose -> {};
+
 
   //CHANGE THE NUMBERS IN THE VECTOR BUILDER
   // private static final Vector<N3> visionMeasurementStdDevs = VecBuilder.fill(0.5, 0.5, Units.degreesToRadians(10));
@@ -150,15 +195,19 @@ public class Drive extends SubsystemBase {
         config,
         () -> AllianceFlipUtil.shouldFlip(),
         this);
-    Pathfinding.setPathfinder(new LocalADStarAK());
+    Pathfinding.setPathfinder(pathfinder);
     PathPlannerLogging.setLogActivePathCallback(
         (activePath) -> {
-          Logger.recordOutput(
+          LoggingPolicy.record(
               "Odometry/Trajectory", activePath.toArray(new Pose2d[activePath.size()]));
+          if (activePath.isEmpty()) {
+            pathTargetPose = null;
+          }
         });
     PathPlannerLogging.setLogTargetPoseCallback(
         (targetPose) -> {
           Logger.recordOutput("Odometry/TrajectorySetpoint", targetPose);
+          pathTargetPose = targetPose;
         });
 
     sysId = 
@@ -183,6 +232,13 @@ public class Drive extends SubsystemBase {
   }
 
   public void periodic() {
+    double timestamp = Timer.getFPGATimestamp();
+    if (!Double.isNaN(lastPeriodicTimestamp)) {
+      loopPeriodSecs = MathUtil.clamp(timestamp - lastPeriodicTimestamp, 0.005, 0.1);
+    }
+    lastPeriodicTimestamp = timestamp;
+    Logger.recordOutput("Drive/LoopPeriodSecs", loopPeriodSecs);
+
     gyroIO.updateInputs(gyroInputs);
     Logger.processInputs("Drive/Gyro", gyroInputs);
 
@@ -190,6 +246,7 @@ public class Drive extends SubsystemBase {
     Logger.processInputs("Vision/Limelight", visionInputs);
 
     for (var module : modules) {
+      module.setOnboardControl(onboardModuleControl.get());
       module.periodic();
     }
 
@@ -201,34 +258,60 @@ public class Drive extends SubsystemBase {
     }
     // Log empty setpoint states when disabled
     if (DriverStation.isDisabled()) {
-      Logger.recordOutput("SwerveStates/Setpoints", new SwerveModuleState[] {});
-      Logger.recordOutput("SwerveStates/SetpointsOptimized", new SwerveModuleState[] {});
+      LoggingPolicy.record("SwerveStates/Setpoints", new SwerveModuleState[] {});
+      LoggingPolicy.record("SwerveStates/SetpointsOptimized", new SwerveModuleState[] {});
     }
 
+    // Update gyro angle
+    if (gyroInputs.connected) {
+      // Use the real gyro angle
+      rawGyroRotation = gyroInputs.yawPosition;
+    }
+
+    // Check each wheel for slip against the chassis motion from the gyro and accelerometer
+    SwerveModuleState[] moduleStates = getModuleStates();
+    LoggingPolicy.record("SwerveStates/Measured", moduleStates);
+    slipDetector.update(
+        moduleStates,
+        gyroInputs.connected
+            ? gyroInputs.yawVelocityRadPerSec
+            : kinematics.toChassisSpeeds(moduleStates).omegaRadiansPerSecond,
+        gyroInputs.accelXMetersPerSecSq,
+        gyroInputs.accelYMetersPerSecSq,
+        loopPeriodSecs);
+
     // Read wheel positions and deltas from each module
+    // A slipping wheel's distance is mostly replaced by the distance the chassis estimate says it
+    // covered, so it doesn't drag the odometry along with it
     SwerveModulePosition[] modulePositions = getModulePositions();
     SwerveModulePosition[] moduleDeltas = new SwerveModulePosition[4];
     for (int moduleIndex = 0; moduleIndex < 4; moduleIndex++) {
+      double measuredDelta =
+          modulePositions[moduleIndex].distanceMeters
+              - lastModulePositions[moduleIndex].distanceMeters;
+      double weight = slipDetector.isSlipping(moduleIndex) ? SLIPPING_ODOMETRY_WEIGHT : 1.0;
       moduleDeltas[moduleIndex] =
           new SwerveModulePosition(
-              modulePositions[moduleIndex].distanceMeters
-                  - lastModulePositions[moduleIndex].distanceMeters,
+              weight * measuredDelta
+                  + (1.0 - weight) * slipDetector.getGroundSpeed(moduleIndex) * loopPeriodSecs,
               modulePositions[moduleIndex].angle);
       lastModulePositions[moduleIndex] = modulePositions[moduleIndex];
+      odometryPositions[moduleIndex] =
+          new SwerveModulePosition(
+              odometryPositions[moduleIndex].distanceMeters + moduleDeltas[moduleIndex].distanceMeters,
+              modulePositions[moduleIndex].angle);
+      modules[moduleIndex].setTractionState(
+          slipDetector.isSlipping(moduleIndex), slipDetector.getGroundSpeed(moduleIndex), loopPeriodSecs);
     }
 
-    // Update gyro angle
-    if (gyroInputs.connected) {
-      // Use the real gyro angle
-      rawGyroRotation = gyroInputs.yawPosition;
-    } else {
+    if (!gyroInputs.connected) {
       // Use the angle delta from the kinematics and module deltas
       Twist2d twist = kinematics.toTwist2d(moduleDeltas);
       rawGyroRotation = rawGyroRotation.plus(new Rotation2d(twist.dtheta));
     }
 
 
-    m_poseEstimator.update(rawGyroRotation, modulePositions);
+    m_poseEstimator.update(rawGyroRotation, odometryPositions);
     LimelightHelpers.SetRobotOrientation(Constants.VISION_LIMELIGHT, getPose().getRotation().getDegrees(), 0, 0, 0, 0, 0);
 
     if(Math.abs(Units.radiansToDegrees(gyroInputs.yawVelocityRadPerSec)) < 720 && visionInputs.mt2TagCount > 0){
@@ -236,9 +319,59 @@ public class Drive extends SubsystemBase {
       m_poseEstimator.addVisionMeasurement(visionInputs.mt2Pose, visionInputs.mt2Timestamp);
     }
 
+    poseHistory.addSample(Timer.getFPGATimestamp(), getPose());
+    Optional<Pose2d> poseAtCapture = poseHistory.getSample(visionInputs.detectionTimestamp);
+    noteTracker.update(visionInputs, poseAtCapture, getPose(), Timer.getFPGATimestamp());
+
+    // Feed new vision detections to the pathfinder as dynamic obstacles, placed from where the
+    // robot was when the frame was captured
+    boolean newDetectionFrame = visionInputs.detectionTimestamp > lastObstacleFrameTimestamp;
+    lastObstacleFrameTimestamp = visionInputs.detectionTimestamp;
+    for (int i = 0;
+        i < visionInputs.detectionClassIds.length && newDetectionFrame && poseAtCapture.isPresent();
+        i++) {
+      Translation2d obstacle =
+          projectDetectionToField(visionInputs.detectionTx[i], visionInputs.detectionTy[i], poseAtCapture.get());
+      if (obstacle != null) {
+        pathfinder.addObstacle(
+            obstacle,
+            visionInputs.detectionClassIds[i] == NOTE_CLASS_ID ? NOTE_OBSTACLE_RADIUS : ROBOT_OBSTACLE_RADIUS,
+            visionInputs.detectionTimestamp);
+      }
+    }
+    pathfinder.updateObstacles(getPose().getTranslation(), Timer.getFPGATimestamp());
+
+    // Large or rarely changing outputs, rate limited or only logged on change
+    LoggingPolicy.record("Odometry/Robot 3d", get3dPose());
+    LoggingPolicy.record("Drive/Turn CAN Disconnect", getTurnDisconnect());
+    LoggingPolicy.record("Drive/Drive CAN Disconnect", getDriveDisconnect());
+    LoggingPolicy.record("Drive/Max Angular Speed Rad per s", getMaxAngularSpeedRadPerSec());
+
     // I wonder if we had a command factory for a note align inside of drive bc of IO later stuf???
   }
 
+  /**
+   * Projects a driver Limelight detection onto the floor.
+   *
+   * @param txDeg Horizontal angle, positive right
+   * @param tyDeg Vertical angle, positive up
+   * @param robotPose Robot pose when the frame was captured
+   * @return Field position of the detection, or null if it is above the horizon
+   */
+  private Translation2d projectDetectionToField(double txDeg, double tyDeg, Pose2d robotPose) {
+    Translation3d ray =
+        new Translation3d(1.0, -Math.tan(Units.degreesToRadians(txDeg)), Math.tan(Units.degreesToRadians(tyDeg)))
+            .rotateBy(Constants.ROBOT_TO_NOTE_CAMERA.getRotation());
+    if (ray.getZ() >= 0.0) {
+      return null;
+    }
+    Translation3d camera = Constants.ROBOT_TO_NOTE_CAMERA.getTranslation();
+    double scale = -camera.getZ() / ray.getZ();
+    Translation2d robotRelative =
+        new Translation2d(camera.getX() + ray.getX() * scale, camera.getY() + ray.getY() * scale);
+    return robotPose.transformBy(new Transform2d(robotRelative, new Rotation2d())).getTranslation();
+  }
+
   /**
    * 
    * @return Ideal rotation to speaker opening
@@ -256,8 +389,18 @@ public class Drive extends SubsystemBase {
    * @param speeds Speeds in meters/sec
    */
   public void runVelocity(ChassisSpeeds speeds) {
-    // Calculate module setpoints
-    ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(speeds, 0.02);
+    runVelocity(speeds, new double[4]);
+  }
+
+  /**
+   * Runs the drive at the desired velocity with module force feedforward.
+   *
+   * @param speeds Speeds in meters/sec
+   * @param moduleForcesNewtons Force each wheel should push with along its direction, FL, FR, BL, BR
+   */
+  private void runVelocity(ChassisSpeeds speeds, double[] moduleForcesNewtons) {
+    // Calculate module setpoints, discretized over the loop period that was actually measured
+    ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(speeds, loopPeriodSecs);
     SwerveModuleState[] setpointStates = kinematics.toSwerveModuleStates(discreteSpeeds);
     SwerveDriveKinematics.desaturateWheelSpeeds(setpointStates, MAX_LINEAR_SPEED);
 
@@ -265,36 +408,39 @@ public class Drive extends SubsystemBase {
     SwerveModuleState[] optimizedSetpointStates = new SwerveModuleState[4];
     for (int i = 0; i < 4; i++) {
       // The module returns the optimized state, useful for logging
-      optimizedSetpointStates[i] = modules[i].runSetpoint(setpointStates[i]);
+      optimizedSetpointStates[i] = modules[i].runSetpoint(setpointStates[i], moduleForcesNewtons[i]);
     }
 
     // Log setpoint states
-    Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
-    Logger.recordOutput("SwerveStates/SetpointsOptimized", optimizedSetpointStates);
+    LoggingPolicy.record("SwerveStates/Setpoints", setpointStates);
+    LoggingPolicy.record("SwerveStates/SetpointsOptimized", optimizedSetpointStates);
   }
 
   /**
-   * Runs the drive at the desired velocity. PP Lib docs say that feedforward is optional, but only one AutoBuilder.Configure() function exists
+   * Runs the drive at the desired velocity from PathPlanner, with the module forces it computed as
+   * feedforward, and logs how well the path is being tracked.
    *
-   * @param speeds
-   * @param feedforwards
+   * @param speeds Robot relative speeds in meters/sec
+   * @param feedforwards Module feedforwards from the path's trajectory
    */
   public void runVelocityFeedFwd(ChassisSpeeds speeds, DriveFeedforwards feedforwards) {
-    // Calculate module setpoints
-    ChassisSpeeds discreteSpeeds = ChassisSpeeds.discretize(speeds, 0.02);
-    SwerveModuleState[] setpointStates = kinematics.toSwerveModuleStates(discreteSpeeds);
-    SwerveDriveKinematics.desaturateWheelSpeeds(setpointStates, MAX_LINEAR_SPEED);
-
-    // Send setpoints to modules
-    SwerveModuleState[] optimizedSetpointStates = new SwerveModuleState[4];
-    for (int i = 0; i < 4; i++) {
-      // The module returns the optimized state, useful for logging
-      optimizedSetpointStates[i] = modules[i].runSetpoint(setpointStates[i]);
+    runVelocity(speeds, feedforwards.linearForcesNewtons());
+
+    if (pathTargetPose != null) {
+      Pose2d pose = getPose();
+      ChassisSpeeds measured = kinematics.toChassisSpeeds(getModuleStates());
+      Logger.recordOutput(
+          "Drive/PathTracking/TranslationErrorMeters",
+          pose.getTranslation().getDistance(pathTargetPose.getTranslation()));
+      Logger.recordOutput(
+          "Drive/PathTracking/RotationErrorDeg",
+          pose.getRotation().minus(pathTargetPose.getRotation()).getDegrees());
+      Logger.recordOutput(
+          "Drive/PathTracking/VelocityErrorMPS",
+          Math.hypot(
+              speeds.vxMetersPerSecond - measured.vxMetersPerSecond,
+              speeds.vyMetersPerSecond - measured.vyMetersPerSecond));
     }
-
-    // Log setpoint states
-    Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
-    Logger.recordOutput("SwerveStates/SetpointsOptimized", optimizedSetpointStates);
   }
 
   /** Stops the drive. */
@@ -336,13 +482,21 @@ public class Drive extends SubsystemBase {
     return Arrays.stream(modules).mapToDouble(Module::getPositionRads).toArray();
   }
 
+  /** Returns the raw gyro yaw in radians, not fused with odometry or vision. */
+  public double getGyroYawRads() {
+    return gyroInputs.yawPosition.getRadians();
+  }
+
+  public boolean isGyroConnected() {
+    return gyroInputs.connected;
+  }
+
   /** Method to just spin in a circle */
   public void runWheelRadiusCharacterization(double omegaSpeed) {
     runVelocity(new ChassisSpeeds(0.0, 0.0, omegaSpeed));
   }
 
   /** Returns the module states (turn angles and drive velocities) for all of the modules. */
-  @AutoLogOutput(key = "SwerveStates/Measured")
   private SwerveModuleState[] getModuleStates() {
     SwerveModuleState[] states = new SwerveModuleState[4];
     for (int i = 0; i < 4; i++) {
@@ -351,6 +505,16 @@ public class Drive extends SubsystemBase {
     return states;
   }
 
+  /** Returns the tracked note that is cheapest to drive to and intake, if one is in sight. */
+  public Optional<Translation2d> getBestNote() {
+    return noteTracker.getBestTarget();
+  }
+
+  /** Returns every confirmed note the driver Limelight is tracking. */
+  public List<Translation2d> getTrackedNotes() {
+    return noteTracker.getNotes();
+  }
+
   /** Returns the current odometry pose. */
   @AutoLogOutput(key = "Odometry/Robot")
   public Pose2d getPose() {
@@ -358,7 +522,6 @@ public class Drive extends SubsystemBase {
     return m_poseEstimator.getEstimatedPosition();
   }
 
-  @AutoLogOutput(key = "Odometry/Robot 3d")
   public Pose3d get3dPose() {
     return new Pose3d(m_poseEstimator.getEstimatedPosition());
   }
@@ -379,7 +542,15 @@ public class Drive extends SubsystemBase {
 
   /** Resets the current odometry pose. */
   public void setPose(Pose2d pose) {
-    m_poseEstimator.resetPosition(rawGyroRotation, getModulePositions(), pose);
+    m_poseEstimator.resetPosition(rawGyroRotation, odometryPositions, pose);
+    poseHistory.clear();
+    noteTracker.clear();
+    simulationPoseResetter.accept(pose);
+  }
+
+  /** Sets a callback that moves the physics sim robot whenever the odometry pose is reset. */
+  public void setSimulationPoseResetter(Consumer<Pose2d> resetter) {
+    simulationPoseResetter = resetter;
   }
 
     /**
@@ -392,7 +563,6 @@ public class Drive extends SubsystemBase {
     m_poseEstimator.addVisionMeasurement(visionPose, timestamp);
   }
 
-  @AutoLogOutput(key = "Drive/Turn CAN Disconnect")
   public boolean[] getTurnDisconnect(){
     int i = 0;
     for(var module : modules){
@@ -402,7 +572,6 @@ public class Drive extends SubsystemBase {
     return turnCANDisconnect;
   }
 
-  @AutoLogOutput(key = "Drive/Drive CAN Disconnect")
   public boolean[] getDriveDisconnect(){
     int i = 0;
     for(var module : modules){
@@ -426,7 +595,6 @@ public class Drive extends SubsystemBase {
   }
 
   /** Returns the maximum angular speed in radians per sec. */
-  @AutoLogOutput(key = "Drive/Max Angular Speed Rad per s")
   public double getMaxAngularSpeedRadPerSec() {
     return MAX_ANGULAR_SPEED;
   }
@@ -482,6 +650,27 @@ public class Drive extends SubsystemBase {
     return getSpeakerPose().getTranslation().getDistance(getPose().getTranslation());
   }
 
+  /** Returns the measured chassis speeds relative to the field. */
+  public ChassisSpeeds getFieldVelocity() {
+    return ChassisSpeeds.fromRobotRelativeSpeeds(
+        kinematics.toChassisSpeeds(getModuleStates()), getRotation());
+  }
+
+  /**
+   * How fast the robot is approaching the speaker opening
+   * @return meters per second toward the speaker, negative when driving away
+   */
+  public double getSpeakerClosingVelocity() {
+    Translation2d toSpeaker = getSpeakerPose().getTranslation().minus(getPose().getTranslation());
+    double distance = toSpeaker.getNorm();
+    if (distance < 1e-6) {
+      return 0.0;
+    }
+    ChassisSpeeds velocity = getFieldVelocity();
+    return (velocity.vxMetersPerSecond * toSpeaker.getX() + velocity.vyMetersPerSecond * toSpeaker.getY())
+        / distance;
+  }
+
   public double getRotationFromSpeaker(){
     
     //using the convention of 0 facing forward on blue origin(facing red) and 0 facing forward on red is facing blue wall
@@ -22,6 +22,9 @@ public interface GyroIO {
     public boolean connected = false;
     public Rotation2d yawPosition = new Rotation2d();
     public double yawVelocityRadPerSec = 0.0;
+    // Robot relative, forward and leftward
+    public double accelXMetersPerSecSq = 0.0;
+    public double accelYMetersPerSecSq = 0.0;
   }
 
   public default void updateInputs(GyroIOInputs inputs) {}
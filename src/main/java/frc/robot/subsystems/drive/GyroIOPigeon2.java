@@ -22,14 +22,18 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.measure.Angle;
 import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.wpilibj.BuiltInAccelerometer;
 
-/** IO implementation for Pigeon2 */
+/** IO implementation for Pigeon2, with the acceleration from the roboRIO accelerometer */
 public class GyroIOPigeon2 implements GyroIO {
   private final Pigeon2 pigeon = new Pigeon2(20);
   private final StatusSignal<Angle> yaw = pigeon.getYaw();
   private final StatusSignal<AngularVelocity> yawVelocity = pigeon.getAngularVelocityZWorld();
+  private final BuiltInAccelerometer accelerometer = new BuiltInAccelerometer();
   private boolean connected = false;
 
+  private static final double GRAVITY = 9.80665;
+
   public GyroIOPigeon2() {
     pigeon.getConfigurator().apply(new Pigeon2Configuration());
     pigeon.getConfigurator().setYaw(0.0);
@@ -44,6 +48,8 @@ public class GyroIOPigeon2 implements GyroIO {
     connected = inputs.connected;
     inputs.yawPosition = Rotation2d.fromDegrees(yaw.getValueAsDouble());
     inputs.yawVelocityRadPerSec = Units.degreesToRadians(yawVelocity.getValueAsDouble());
+    inputs.accelXMetersPerSecSq = accelerometer.getX() * GRAVITY;
+    inputs.accelYMetersPerSecSq = accelerometer.getY() * GRAVITY;
 
   }
 
@@ -0,0 +1,23 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+/** Physics sim implementation of gyro IO, reads the heading from the chassis simulation. */
+public class GyroIOSim implements GyroIO {
+  private final SwerveDriveSimulation simulation;
+
+  public GyroIOSim(SwerveDriveSimulation simulation) {
+    this.simulation = simulation;
+  }
+
+  @Override
+  public void updateInputs(GyroIOInputs inputs) {
+    inputs.connected = true;
+    inputs.yawPosition = simulation.getGyroYaw();
+    inputs.yawVelocityRadPerSec = simulation.getGyroYawVelocityRadPerSec();
+    inputs.accelXMetersPerSecSq = simulation.getAccelXMetersPerSecSq();
+    inputs.accelYMetersPerSecSq = simulation.getAccelYMetersPerSecSq();
+  }
+}
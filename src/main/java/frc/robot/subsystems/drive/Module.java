@@ -17,16 +17,28 @@ import org.littletonrobotics.junction.Logger;
 
 import com.ctre.phoenix6.hardware.TalonFX;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
 import frc.robot.Constants;
+import frc.robot.util.FeedforwardEstimator;
 
 public class Module {
-  private static final double WHEEL_RADIUS = Units.inchesToMeters(2.45);
+  // Measure with WheelRadiusCharacterization and commit the result here
+  static final double WHEEL_RADIUS = Units.inchesToMeters(2.45);
+
+  // Traction control, how far the wheel may run ahead of the ground and how fast it may accelerate
+  private static final double TRACTION_SLIP_MARGIN_MPS = 0.25;
+  private static final double TRACTION_MAX_ACCEL_MPS2 = 6.0;
+  private static final int TRACTION_HOLD_LOOPS = 10;
+
+  // Drive motor through the L2 reduction, converts wheel force feedforward to volts
+  private static final DCMotor DRIVE_MOTOR = DCMotor.getKrakenX60(1).withReduction(6.75);
 
   private final ModuleIO io;
   private final ModuleIOInputsAutoLogged inputs = new ModuleIOInputsAutoLogged();
@@ -35,11 +47,22 @@ public class Module {
   private final SimpleMotorFeedforward driveFeedforward;
   private final PIDController driveFeedback;
   private final PIDController turnFeedback;
+  private final FeedforwardEstimator feedforwardEstimator;
   private Rotation2d angleSetpoint = null; // Setpoint for closed loop control, null for open loop
   private Double speedSetpoint = null; // Setpoint for closed loop control, null for open loop
+  private double forceFeedforwardVolts = 0.0; // Extra voltage to push the wheel with a planned force
   private Rotation2d turnRelativeOffset = null; // Relative + Offset = Absolute
   private double lastPositionMeters = 0.0; // Used for delta calculation
 
+  private boolean slipping = false;
+  private double groundSpeedMetersPerSec = 0.0;
+  private int tractionHoldLoops = 0;
+  private double tractionPeriodSecs = 0.02;
+  private double lastCommandedSpeed = 0.0;
+
+  // Run the closed loops on the motor controllers when the IO supports it
+  private boolean onboardControl = false;
+
   public Module(ModuleIO io, int index) {
     this.io = io;
     this.index = index;
@@ -66,6 +89,8 @@ public class Module {
     }
 
     turnFeedback.enableContinuousInput(-Math.PI, Math.PI);
+    feedforwardEstimator =
+        new FeedforwardEstimator("Drive/Module" + Integer.toString(index) + "/FeedforwardEstimate", 1.0);
     setBrakeMode(true);
   }
 
@@ -73,16 +98,31 @@ public class Module {
     io.updateInputs(inputs);
     Logger.processInputs("Drive/Module" + Integer.toString(index), inputs);
 
+    // A slipping wheel doesn't load the motor like the rest of the drive, leave it out of the fit
+    if (!slipping) {
+      feedforwardEstimator.update(inputs.driveAppliedVolts, inputs.driveVelocityRadPerSec);
+    }
+
     // On first cycle, reset relative turn encoder
     // Wait until absolute angle is nonzero in case it wasn't initialized yet
     if (turnRelativeOffset == null && inputs.turnAbsolutePosition.getRadians() != 0.0) {
       turnRelativeOffset = inputs.turnAbsolutePosition.minus(inputs.turnPosition);
     }
 
+    boolean onboard = onboardControl && io.supportsOnboardControl() && turnRelativeOffset != null;
+    Logger.recordOutput("Drive/Module" + Integer.toString(index) + "/OnboardControl", onboard);
+
     // Run closed loop turn control
     if (angleSetpoint != null) {
-      io.setTurnVoltage(
-          turnFeedback.calculate(getAngle().getRadians(), angleSetpoint.getRadians()));
+      double turnErrorRad = angleSetpoint.minus(getAngle()).getRadians();
+      if (onboard) {
+        // The controller works in its own relative encoder frame
+        io.setTurnPosition(angleSetpoint.minus(turnRelativeOffset));
+      } else {
+        io.setTurnVoltage(
+            turnFeedback.calculate(getAngle().getRadians(), angleSetpoint.getRadians()));
+      }
+      Logger.recordOutput("Drive/Module" + Integer.toString(index) + "/TurnErrorRad", turnErrorRad);
 
       // Run closed loop drive control
       // Only allowed if closed loop turn control is running
@@ -92,23 +132,92 @@ public class Module {
         // When the error is 90°, the velocity setpoint should be 0. As the wheel turns
         // towards the setpoint, its velocity should increase. This is achieved by
         // taking the component of the velocity in the direction of the setpoint.
-        double adjustSpeedSetpoint = speedSetpoint * Math.cos(turnFeedback.getError());
+        double adjustSpeedSetpoint = speedSetpoint * Math.cos(turnErrorRad);
+
+        // Traction control
+        //
+        // While the wheel slips, keep it close to the ground speed so it grips again, then ramp
+        // back up to the setpoint with limited acceleration for a few loops.
+        if (tractionHoldLoops > 0) {
+          double maxStep = TRACTION_MAX_ACCEL_MPS2 * tractionPeriodSecs;
+          adjustSpeedSetpoint =
+              MathUtil.clamp(adjustSpeedSetpoint, lastCommandedSpeed - maxStep, lastCommandedSpeed + maxStep);
+          if (slipping) {
+            adjustSpeedSetpoint =
+                MathUtil.clamp(
+                    adjustSpeedSetpoint,
+                    groundSpeedMetersPerSec - TRACTION_SLIP_MARGIN_MPS,
+                    groundSpeedMetersPerSec + TRACTION_SLIP_MARGIN_MPS);
+          }
+          tractionHoldLoops--;
+        }
+        lastCommandedSpeed = adjustSpeedSetpoint;
+        Logger.recordOutput("Drive/Module" + Integer.toString(index) + "/TractionLimited", tractionHoldLoops > 0);
 
         // Run drive controller
         double velocityRadPerSec = adjustSpeedSetpoint / WHEEL_RADIUS;
-        io.setDriveVoltage(
-            driveFeedforward.calculate(velocityRadPerSec)
-                + driveFeedback.calculate(inputs.driveVelocityRadPerSec, velocityRadPerSec));
+        double feedforwardVolts =
+            driveFeedforward.calculate(velocityRadPerSec) + forceFeedforwardVolts * Math.cos(turnErrorRad);
+        if (onboard) {
+          io.setDriveVelocity(velocityRadPerSec, feedforwardVolts);
+        } else {
+          io.setDriveVoltage(
+              feedforwardVolts + driveFeedback.calculate(inputs.driveVelocityRadPerSec, velocityRadPerSec));
+        }
+        Logger.recordOutput(
+            "Drive/Module" + Integer.toString(index) + "/DriveVelocityErrorRadPerSec",
+            velocityRadPerSec - inputs.driveVelocityRadPerSec);
       }
     }
   }
 
+  /**
+   * Sets the slip state from {@link SlipDetector}, used by traction control on the next loop.
+   *
+   * @param slipping Whether the wheel is slipping
+   * @param groundSpeedMetersPerSec Speed the wheel would have without slip
+   * @param loopPeriodSecs Measured loop period, limits the acceleration while ramping back up
+   */
+  public void setTractionState(boolean slipping, double groundSpeedMetersPerSec, double loopPeriodSecs) {
+    this.slipping = slipping;
+    this.groundSpeedMetersPerSec = groundSpeedMetersPerSec;
+    this.tractionPeriodSecs = loopPeriodSecs;
+    if (slipping) {
+      tractionHoldLoops = TRACTION_HOLD_LOOPS;
+    }
+  }
+
+  /**
+   * Selects where the closed loops run. Onboard control sends velocity and position setpoints to
+   * the motor controllers, saving a loop of latency. IO implementations without it, like sim and
+   * replay, always run the loops here.
+   */
+  public void setOnboardControl(boolean enabled) {
+    onboardControl = enabled;
+  }
+
   /** Runs the module with the specified setpoint state. Returns the optimized state. */
   public SwerveModuleState runSetpoint(SwerveModuleState state) {
+    return runSetpoint(state, 0.0);
+  }
+
+  /**
+   * Runs the module with the specified setpoint state and the force the wheel should push with
+   * along it, e.g. from a PathPlanner trajectory. Returns the optimized state.
+   */
+  public SwerveModuleState runSetpoint(SwerveModuleState state, double forceNewtons) {
     // Optimize state based on current angle
     // Controllers run in "periodic" when the setpoint is not null
+    Rotation2d unoptimizedAngle = state.angle;
     state.optimize(getAngle());
 
+    // Optimizing flips the wheel instead of turning it past 90°, so the force flips with it
+    if (Math.abs(state.angle.minus(unoptimizedAngle).getDegrees()) > 90.0) {
+      forceNewtons = -forceNewtons;
+    }
+    // Only the current needed for the torque, back EMF is covered by the velocity feedforward
+    forceFeedforwardVolts = DRIVE_MOTOR.getVoltage(forceNewtons * WHEEL_RADIUS, 0.0);
+
     // Update setpoints, controllers run in "periodic"
     angleSetpoint = state.angle;
     speedSetpoint = state.speedMetersPerSecond;
@@ -134,6 +243,8 @@ public class Module {
     // Disable closed loop control for turn and drive
     angleSetpoint = null;
     speedSetpoint = null;
+    forceFeedforwardVolts = 0.0;
+    lastCommandedSpeed = 0.0;
   }
 
   /** Sets whether brake mode is enabled. */
@@ -42,6 +42,20 @@ public interface ModuleIO {
   /** Run the turn motor at the specified voltage. */
   public default void setTurnVoltage(double volts) {}
 
+  /**
+   * Run the drive motor at the specified velocity with the motor controller's closed loop.
+   *
+   * @param velocityRadPerSec Wheel velocity setpoint
+   * @param feedforwardVolts Feedforward added to the controller output
+   */
+  public default void setDriveVelocity(double velocityRadPerSec, double feedforwardVolts) {}
+
+  /** Run the turn motor to the specified position, relative to its encoder's zero, with the motor controller's closed loop. */
+  public default void setTurnPosition(Rotation2d position) {}
+
+  /** Returns true if this implementation supports setDriveVelocity and setTurnPosition. */
+  public default boolean supportsOnboardControl() {return false;}
+
   /** Enable or disable brake mode on the drive motor. */
   public default void setDriveBrakeMode(boolean enable) {}
 
@@ -15,54 +15,49 @@ package frc.robot.subsystems.drive;
 
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.system.plant.DCMotor;
-import edu.wpi.first.math.system.plant.LinearSystemId;
-import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 
 /**
  * Physics sim implementation of module IO.
  *
- * <p>Uses two flywheel sims for the drive and turn motors, with the absolute position initialized
- * to a random value. The flywheel sims are not physically accurate, but provide a decent
- * approximation for the behavior of the module.
+ * <p>Reads the module state from the shared {@link SwerveDriveSimulation}, which couples the
+ * four modules through tire friction and the chassis. The wheels start at random angles there, so
+ * the absolute and relative encoders disagree at startup like on the robot.
  */
 public class ModuleIOSim implements ModuleIO {
-  private static final double LOOP_PERIOD_SECS = 0.02;
+  private final SwerveDriveSimulation simulation;
+  private final int index;
 
-  private DCMotorSim driveSim = new DCMotorSim(LinearSystemId.createDCMotorSystem(DCMotor.getFalcon500(1), 0.1 ,6.75), DCMotor.getFalcon500(1));
-  private DCMotorSim turnSim = new DCMotorSim(LinearSystemId.createDCMotorSystem(DCMotor.getNEO(1), 0.1 ,21.428), DCMotor.getFalcon500(1));
-
-  private final Rotation2d turnAbsoluteInitPosition = new Rotation2d(Math.random() * 2.0 * Math.PI);
   private double driveAppliedVolts = 0.0;
   private double turnAppliedVolts = 0.0;
 
+  public ModuleIOSim(SwerveDriveSimulation simulation, int index) {
+    this.simulation = simulation;
+    this.index = index;
+  }
+
   @Override
   public void updateInputs(ModuleIOInputs inputs) {
-    driveSim.update(LOOP_PERIOD_SECS);
-    turnSim.update(LOOP_PERIOD_SECS);
-
-    inputs.drivePositionRad = driveSim.getAngularPositionRad();
-    inputs.driveVelocityRadPerSec = driveSim.getAngularVelocityRadPerSec();
+    inputs.drivePositionRad = simulation.getDrivePositionRad(index);
+    inputs.driveVelocityRadPerSec = simulation.getDriveVelocityRadPerSec(index);
     inputs.driveAppliedVolts = driveAppliedVolts;
-    inputs.driveCurrentAmps = Math.abs(driveSim.getCurrentDrawAmps());
+    inputs.driveCurrentAmps = simulation.getDriveCurrentAmps(index);
 
-    inputs.turnAbsolutePosition =
-        new Rotation2d(turnSim.getAngularPositionRad()).plus(turnAbsoluteInitPosition);
-    inputs.turnPosition = new Rotation2d(turnSim.getAngularPositionRad());
-    inputs.turnVelocityRadPerSec = turnSim.getAngularVelocityRadPerSec();
+    inputs.turnAbsolutePosition = new Rotation2d(simulation.getTurnAbsolutePositionRad(index));
+    inputs.turnPosition = new Rotation2d(simulation.getTurnPositionRad(index));
+    inputs.turnVelocityRadPerSec = simulation.getTurnVelocityRadPerSec(index);
     inputs.turnAppliedVolts = turnAppliedVolts;
-    inputs.turnCurrentAmps = Math.abs(turnSim.getCurrentDrawAmps());
+    inputs.turnCurrentAmps = simulation.getTurnCurrentAmps(index);
   }
 
   @Override
   public void setDriveVoltage(double volts) {
     driveAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-    driveSim.setInputVoltage(driveAppliedVolts);
+    simulation.setDriveVoltage(index, driveAppliedVolts);
   }
 
   @Override
   public void setTurnVoltage(double volts) {
     turnAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
-    turnSim.setInputVoltage(turnAppliedVolts);
+    simulation.setTurnVoltage(index, turnAppliedVolts);
   }
-}
\ No newline at end of file
+}
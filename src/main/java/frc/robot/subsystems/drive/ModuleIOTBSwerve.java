@@ -9,6 +9,7 @@ import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.CANcoderConfiguration;
 import com.ctre.phoenix6.configs.MotorOutputConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.VelocityVoltage;
 import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.CANcoder;
 import com.ctre.phoenix6.hardware.TalonFX;
@@ -16,11 +17,14 @@ import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.spark.SparkBase;
+import com.revrobotics.spark.SparkBase.ControlType;
+import com.revrobotics.spark.SparkClosedLoopController;
 import com.revrobotics.spark.SparkLowLevel.MotorType;
 import com.revrobotics.spark.SparkMax;
 import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
 import com.revrobotics.spark.config.SparkMaxConfig;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.units.measure.Angle;
@@ -40,6 +44,12 @@ public class ModuleIOTBSwerve implements ModuleIO {
     private static final double DRIVE_GEAR_RATIO = (50.0 / 14.0) * (17.0 / 27.0) * (45.0 / 15.0); // L2 gearing
     private static final double TURN_GEAR_RATIO = 150.0 / 7.0;
 
+    // Onboard closed loop gains, the same as Module's roboRIO gains converted to motor units
+    // Drive: 0.05 V per wheel rad/s, in V per motor rotation/s
+    private static final double DRIVE_KP = 0.05 * 2.0 * Math.PI / DRIVE_GEAR_RATIO;
+    // Turn: 7 V per module radian, in duty cycle per motor rotation
+    private static final double TURN_KP = 7.0 * 2.0 * Math.PI / TURN_GEAR_RATIO / 12.0;
+
     private final TalonFX driveTalon;
     private final SparkMax turnSparkMax;
     private final CANcoder cancoder;
@@ -56,6 +66,9 @@ public class ModuleIOTBSwerve implements ModuleIO {
     private Alert turnMotorDisconnectAlert;
 
     private final RelativeEncoder turnRelativeEncoder;
+    private final SparkClosedLoopController turnController;
+
+    private final VelocityVoltage driveVelocityRequest = new VelocityVoltage(0.0).withSlot(0);
 
     private final boolean isTurnMotorInverted = true;
     private InvertedValue isDriveMotorInverted = InvertedValue.CounterClockwise_Positive;
@@ -116,6 +129,7 @@ public class ModuleIOTBSwerve implements ModuleIO {
         driveConfig.CurrentLimits.SupplyCurrentLimit = Constants.DRIVE_CURRENT_LIMIT;
         driveConfig.CurrentLimits.StatorCurrentLimitEnable = true;
         driveConfig.CurrentLimits.StatorCurrentLimit = Constants.DRIVE_STATOR_CURRENT_LIMIT;
+        driveConfig.Slot0.kP = DRIVE_KP;
         driveTalon.getConfigurator().apply(driveConfig);
 
         setDriveBrakeMode(true, isDriveMotorInverted);
@@ -123,12 +137,14 @@ public class ModuleIOTBSwerve implements ModuleIO {
         // Set config for turn motor
         turnSparkMax.setCANTimeout(250);
         turnRelativeEncoder = turnSparkMax.getEncoder();
+        turnController = turnSparkMax.getClosedLoopController();
 
         SparkMaxConfig turnConfig = new SparkMaxConfig();
         turnConfig.idleMode(IdleMode.kBrake);
         turnConfig.smartCurrentLimit(Constants.TURN_CURRENT_LIMIT);
         turnConfig.inverted(isTurnMotorInverted);
         turnConfig.voltageCompensation(12.0);
+        turnConfig.closedLoop.pid(TURN_KP, 0.0, 0.0);
 
         turnSparkMax.configure(turnConfig, SparkBase.ResetMode.kResetSafeParameters, SparkBase.PersistMode.kPersistParameters);
 
@@ -201,6 +217,26 @@ public class ModuleIOTBSwerve implements ModuleIO {
         turnSparkMax.setVoltage(volts);
     }
 
+    public void setDriveVelocity(double velocityRadPerSec, double feedforwardVolts) {
+        driveTalon.setControl(
+                driveVelocityRequest
+                        .withVelocity(Units.radiansToRotations(velocityRadPerSec) * DRIVE_GEAR_RATIO)
+                        .withFeedForward(feedforwardVolts));
+    }
+
+    public void setTurnPosition(Rotation2d position) {
+        // Go to the closest motor position for the target, the encoder isn't wrapped
+        double currentMotorRotations = turnRelativeEncoder.getPosition();
+        double errorRotations = MathUtil.inputModulus(
+                position.getRotations() - currentMotorRotations / TURN_GEAR_RATIO, -0.5, 0.5);
+        turnController.setReference(
+                currentMotorRotations + errorRotations * TURN_GEAR_RATIO, ControlType.kPosition);
+    }
+
+    public boolean supportsOnboardControl() {
+        return true;
+    }
+
     /**
      * Set inversion and brake mode for drive TalonFX
      * 
@@ -0,0 +1,366 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import frc.robot.Constants;
+import frc.robot.subsystems.drive.VisionIO.VisionIOInputs;
+
+/**
+ * Field relative note tracks built from the driver Limelight's detections.
+ *
+ * <p>Each detection is projected onto the floor through the bottom edge of its bounding box, using
+ * the camera mount and the robot pose from when the frame was captured, then moved back by the note
+ * radius to the note's center. Every track is a constant position Kalman filter. Range noise grows
+ * with distance, so a far detection moves a track mostly along the camera ray. Detections are
+ * matched to tracks by nearest Mahalanobis distance inside a gate, unmatched detections start new
+ * tracks, and tracks are dropped after several frames where they should have been seen but weren't.
+ * A track only counts once it has been seen twice, so single frame false positives are ignored.
+ * Dropped frames leave the tracks in place, so commands keep their target between detections.
+ */
+public class NoteTracker {
+  private static final int NOTE_CLASS_ID = 0;
+
+  // Measurement noise, radial grows faster than tangential since range comes from the pitch angle
+  private static final double RADIAL_STD_DEV_BASE = 0.05;
+  private static final double RADIAL_STD_DEV_PER_METER = 0.08;
+  private static final double TANGENTIAL_STD_DEV_BASE = 0.03;
+  private static final double TANGENTIAL_STD_DEV_PER_METER = 0.02;
+  // Notes get pushed around, so tracks slowly lose confidence
+  private static final double PROCESS_VARIANCE_PER_SEC = 0.05 * 0.05;
+
+  // Chi-squared 99% gate with two degrees of freedom
+  private static final double GATE = 9.21;
+  private static final int CONFIRM_HITS = 2;
+  private static final int MAX_MISSES = 5;
+  private static final double TRACK_TIMEOUT_SECS = 3.0;
+  private static final int MAX_TRACKS = 10;
+  private static final double MAX_VISIBLE_RANGE = 5.0;
+  // Notes this close to the robot center are under the bumpers, i.e. being intaked
+  private static final double ROBOT_FOOTPRINT_RADIUS = 0.45;
+  // Cost of turning towards a note, in meters of extra driving per radian
+  private static final double TURN_COST_METERS_PER_RAD = 0.5;
+
+  private static final double FOCAL_X_PX =
+      Constants.NOTE_CAMERA_WIDTH_PX / 2.0
+          / Math.tan(Units.degreesToRadians(Constants.NOTE_CAMERA_HORIZONTAL_FOV_DEG) / 2.0);
+  private static final double FOCAL_Y_PX =
+      Constants.NOTE_CAMERA_HEIGHT_PX / 2.0
+          / Math.tan(Units.degreesToRadians(Constants.NOTE_CAMERA_VERTICAL_FOV_DEG) / 2.0);
+
+  private static class Track {
+    double x;
+    double y;
+    // Covariance, symmetric so pxy is shared
+    double pxx;
+    double pxy;
+    double pyy;
+    int hits = 1;
+    int misses = 0;
+    double lastSeenTimestamp;
+
+    Track(Translation2d position, double[] covariance, double timestamp) {
+      x = position.getX();
+      y = position.getY();
+      pxx = covariance[0];
+      pxy = covariance[1];
+      pyy = covariance[2];
+      lastSeenTimestamp = timestamp;
+    }
+
+    Translation2d getPosition() {
+      return new Translation2d(x, y);
+    }
+
+    boolean isConfirmed() {
+      return hits >= CONFIRM_HITS;
+    }
+  }
+
+  private record Measurement(Translation2d position, double[] covariance) {}
+
+  private final List<Track> tracks = new ArrayList<>();
+  private double lastFrameTimestamp = 0.0;
+  private double lastUpdateTimestamp = Double.NaN;
+  private Optional<Translation2d> bestTarget = Optional.empty();
+
+  /**
+   * Predicts every track forward, then folds in the latest detections if there is a new frame.
+   * Call once per loop.
+   *
+   * @param inputs Vision inputs with the driver Limelight's detections
+   * @param poseAtCapture Robot pose when the frame was captured, empty if it isn't known
+   * @param robotPose Current robot pose
+   * @param now Current timestamp in seconds
+   */
+  public void update(VisionIOInputs inputs, Optional<Pose2d> poseAtCapture, Pose2d robotPose, double now) {
+    double dt = Double.isNaN(lastUpdateTimestamp) ? 0.0 : now - lastUpdateTimestamp;
+    lastUpdateTimestamp = now;
+    for (Track track : tracks) {
+      track.pxx += PROCESS_VARIANCE_PER_SEC * dt;
+      track.pyy += PROCESS_VARIANCE_PER_SEC * dt;
+    }
+
+    if (inputs.detectionTimestamp > lastFrameTimestamp && poseAtCapture.isPresent()) {
+      lastFrameTimestamp = inputs.detectionTimestamp;
+      processFrame(inputs, poseAtCapture.get());
+    }
+
+    tracks.removeIf(
+        track ->
+            track.misses >= MAX_MISSES
+                || now - track.lastSeenTimestamp > TRACK_TIMEOUT_SECS
+                || track.getPosition().getDistance(robotPose.getTranslation()) < ROBOT_FOOTPRINT_RADIUS);
+
+    bestTarget = selectTarget(robotPose);
+
+    Logger.recordOutput(
+        "NoteTracker/Tracks",
+        tracks.stream().filter(Track::isConfirmed).map(Track::getPosition).toArray(Translation2d[]::new));
+    Logger.recordOutput(
+        "NoteTracker/TentativeTracks",
+        tracks.stream().filter(track -> !track.isConfirmed()).map(Track::getPosition).toArray(Translation2d[]::new));
+    Logger.recordOutput(
+        "NoteTracker/BestTarget", bestTarget.map(target -> new Translation2d[] {target}).orElse(new Translation2d[] {}));
+  }
+
+  /** Returns the confirmed note that is cheapest to drive to and intake, if any. */
+  public Optional<Translation2d> getBestTarget() {
+    return bestTarget;
+  }
+
+  /** Returns every confirmed note position. */
+  public List<Translation2d> getNotes() {
+    return tracks.stream().filter(Track::isConfirmed).map(Track::getPosition).toList();
+  }
+
+  /** Drops every track, e.g. after the robot pose is reset. */
+  public void clear() {
+    tracks.clear();
+    bestTarget = Optional.empty();
+  }
+
+  private void processFrame(VisionIOInputs inputs, Pose2d poseAtCapture) {
+    List<Measurement> measurements = new ArrayList<>();
+    for (int i = 0; i < inputs.detectionClassIds.length; i++) {
+      if (inputs.detectionClassIds[i] != NOTE_CLASS_ID) {
+        continue;
+      }
+      Translation2d robotRelative = projectDetection(inputs, i);
+      if (robotRelative != null) {
+        measurements.add(
+            new Measurement(
+                poseAtCapture.transformBy(new Transform2d(robotRelative, new Rotation2d())).getTranslation(),
+                measurementCovariance(robotRelative, poseAtCapture.getRotation())));
+      }
+    }
+
+    // Greedy global nearest neighbor, closest pairs first
+    List<double[]> pairs = new ArrayList<>();
+    for (int t = 0; t < tracks.size(); t++) {
+      for (int m = 0; m < measurements.size(); m++) {
+        double distanceSquared = mahalanobisSquared(tracks.get(t), measurements.get(m));
+        if (distanceSquared < GATE) {
+          pairs.add(new double[] {distanceSquared, t, m});
+        }
+      }
+    }
+    pairs.sort((a, b) -> Double.compare(a[0], b[0]));
+
+    boolean[] trackMatched = new boolean[tracks.size()];
+    boolean[] measurementMatched = new boolean[measurements.size()];
+    for (double[] pair : pairs) {
+      int t = (int) pair[1];
+      int m = (int) pair[2];
+      if (trackMatched[t] || measurementMatched[m]) {
+        continue;
+      }
+      trackMatched[t] = true;
+      measurementMatched[m] = true;
+      correct(tracks.get(t), measurements.get(m));
+      tracks.get(t).hits++;
+      tracks.get(t).misses = 0;
+      tracks.get(t).lastSeenTimestamp = inputs.detectionTimestamp;
+    }
+
+    for (int t = 0; t < trackMatched.length; t++) {
+      if (!trackMatched[t] && isInView(tracks.get(t).getPosition(), poseAtCapture)) {
+        tracks.get(t).misses++;
+      }
+    }
+
+    for (int m = 0; m < measurements.size(); m++) {
+      if (!measurementMatched[m]) {
+        if (tracks.size() >= MAX_TRACKS) {
+          // Make room by dropping the track that was seen longest ago
+          tracks.remove(
+              tracks.stream()
+                  .min((a, b) -> Double.compare(a.lastSeenTimestamp, b.lastSeenTimestamp))
+                  .get());
+        }
+        tracks.add(
+            new Track(
+                measurements.get(m).position(),
+                measurements.get(m).covariance(),
+                inputs.detectionTimestamp));
+      }
+    }
+  }
+
+  /** Returns the robot relative center of a detected note, or null if it can't be on the floor. */
+  private static Translation2d projectDetection(VisionIOInputs inputs, int index) {
+    if (inputs.detectionCorners.length < (index + 1) * 8) {
+      return projectAngles(inputs.detectionTx[index], inputs.detectionTy[index], Constants.NOTE_HEIGHT / 2.0);
+    }
+
+    // The bottom edge of the box is the near edge of the note, touching the floor
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int corner = 0; corner < 4; corner++) {
+      minX = Math.min(minX, inputs.detectionCorners[index * 8 + corner * 2]);
+      maxX = Math.max(maxX, inputs.detectionCorners[index * 8 + corner * 2]);
+      maxY = Math.max(maxY, inputs.detectionCorners[index * 8 + corner * 2 + 1]);
+    }
+    if (maxX <= minX || maxY <= 0.0 || maxY >= Constants.NOTE_CAMERA_HEIGHT_PX - 1) {
+      // No corners, or the note is cut off by the bottom of the image
+      return projectAngles(inputs.detectionTx[index], inputs.detectionTy[index], Constants.NOTE_HEIGHT / 2.0);
+    }
+    double txDeg =
+        Math.toDegrees(Math.atan(((minX + maxX) / 2.0 - Constants.NOTE_CAMERA_WIDTH_PX / 2.0) / FOCAL_X_PX));
+    double tyDeg = Math.toDegrees(Math.atan((Constants.NOTE_CAMERA_HEIGHT_PX / 2.0 - maxY) / FOCAL_Y_PX));
+    Translation2d nearEdge = projectAngles(txDeg, tyDeg, 0.0);
+    if (nearEdge == null) {
+      return null;
+    }
+    Translation2d camera = Constants.ROBOT_TO_NOTE_CAMERA.getTranslation().toTranslation2d();
+    Translation2d ray = nearEdge.minus(camera);
+    return nearEdge.plus(ray.times(Constants.NOTE_RADIUS / ray.getNorm()));
+  }
+
+  /** Intersects a camera ray with a horizontal plane, returning the robot relative point. */
+  private static Translation2d projectAngles(double txDeg, double tyDeg, double heightMeters) {
+    Translation3d ray =
+        new Translation3d(1.0, -Math.tan(Units.degreesToRadians(txDeg)), Math.tan(Units.degreesToRadians(tyDeg)))
+            .rotateBy(Constants.ROBOT_TO_NOTE_CAMERA.getRotation());
+    Translation3d camera = Constants.ROBOT_TO_NOTE_CAMERA.getTranslation();
+    if (ray.getZ() >= 0.0 || camera.getZ() <= heightMeters) {
+      return null;
+    }
+    double scale = (heightMeters - camera.getZ()) / ray.getZ();
+    return new Translation2d(camera.getX() + ray.getX() * scale, camera.getY() + ray.getY() * scale);
+  }
+
+  /** Returns the field relative covariance {xx, xy, yy} of a robot relative measurement. */
+  private static double[] measurementCovariance(Translation2d robotRelative, Rotation2d robotRotation) {
+    Translation2d fromCamera =
+        robotRelative.minus(Constants.ROBOT_TO_NOTE_CAMERA.getTranslation().toTranslation2d());
+    double range = fromCamera.getNorm();
+    double radial = RADIAL_STD_DEV_BASE + RADIAL_STD_DEV_PER_METER * range;
+    double tangential = TANGENTIAL_STD_DEV_BASE + TANGENTIAL_STD_DEV_PER_METER * range;
+    double bearing = fromCamera.getAngle().plus(robotRotation).getRadians();
+    double cos = Math.cos(bearing);
+    double sin = Math.sin(bearing);
+    double radialVariance = radial * radial;
+    double tangentialVariance = tangential * tangential;
+    return new double[] {
+      radialVariance * cos * cos + tangentialVariance * sin * sin,
+      (radialVariance - tangentialVariance) * cos * sin,
+      radialVariance * sin * sin + tangentialVariance * cos * cos
+    };
+  }
+
+  private static double mahalanobisSquared(Track track, Measurement measurement) {
+    double sxx = track.pxx + measurement.covariance()[0];
+    double sxy = track.pxy + measurement.covariance()[1];
+    double syy = track.pyy + measurement.covariance()[2];
+    double determinant = sxx * syy - sxy * sxy;
+    double dx = measurement.position().getX() - track.x;
+    double dy = measurement.position().getY() - track.y;
+    return (dx * dx * syy - 2.0 * dx * dy * sxy + dy * dy * sxx) / determinant;
+  }
+
+  /** Kalman correction with the identity measurement model. */
+  private static void correct(Track track, Measurement measurement) {
+    double sxx = track.pxx + measurement.covariance()[0];
+    double sxy = track.pxy + measurement.covariance()[1];
+    double syy = track.pyy + measurement.covariance()[2];
+    double determinant = sxx * syy - sxy * sxy;
+    double ixx = syy / determinant;
+    double ixy = -sxy / determinant;
+    double iyy = sxx / determinant;
+
+    // K = P * S^-1
+    double kxx = track.pxx * ixx + track.pxy * ixy;
+    double kxy = track.pxx * ixy + track.pxy * iyy;
+    double kyx = track.pxy * ixx + track.pyy * ixy;
+    double kyy = track.pxy * ixy + track.pyy * iyy;
+
+    double dx = measurement.position().getX() - track.x;
+    double dy = measurement.position().getY() - track.y;
+    track.x += kxx * dx + kxy * dy;
+    track.y += kyx * dx + kyy * dy;
+
+    // P = (I - K) * P
+    double pxx = (1.0 - kxx) * track.pxx - kxy * track.pxy;
+    double pxy = (1.0 - kxx) * track.pxy - kxy * track.pyy;
+    double pyy = -kyx * track.pxy + (1.0 - kyy) * track.pyy;
+    track.pxx = pxx;
+    track.pxy = pxy;
+    track.pyy = pyy;
+  }
+
+  /** Returns true if a note at this position should have shown up in the frame. */
+  private static boolean isInView(Translation2d note, Pose2d poseAtCapture) {
+    Translation2d fromCamera =
+        note.minus(poseAtCapture.getTranslation())
+            .rotateBy(poseAtCapture.getRotation().unaryMinus())
+            .minus(Constants.ROBOT_TO_NOTE_CAMERA.getTranslation().toTranslation2d());
+    // Stay a few degrees inside the edges, where boxes get cut off
+    double halfFovRad = Units.degreesToRadians(Constants.NOTE_CAMERA_HORIZONTAL_FOV_DEG / 2.0 - 5.0);
+    if (fromCamera.getX() <= 0.0 || Math.abs(Math.atan2(fromCamera.getY(), fromCamera.getX())) > halfFovRad) {
+      return false;
+    }
+    // The bottom of the image has to be below the note, and it has to be close enough to detect
+    Translation2d nearestVisible =
+        projectAngles(0.0, -Constants.NOTE_CAMERA_VERTICAL_FOV_DEG / 2.0 + 3.0, 0.0);
+    double minRange =
+        nearestVisible == null
+            ? 0.0
+            : nearestVisible.getX() - Constants.ROBOT_TO_NOTE_CAMERA.getTranslation().getX() + Constants.NOTE_RADIUS;
+    return fromCamera.getX() >= minRange && fromCamera.getNorm() <= MAX_VISIBLE_RANGE;
+  }
+
+  private Optional<Translation2d> selectTarget(Pose2d robotPose) {
+    Translation2d best = null;
+    double bestCost = Double.POSITIVE_INFINITY;
+    for (Track track : tracks) {
+      if (!track.isConfirmed()) {
+        continue;
+      }
+      Translation2d robotRelative =
+          track.getPosition().minus(robotPose.getTranslation()).rotateBy(robotPose.getRotation().unaryMinus());
+      double cost =
+          robotRelative.getNorm()
+              + TURN_COST_METERS_PER_RAD * Math.abs(Math.atan2(robotRelative.getY(), robotRelative.getX()));
+      if (cost < bestCost) {
+        bestCost = cost;
+        best = track.getPosition();
+      }
+    }
+    return Optional.ofNullable(best);
+  }
+}
@@ -0,0 +1,110 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Detects wheel slip by comparing each module's measured speed with the speed the chassis motion
+ * says it should have.
+ *
+ * <p>The chassis velocity is estimated with a complementary filter. The accelerometer is
+ * integrated every loop and the estimate is pulled towards the average velocity implied by the
+ * modules that aren't slipping. Rotation comes from the gyro. While every wheel slips, e.g. on a
+ * hard launch, the estimate runs on the accelerometer alone. A module slips when its measured
+ * speed is further from its expected ground speed than a tolerance that grows with speed, with a
+ * few loops of hysteresis so it doesn't chatter.
+ */
+public class SlipDetector {
+  // How hard the estimate is pulled towards the non-slipping wheels, 0.2 per 20 ms loop
+  private static final double WHEEL_CORRECTION_PER_SEC = 10.0;
+  private static final double SLIP_TOLERANCE_MPS = 0.3;
+  private static final double SLIP_TOLERANCE_FRACTION = 0.15;
+  private static final int SLIP_CLEAR_LOOPS = 3;
+
+  private final Translation2d[] moduleTranslations;
+  private final boolean[] slipping = new boolean[4];
+  private final int[] loopsSinceSlip = new int[4];
+  private final double[] groundSpeeds = new double[4];
+  private final double[] slipErrors = new double[4];
+
+  // Robot relative chassis velocity estimate
+  private double vx = 0.0;
+  private double vy = 0.0;
+
+  public SlipDetector(Translation2d[] moduleTranslations) {
+    this.moduleTranslations = moduleTranslations;
+  }
+
+  /**
+   * Updates the chassis estimate and each module's slip state. Call once per loop.
+   *
+   * @param states Measured module states
+   * @param omegaRadPerSec Chassis yaw rate, from the gyro when it is connected
+   * @param axMetersPerSecSq Robot relative forward acceleration
+   * @param ayMetersPerSecSq Robot relative leftward acceleration
+   * @param dtSecs Time since the last update
+   */
+  public void update(
+      SwerveModuleState[] states, double omegaRadPerSec, double axMetersPerSecSq, double ayMetersPerSecSq, double dtSecs) {
+    // Predict, rotating last loop's velocity into the new robot frame
+    double dtheta = -omegaRadPerSec * dtSecs;
+    double predictedVx = vx * Math.cos(dtheta) - vy * Math.sin(dtheta) + axMetersPerSecSq * dtSecs;
+    double predictedVy = vx * Math.sin(dtheta) + vy * Math.cos(dtheta) + ayMetersPerSecSq * dtSecs;
+
+    // Average the chassis velocity implied by each module that wasn't slipping
+    double sumVx = 0.0;
+    double sumVy = 0.0;
+    int gripping = 0;
+    for (int i = 0; i < 4; i++) {
+      if (slipping[i]) {
+        continue;
+      }
+      sumVx += states[i].speedMetersPerSecond * states[i].angle.getCos() + omegaRadPerSec * moduleTranslations[i].getY();
+      sumVy += states[i].speedMetersPerSecond * states[i].angle.getSin() - omegaRadPerSec * moduleTranslations[i].getX();
+      gripping++;
+    }
+    if (gripping > 0) {
+      double gain = Math.min(1.0, WHEEL_CORRECTION_PER_SEC * dtSecs);
+      predictedVx += gain * (sumVx / gripping - predictedVx);
+      predictedVy += gain * (sumVy / gripping - predictedVy);
+    }
+    vx = predictedVx;
+    vy = predictedVy;
+
+    for (int i = 0; i < 4; i++) {
+      // Chassis velocity at the module, projected on the wheel direction
+      double moduleVx = vx - omegaRadPerSec * moduleTranslations[i].getY();
+      double moduleVy = vy + omegaRadPerSec * moduleTranslations[i].getX();
+      groundSpeeds[i] = moduleVx * states[i].angle.getCos() + moduleVy * states[i].angle.getSin();
+      slipErrors[i] = states[i].speedMetersPerSecond - groundSpeeds[i];
+
+      double tolerance = SLIP_TOLERANCE_MPS + SLIP_TOLERANCE_FRACTION * Math.abs(groundSpeeds[i]);
+      if (Math.abs(slipErrors[i]) > tolerance) {
+        slipping[i] = true;
+        loopsSinceSlip[i] = 0;
+      } else if (slipping[i] && ++loopsSinceSlip[i] >= SLIP_CLEAR_LOOPS) {
+        slipping[i] = false;
+      }
+    }
+
+    Logger.recordOutput("Drive/Slip/Slipping", slipping);
+    Logger.recordOutput("Drive/Slip/ErrorMPS", slipErrors);
+    Logger.recordOutput("Drive/Slip/GroundSpeedsMPS", groundSpeeds);
+    Logger.recordOutput("Drive/Slip/EstimatedVelocity", new double[] {vx, vy});
+  }
+
+  public boolean isSlipping(int index) {
+    return slipping[index];
+  }
+
+  /** Returns the speed the module's wheel would have without slip, along its current heading. */
+  public double getGroundSpeed(int index) {
+    return groundSpeeds[index];
+  }
+}
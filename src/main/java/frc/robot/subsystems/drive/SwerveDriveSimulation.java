@@ -0,0 +1,296 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import java.util.Random;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.Constants;
+
+/**
+ * Rigid body physics sim of the whole swerve chassis, shared by the four {@link ModuleIOSim}s and
+ * the {@link GyroIOSim}.
+ *
+ * <p>Each loop is split into 1 ms substeps. In every substep the drive motor torque spins the
+ * wheel, and each tire pushes on the chassis with the force needed to stop it slipping, limited to
+ * its share of the friction circle (μ·m·g/4). Anything above that limit is wheel slip. The summed
+ * tire forces and torques accelerate the chassis using the PathPlanner mass and MOI, and the chassis
+ * is kept inside the field walls. The steer motors are simulated separately since they barely
+ * interact with the chassis. The chassis acceleration is read by {@link GyroIOSim}.
+ *
+ * <p>Each wheel starts at a random angle, seeded so repeated sim runs start the same. The relative
+ * turn encoders start at zero like on the robot, and the absolute encoders read the wheel angle.
+ */
+public class SwerveDriveSimulation {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  private static final int SUBSTEPS = 20;
+  private static final double DT = LOOP_PERIOD_SECS / SUBSTEPS;
+
+  // Matches src/main/deploy/pathplanner/settings.json
+  private static final double MASS_KG = 63.0;
+  private static final double MOI_KG_M2 = 4.57;
+  private static final double WHEEL_COF = 1.2;
+  private static final double BUMPER_HALF_LENGTH = 0.91 / 2.0;
+  private static final double BUMPER_HALF_WIDTH = 0.81 / 2.0;
+
+  private static final double FIELD_LENGTH = 16.54;
+  private static final double FIELD_WIDTH = 8.21;
+
+  private static final DCMotor DRIVE_MOTOR = DCMotor.getKrakenX60(1);
+  private static final DCMotor TURN_MOTOR = DCMotor.getNEO(1);
+  private static final double DRIVE_GEAR_RATIO = 6.75;
+  private static final double TURN_GEAR_RATIO = 150.0 / 7.0;
+  private static final double WHEEL_RADIUS = Module.WHEEL_RADIUS;
+  // Wheel plus the drive gearbox and rotor reflected through the gear ratio
+  private static final double WHEEL_INERTIA = 0.01;
+  private static final double TURN_INERTIA = 0.004;
+  private static final double FRICTION_LIMIT_NEWTONS = WHEEL_COF * MASS_KG * 9.81 / 4.0;
+
+  private final Translation2d[] moduleTranslations = Drive.getModuleTranslations();
+  private final DCMotorSim[] turnSims = new DCMotorSim[4];
+  private final double[] turnInitialRad = new double[4];
+
+  private final double[] driveAppliedVolts = new double[4];
+  private final double[] turnAppliedVolts = new double[4];
+  private final double[] wheelPositionRad = new double[4];
+  private final double[] wheelVelocityRadPerSec = new double[4];
+  private final double[] driveCurrentAmps = new double[4];
+  private final boolean[] wheelSlipping = new boolean[4];
+
+  // Field relative chassis state
+  private double x;
+  private double y;
+  private double yaw;
+  private double vx = 0.0;
+  private double vy = 0.0;
+  private double omega = 0.0;
+  private double accelX = 0.0;
+  private double accelY = 0.0;
+
+  // Integrated separately so that pose resets don't make the gyro jump
+  private double gyroYaw = 0.0;
+
+  public SwerveDriveSimulation(Pose2d initialPose) {
+    Random turnRandom = new Random(6328);
+    for (int i = 0; i < 4; i++) {
+      turnInitialRad[i] = turnRandom.nextDouble() * 2.0 * Math.PI;
+      turnSims[i] =
+          new DCMotorSim(
+              LinearSystemId.createDCMotorSystem(TURN_MOTOR, TURN_INERTIA, TURN_GEAR_RATIO),
+              TURN_MOTOR);
+    }
+    x = initialPose.getX();
+    y = initialPose.getY();
+    yaw = initialPose.getRotation().getRadians();
+  }
+
+  /** Advances the simulation by one robot loop. */
+  public void update() {
+    for (int i = 0; i < 4; i++) {
+      turnSims[i].setInputVoltage(turnAppliedVolts[i]);
+      turnSims[i].update(LOOP_PERIOD_SECS);
+      wheelSlipping[i] = false;
+    }
+
+    double lastVx = vx;
+    double lastVy = vy;
+    for (int step = 0; step < SUBSTEPS; step++) {
+      substep();
+    }
+
+    // Chassis acceleration in the robot frame
+    double ax = (vx - lastVx) / LOOP_PERIOD_SECS;
+    double ay = (vy - lastVy) / LOOP_PERIOD_SECS;
+    accelX = ax * Math.cos(yaw) + ay * Math.sin(yaw);
+    accelY = -ax * Math.sin(yaw) + ay * Math.cos(yaw);
+  }
+
+  private void substep() {
+    double cosYaw = Math.cos(yaw);
+    double sinYaw = Math.sin(yaw);
+    double forceX = 0.0;
+    double forceY = 0.0;
+    double torque = 0.0;
+
+    for (int i = 0; i < 4; i++) {
+      // Module lever arm and wheel direction in field coordinates
+      double rx = moduleTranslations[i].getX() * cosYaw - moduleTranslations[i].getY() * sinYaw;
+      double ry = moduleTranslations[i].getX() * sinYaw + moduleTranslations[i].getY() * cosYaw;
+      double wheelAngle = yaw + getTurnAbsolutePositionRad(i);
+      double ux = Math.cos(wheelAngle);
+      double uy = Math.sin(wheelAngle);
+
+      // Ground velocity under the wheel, along and across the tread
+      double groundVx = vx - omega * ry;
+      double groundVy = vy + omega * rx;
+      double longVelocity = groundVx * ux + groundVy * uy;
+      double latVelocity = -groundVx * uy + groundVy * ux;
+
+      // Current limited drive motor torque at the wheel
+      double motorVelocity = wheelVelocityRadPerSec[i] * DRIVE_GEAR_RATIO;
+      double current =
+          MathUtil.clamp(
+              DRIVE_MOTOR.getCurrent(motorVelocity, driveAppliedVolts[i]),
+              -Constants.DRIVE_STATOR_CURRENT_LIMIT,
+              Constants.DRIVE_STATOR_CURRENT_LIMIT);
+      driveCurrentAmps[i] = current;
+      double wheelTorque = DRIVE_MOTOR.getTorque(current) * DRIVE_GEAR_RATIO;
+
+      // Force each tire needs to remove its slip this substep. The effective chassis mass at the
+      // wheel is taken as if all four tires pushed at once, which keeps the solve stable.
+      double longInvMass = chassisInvMassAt(rx, ry, ux, uy);
+      double latInvMass = chassisInvMassAt(rx, ry, -uy, ux);
+      double slipVelocity = wheelVelocityRadPerSec[i] * WHEEL_RADIUS - longVelocity;
+      double longForce =
+          (slipVelocity / DT + wheelTorque * WHEEL_RADIUS / WHEEL_INERTIA)
+              / (WHEEL_RADIUS * WHEEL_RADIUS / WHEEL_INERTIA + longInvMass);
+      double latForce = -latVelocity / DT / latInvMass;
+
+      // Limit to the friction circle, anything over is wheel slip
+      double forceMagnitude = Math.hypot(longForce, latForce);
+      if (forceMagnitude > FRICTION_LIMIT_NEWTONS) {
+        longForce *= FRICTION_LIMIT_NEWTONS / forceMagnitude;
+        latForce *= FRICTION_LIMIT_NEWTONS / forceMagnitude;
+        wheelSlipping[i] = true;
+      }
+
+      wheelVelocityRadPerSec[i] += (wheelTorque - longForce * WHEEL_RADIUS) / WHEEL_INERTIA * DT;
+      wheelPositionRad[i] += wheelVelocityRadPerSec[i] * DT;
+
+      double fx = longForce * ux - latForce * uy;
+      double fy = longForce * uy + latForce * ux;
+      forceX += fx;
+      forceY += fy;
+      torque += rx * fy - ry * fx;
+    }
+
+    vx += forceX / MASS_KG * DT;
+    vy += forceY / MASS_KG * DT;
+    omega += torque / MOI_KG_M2 * DT;
+
+    x += vx * DT;
+    y += vy * DT;
+    yaw += omega * DT;
+    gyroYaw += omega * DT;
+
+    applyFieldWalls();
+  }
+
+  /** Inverse of the chassis mass felt at a wheel pushing in direction (dx, dy), for all 4 wheels. */
+  private static double chassisInvMassAt(double rx, double ry, double dx, double dy) {
+    double leverArm = rx * dy - ry * dx;
+    return 4.0 * (1.0 / MASS_KG + leverArm * leverArm / MOI_KG_M2);
+  }
+
+  /** Keeps the bumpers inside the field perimeter, stopping motion into the wall. */
+  private void applyFieldWalls() {
+    double cos = Math.abs(Math.cos(yaw));
+    double sin = Math.abs(Math.sin(yaw));
+    double extentX = BUMPER_HALF_LENGTH * cos + BUMPER_HALF_WIDTH * sin;
+    double extentY = BUMPER_HALF_LENGTH * sin + BUMPER_HALF_WIDTH * cos;
+
+    if (x < extentX) {
+      x = extentX;
+      vx = Math.max(vx, 0.0);
+    } else if (x > FIELD_LENGTH - extentX) {
+      x = FIELD_LENGTH - extentX;
+      vx = Math.min(vx, 0.0);
+    }
+    if (y < extentY) {
+      y = extentY;
+      vy = Math.max(vy, 0.0);
+    } else if (y > FIELD_WIDTH - extentY) {
+      y = FIELD_WIDTH - extentY;
+      vy = Math.min(vy, 0.0);
+    }
+  }
+
+  /** Moves the simulated robot to a pose and brings it to rest, used when odometry is reset. */
+  public void setPose(Pose2d pose) {
+    x = pose.getX();
+    y = pose.getY();
+    yaw = pose.getRotation().getRadians();
+    vx = 0.0;
+    vy = 0.0;
+    omega = 0.0;
+  }
+
+  /** Returns the true field pose of the simulated robot. */
+  public Pose2d getPose() {
+    return new Pose2d(x, y, new Rotation2d(yaw));
+  }
+
+  /** Returns the true field relative speeds of the simulated robot. */
+  public ChassisSpeeds getFieldRelativeSpeeds() {
+    return new ChassisSpeeds(vx, vy, omega);
+  }
+
+  public boolean[] getWheelSlipping() {
+    return wheelSlipping;
+  }
+
+  public Rotation2d getGyroYaw() {
+    return new Rotation2d(gyroYaw);
+  }
+
+  public double getGyroYawVelocityRadPerSec() {
+    return omega;
+  }
+
+  /** Returns the robot relative forward acceleration over the last loop. */
+  public double getAccelXMetersPerSecSq() {
+    return accelX;
+  }
+
+  /** Returns the robot relative leftward acceleration over the last loop. */
+  public double getAccelYMetersPerSecSq() {
+    return accelY;
+  }
+
+  public void setDriveVoltage(int index, double volts) {
+    driveAppliedVolts[index] = volts;
+  }
+
+  public void setTurnVoltage(int index, double volts) {
+    turnAppliedVolts[index] = volts;
+  }
+
+  public double getDrivePositionRad(int index) {
+    return wheelPositionRad[index];
+  }
+
+  public double getDriveVelocityRadPerSec(int index) {
+    return wheelVelocityRadPerSec[index];
+  }
+
+  public double getDriveCurrentAmps(int index) {
+    return Math.abs(driveCurrentAmps[index]);
+  }
+
+  /** Relative turn encoder position, zero at startup. */
+  public double getTurnPositionRad(int index) {
+    return turnSims[index].getAngularPositionRad();
+  }
+
+  /** Absolute turn encoder position, the wheel angle relative to the chassis. */
+  public double getTurnAbsolutePositionRad(int index) {
+    return turnInitialRad[index] + turnSims[index].getAngularPositionRad();
+  }
+
+  public double getTurnVelocityRadPerSec(int index) {
+    return turnSims[index].getAngularVelocityRadPerSec();
+  }
+
+  public double getTurnCurrentAmps(int index) {
+    return Math.abs(turnSims[index].getCurrentDrawAmps());
+  }
+}
@@ -18,6 +18,14 @@ public interface VisionIO {
         public int mt2TagCount = 0;
         public double mt2AvgDistance = 0.0;
         public Pose3d[] seenTags = {};
+
+        // Object detections from the driver Limelight, angles in degrees
+        public double detectionTimestamp = 0.0;
+        public int[] detectionClassIds = {};
+        public double[] detectionTx = {};
+        public double[] detectionTy = {};
+        // Bounding box corners in pixels, x and y for four corners per detection
+        public double[] detectionCorners = {};
     }
 
     public default void updateInputs(VisionIOInputs inputs) {}
@@ -9,14 +9,20 @@ import java.util.ArrayList;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
 import edu.wpi.first.apriltag.AprilTagFields;
 import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.networktables.NetworkTableEntry;
 import frc.robot.Constants;
 import frc.robot.LimelightHelpers;
+import frc.robot.LimelightHelpers.RawDetection;
 import frc.robot.LimelightHelpers.RawFiducial;
 
 /** Add your docs here. */
 public class VisionIOLimelight implements VisionIO {
 
     private AprilTagFieldLayout aprilTagMap = AprilTagFieldLayout.loadField(AprilTagFields.k2024Crescendo);
+    // Counts up once per processed frame, so an unchanged value means no new detections
+    private final NetworkTableEntry driverHeartbeat =
+        LimelightHelpers.getLimelightNTTableEntry(Constants.DRIVER_LIMELIGHT, "hb");
+    private double lastHeartbeat = Double.NaN;
 
     public void updateInputs(VisionIOInputs inputs) {
         LimelightHelpers.PoseEstimate mt2Pose = LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2(Constants.VISION_LIMELIGHT);
@@ -34,5 +40,35 @@ public class VisionIOLimelight implements VisionIO {
         }
 
         inputs.seenTags = tagPoses.toArray(Pose3d[]::new);
+
+        // Keep the last frame's detections and timestamp until the Limelight publishes a new one
+        double heartbeat = driverHeartbeat.getDouble(0.0);
+        if (heartbeat == lastHeartbeat) {
+            return;
+        }
+        lastHeartbeat = heartbeat;
+
+        RawDetection[] detections = LimelightHelpers.getRawDetections(Constants.DRIVER_LIMELIGHT);
+        // NT change times are in FPGA microseconds, the frame arrived when the heartbeat changed
+        inputs.detectionTimestamp = driverHeartbeat.getLastChange() / 1e6
+            - (LimelightHelpers.getLatency_Pipeline(Constants.DRIVER_LIMELIGHT)
+                + LimelightHelpers.getLatency_Capture(Constants.DRIVER_LIMELIGHT)) / 1000.0;
+        inputs.detectionClassIds = new int[detections.length];
+        inputs.detectionTx = new double[detections.length];
+        inputs.detectionTy = new double[detections.length];
+        inputs.detectionCorners = new double[detections.length * 8];
+        for (int j = 0; j < detections.length; j++) {
+            inputs.detectionClassIds[j] = detections[j].classId;
+            inputs.detectionTx[j] = detections[j].txnc;
+            inputs.detectionTy[j] = detections[j].tync;
+            inputs.detectionCorners[j * 8] = detections[j].corner0_X;
+            inputs.detectionCorners[j * 8 + 1] = detections[j].corner0_Y;
+            inputs.detectionCorners[j * 8 + 2] = detections[j].corner1_X;
+            inputs.detectionCorners[j * 8 + 3] = detections[j].corner1_Y;
+            inputs.detectionCorners[j * 8 + 4] = detections[j].corner2_X;
+            inputs.detectionCorners[j * 8 + 5] = detections[j].corner2_Y;
+            inputs.detectionCorners[j * 8 + 6] = detections[j].corner3_X;
+            inputs.detectionCorners[j * 8 + 7] = detections[j].corner3_Y;
+        }
     } 
 }
\ No newline at end of file
@@ -0,0 +1,281 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+
+/**
+ * Sim implementation of vision IO, standing in for both Limelights.
+ *
+ * <p>The AprilTag camera projects the field tags through a camera model and reports MegaTag2 style
+ * pose estimates. Like MegaTag2, the heading comes from the gyro, so only the translation gets
+ * noise, growing with tag distance. The note camera projects the simulated field notes and
+ * publishes tv/tx/ty/ta and rawdetections to the driver Limelight's NetworkTable, where the note
+ * commands read them. Both cameras only produce frames at their frame rate, and each frame becomes
+ * visible after its pipeline latency, stamped with its capture time.
+ */
+public class VisionIOSim implements VisionIO {
+  /** Camera model used to project targets. */
+  public record CameraProperties(
+      double horizontalFovDeg,
+      double verticalFovDeg,
+      int widthPx,
+      int heightPx,
+      double fps,
+      double latencyMs,
+      double maxRangeMeters,
+      double translationNoiseMetersPerMeter,
+      double angleNoiseDeg) {
+
+    /** Limelight 3 running an AprilTag pipeline. */
+    public static final CameraProperties LL3_APRILTAG =
+        new CameraProperties(62.5, 48.9, 1280, 960, 30.0, 25.0, 6.0, 0.02, 0.1);
+
+    /** Limelight 3 running the note detector on a Coral. */
+    public static final CameraProperties LL3_NOTE_DETECTOR =
+        new CameraProperties(62.5, 48.9, 640, 480, 20.0, 40.0, 5.0, 0.0, 0.3);
+  }
+
+  // Rear AprilTag camera mount, the note camera mount is shared in Constants
+  public static final Transform3d ROBOT_TO_TAG_CAMERA =
+      new Transform3d(
+          new Translation3d(-0.3, 0.0, Units.inchesToMeters(18.0)),
+          new Rotation3d(0.0, Units.degreesToRadians(-27.5), Math.PI));
+
+  private record TagFrame(double timestamp, Pose2d pose, int tagCount, double avgDistance, Pose3d[] seenTags) {}
+
+  private record NoteFrame(double timestamp, double[] rawDetections, double tx, double ty, double ta) {}
+
+  private final AprilTagFieldLayout aprilTagMap =
+      AprilTagFieldLayout.loadField(AprilTagFields.k2024Crescendo);
+  private final NetworkTable noteTable =
+      NetworkTableInstance.getDefault().getTable(Constants.DRIVER_LIMELIGHT);
+
+  private final Supplier<Pose2d> robotPoseSupplier;
+  private final Supplier<List<Translation2d>> notesSupplier;
+  private final CameraProperties tagCamera;
+  private final CameraProperties noteCamera;
+  private final Random random;
+
+  private final ArrayDeque<TagFrame> pendingTagFrames = new ArrayDeque<>();
+  private final ArrayDeque<NoteFrame> pendingNoteFrames = new ArrayDeque<>();
+  private double lastTagCapture = Double.NEGATIVE_INFINITY;
+  private double lastNoteCapture = Double.NEGATIVE_INFINITY;
+  private TagFrame latestTagFrame = new TagFrame(0.0, new Pose2d(), 0, 0.0, new Pose3d[] {});
+  private NoteFrame latestNoteFrame = new NoteFrame(0.0, new double[] {}, 0.0, 0.0, 0.0);
+  private long noteHeartbeat = 0;
+
+  /**
+   * @param robotPoseSupplier Supplier of the true robot pose from the physics sim
+   * @param notesSupplier Supplier of the notes lying on the field
+   */
+  public VisionIOSim(Supplier<Pose2d> robotPoseSupplier, Supplier<List<Translation2d>> notesSupplier) {
+    this(robotPoseSupplier, notesSupplier, CameraProperties.LL3_APRILTAG, CameraProperties.LL3_NOTE_DETECTOR, 2024);
+  }
+
+  public VisionIOSim(
+      Supplier<Pose2d> robotPoseSupplier,
+      Supplier<List<Translation2d>> notesSupplier,
+      CameraProperties tagCamera,
+      CameraProperties noteCamera,
+      long seed) {
+    this.robotPoseSupplier = robotPoseSupplier;
+    this.notesSupplier = notesSupplier;
+    this.tagCamera = tagCamera;
+    this.noteCamera = noteCamera;
+    this.random = new Random(seed);
+  }
+
+  @Override
+  public void updateInputs(VisionIOInputs inputs) {
+    double now = Timer.getFPGATimestamp();
+    Pose2d robotPose = robotPoseSupplier.get();
+
+    // Capture new frames at the camera frame rates
+    if (now - lastTagCapture >= 1.0 / tagCamera.fps()) {
+      lastTagCapture = now;
+      pendingTagFrames.add(captureTags(now, robotPose));
+    }
+    if (now - lastNoteCapture >= 1.0 / noteCamera.fps()) {
+      lastNoteCapture = now;
+      pendingNoteFrames.add(captureNotes(now, robotPose));
+    }
+
+    // Deliver the frames whose pipeline latency has passed
+    while (!pendingTagFrames.isEmpty()
+        && pendingTagFrames.peek().timestamp() + tagCamera.latencyMs() / 1000.0 <= now) {
+      latestTagFrame = pendingTagFrames.poll();
+    }
+    while (!pendingNoteFrames.isEmpty()
+        && pendingNoteFrames.peek().timestamp() + noteCamera.latencyMs() / 1000.0 <= now) {
+      latestNoteFrame = pendingNoteFrames.poll();
+      publishNoteFrame(latestNoteFrame);
+    }
+
+    inputs.mt2Pose = latestTagFrame.pose();
+    inputs.mt2Timestamp = latestTagFrame.timestamp();
+    inputs.mt2TagCount = latestTagFrame.tagCount();
+    inputs.mt2AvgDistance = latestTagFrame.avgDistance();
+    inputs.seenTags = latestTagFrame.seenTags();
+
+    double[] rawDetections = latestNoteFrame.rawDetections();
+    int detectionCount = rawDetections.length / 12;
+    inputs.detectionTimestamp = latestNoteFrame.timestamp();
+    inputs.detectionClassIds = new int[detectionCount];
+    inputs.detectionTx = new double[detectionCount];
+    inputs.detectionTy = new double[detectionCount];
+    inputs.detectionCorners = new double[detectionCount * 8];
+    for (int i = 0; i < detectionCount; i++) {
+      inputs.detectionClassIds[i] = (int) rawDetections[i * 12];
+      inputs.detectionTx[i] = rawDetections[i * 12 + 1];
+      inputs.detectionTy[i] = rawDetections[i * 12 + 2];
+      System.arraycopy(rawDetections, i * 12 + 4, inputs.detectionCorners, i * 8, 8);
+    }
+  }
+
+  private TagFrame captureTags(double timestamp, Pose2d robotPose) {
+    Pose3d cameraPose = new Pose3d(robotPose).transformBy(ROBOT_TO_TAG_CAMERA);
+
+    List<Pose3d> seenTags = new ArrayList<>();
+    double totalDistance = 0.0;
+    for (AprilTag tag : aprilTagMap.getTags()) {
+      Translation3d inCamera = tag.pose.relativeTo(cameraPose).getTranslation();
+      if (!inFieldOfView(inCamera, tagCamera)) {
+        continue;
+      }
+
+      // The tag face has to point back at the camera
+      Translation3d tagToCamera = cameraPose.getTranslation().minus(tag.pose.getTranslation());
+      Translation3d tagNormal = new Translation3d(1.0, 0.0, 0.0).rotateBy(tag.pose.getRotation());
+      if (tagToCamera.toVector().dot(tagNormal.toVector()) <= 0.0) {
+        continue;
+      }
+
+      seenTags.add(tag.pose);
+      totalDistance += inCamera.getNorm();
+    }
+
+    if (seenTags.isEmpty()) {
+      return new TagFrame(timestamp, new Pose2d(), 0, 0.0, new Pose3d[] {});
+    }
+
+    double avgDistance = totalDistance / seenTags.size();
+    double stdDev =
+        tagCamera.translationNoiseMetersPerMeter() * avgDistance / Math.sqrt(seenTags.size());
+    Pose2d estimate =
+        new Pose2d(
+            robotPose.getX() + random.nextGaussian() * stdDev,
+            robotPose.getY() + random.nextGaussian() * stdDev,
+            robotPose.getRotation());
+    return new TagFrame(timestamp, estimate, seenTags.size(), avgDistance, seenTags.toArray(Pose3d[]::new));
+  }
+
+  private NoteFrame captureNotes(double timestamp, Pose2d robotPose) {
+    Pose3d cameraPose = new Pose3d(robotPose).transformBy(Constants.ROBOT_TO_NOTE_CAMERA);
+    double focalX = noteCamera.widthPx() / 2.0 / Math.tan(Units.degreesToRadians(noteCamera.horizontalFovDeg()) / 2.0);
+    double focalY = noteCamera.heightPx() / 2.0 / Math.tan(Units.degreesToRadians(noteCamera.verticalFovDeg()) / 2.0);
+
+    List<double[]> detections = new ArrayList<>();
+    double[] best = null;
+    for (Translation2d note : notesSupplier.get()) {
+      Translation3d inCamera =
+          new Pose3d(new Translation3d(note.getX(), note.getY(), Constants.NOTE_HEIGHT / 2.0), new Rotation3d())
+              .relativeTo(cameraPose)
+              .getTranslation();
+      if (!inFieldOfView(inCamera, noteCamera)) {
+        continue;
+      }
+
+      // Limelight angles are positive to the right and up
+      double tx = -Math.toDegrees(Math.atan2(inCamera.getY(), inCamera.getX()))
+          + random.nextGaussian() * noteCamera.angleNoiseDeg();
+      double ty = Math.toDegrees(Math.atan2(inCamera.getZ(), inCamera.getX()))
+          + random.nextGaussian() * noteCamera.angleNoiseDeg();
+
+      // Bounding box of the ring, from the top and bottom of its near, far, left and right edges
+      double minU = Double.POSITIVE_INFINITY;
+      double maxU = Double.NEGATIVE_INFINITY;
+      double minV = Double.POSITIVE_INFINITY;
+      double maxV = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < 8; i++) {
+        Translation2d edge = note.plus(new Translation2d(Constants.NOTE_RADIUS, Rotation2d.fromDegrees(90.0 * (i % 4))));
+        Translation3d edgeInCamera =
+            new Pose3d(new Translation3d(edge.getX(), edge.getY(), i < 4 ? 0.0 : Constants.NOTE_HEIGHT), new Rotation3d())
+                .relativeTo(cameraPose)
+                .getTranslation();
+        if (edgeInCamera.getX() <= 0.0) {
+          continue;
+        }
+        double u = noteCamera.widthPx() / 2.0 - focalX * edgeInCamera.getY() / edgeInCamera.getX();
+        double v = noteCamera.heightPx() / 2.0 - focalY * edgeInCamera.getZ() / edgeInCamera.getX();
+        minU = Math.min(minU, u);
+        maxU = Math.max(maxU, u);
+        minV = Math.min(minV, v);
+        maxV = Math.max(maxV, v);
+      }
+      minU = Math.max(minU, 0.0);
+      maxU = Math.min(maxU, noteCamera.widthPx());
+      minV = Math.max(minV, 0.0);
+      maxV = Math.min(maxV, noteCamera.heightPx());
+      double ta = 100.0 * (maxU - minU) * (maxV - minV) / (noteCamera.widthPx() * noteCamera.heightPx());
+
+      double[] detection = {
+        0, tx, ty, ta, minU, minV, maxU, minV, maxU, maxV, minU, maxV
+      };
+      detections.add(detection);
+      if (best == null || ta > best[3]) {
+        best = detection;
+      }
+    }
+
+    double[] rawDetections = new double[detections.size() * 12];
+    for (int i = 0; i < detections.size(); i++) {
+      System.arraycopy(detections.get(i), 0, rawDetections, i * 12, 12);
+    }
+    return best == null
+        ? new NoteFrame(timestamp, rawDetections, 0.0, 0.0, 0.0)
+        : new NoteFrame(timestamp, rawDetections, best[1], best[2], best[3]);
+  }
+
+  private void publishNoteFrame(NoteFrame frame) {
+    noteTable.getEntry("tv").setDouble(frame.rawDetections().length > 0 ? 1.0 : 0.0);
+    noteTable.getEntry("tx").setDouble(frame.tx());
+    noteTable.getEntry("ty").setDouble(frame.ty());
+    noteTable.getEntry("ta").setDouble(frame.ta());
+    noteTable.getEntry("tl").setDouble(noteCamera.latencyMs());
+    noteTable.getEntry("rawdetections").setDoubleArray(frame.rawDetections());
+    noteTable.getEntry("hb").setDouble(++noteHeartbeat);
+  }
+
+  private static boolean inFieldOfView(Translation3d inCamera, CameraProperties camera) {
+    if (inCamera.getX() <= 0.0 || inCamera.getNorm() > camera.maxRangeMeters()) {
+      return false;
+    }
+    double yawDeg = Math.toDegrees(Math.atan2(inCamera.getY(), inCamera.getX()));
+    double pitchDeg = Math.toDegrees(Math.atan2(inCamera.getZ(), inCamera.getX()));
+    return Math.abs(yawDeg) <= camera.horizontalFovDeg() / 2.0
+        && Math.abs(pitchDeg) <= camera.verticalFovDeg() / 2.0;
+  }
+}
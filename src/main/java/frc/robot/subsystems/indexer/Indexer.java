@@ -4,11 +4,11 @@
 
 package frc.robot.subsystems.indexer;
 
-import org.littletonrobotics.junction.AutoLogOutput;
 import org.littletonrobotics.junction.Logger;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.util.LoggingPolicy;
 
 public class Indexer extends SubsystemBase {
 
@@ -37,6 +37,7 @@ public class Indexer extends SubsystemBase {
   public void periodic() {
     io.updateInputs(inputs);
     Logger.processInputs("Indexer/IO", inputs);
+    LoggingPolicy.record("Indexer/CAN Disconnect", getDisconnect());
   }
 
     public void setIndexerSpeed(double speed){
@@ -51,7 +52,6 @@ public class Indexer extends SubsystemBase {
     return io.getIndexerState();
   }
 
-  @AutoLogOutput(key = "Indexer/CAN Disconnect")
   public boolean getDisconnect() {
     return io.getDisconnect();
   }
@@ -4,33 +4,48 @@
 
 package frc.robot.subsystems.indexer;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.system.plant.LinearSystemId;
 import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 import frc.robot.Constants;
+import frc.robot.util.NoteSimulator;
 
-/** Add your docs here. */
+/** Sim implementation of indexer IO, the beam breaks come from the simulated note world. */
 public class IndexerIOSim implements IndexerIO {
     public static final double LOOP_PERIOD_SECS = 0.02;
 
+    private final NoteSimulator noteSimulator;
+
     private double indexerAppliedVolts = 0.0;
 
     private DCMotorSim indexerMotorSim = new DCMotorSim(LinearSystemId.createDCMotorSystem(DCMotor.getNEO(1), 0.1 ,Constants.INDEXER_MOTOR_GEAR_RATIO), 
         DCMotor.getNEO(1));
 
+    public IndexerIOSim(NoteSimulator noteSimulator) {
+        this.noteSimulator = noteSimulator;
+    }
+
     public void updateInputs(IndexerIOInputs inputs) {
         indexerMotorSim.update(LOOP_PERIOD_SECS);
         inputs.indexerAppliedVolts = indexerAppliedVolts;
+        inputs.indexerCurrentAmps = Math.abs(indexerMotorSim.getCurrentDrawAmps());
+        inputs.indexerState = noteSimulator.getIndexerBeamBreak();
     }
 
+    public boolean getIndexerState() {
+        return noteSimulator.getIndexerBeamBreak();
+    }
 
+    /** Speed is a duty cycle, the same as on the real SparkMax. */
     public void setIndexerSpeed(double speed){
-        indexerAppliedVolts = speed / 12;
-        indexerMotorSim.setInputVoltage(speed / 12);
+        indexerAppliedVolts = MathUtil.clamp(speed * 12.0, -12.0, 12.0);
+        indexerMotorSim.setInputVoltage(indexerAppliedVolts);
+        noteSimulator.setIndexerVolts(indexerAppliedVolts);
     }
 
     public void stopIndexer(){
-        indexerMotorSim.setInputVoltage(0);
+        setIndexerSpeed(0.0);
     }
 
-}
\ No newline at end of file
+}
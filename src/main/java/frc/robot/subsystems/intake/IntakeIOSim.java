@@ -9,16 +9,22 @@ import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.system.plant.LinearSystemId;
 import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 import frc.robot.Constants;
+import frc.robot.util.NoteSimulator;
 
-/** Add your docs here. */
+/** Sim implementation of intake IO, the beam break comes from the simulated note world. */
 public class IntakeIOSim implements IntakeIO{
     private static final double LOOP_PERIOD_SECS = 0.02;
 
+    private final NoteSimulator noteSimulator;
+
     private double intakeAppliedVolts = 0.0;
 
     private DCMotorSim intakeMotorSim = new DCMotorSim(LinearSystemId.createDCMotorSystem(DCMotor.getNEO(1), 0.1 ,Constants.INTAKE_MOTOR_GEAR_RATIO), 
         DCMotor.getNEO(1));
-    
+
+    public IntakeIOSim(NoteSimulator noteSimulator) {
+        this.noteSimulator = noteSimulator;
+    }
 
     @Override
     public void updateInputs(IntakeIOInputs inputs) {
@@ -26,10 +32,17 @@ public class IntakeIOSim implements IntakeIO{
 
         inputs.intakeAppliedVolts = intakeAppliedVolts;
         inputs.intakeCurrentAmps = Math.abs(intakeMotorSim.getCurrentDrawAmps());
+        inputs.noteInIntake = noteSimulator.getIntakeBeamBreak();
     }
 
-    public void setIntakeSpeed(double volts){
-        intakeAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+    /** Speed is a duty cycle, the same as on the real SparkMax. */
+    public void setIntakeSpeed(double velocity){
+        intakeAppliedVolts = MathUtil.clamp(velocity * 12.0, -12.0, 12.0);
         intakeMotorSim.setInputVoltage(intakeAppliedVolts);
+        noteSimulator.setIntakeVolts(intakeAppliedVolts);
+    }
+
+    public void stopIntake() {
+        setIntakeSpeed(0.0);
     }
 }
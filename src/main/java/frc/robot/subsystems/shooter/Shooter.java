@@ -12,6 +12,7 @@ import org.littletonrobotics.junction.Logger;
 
 import com.ctre.phoenix6.SignalLogger;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.interpolation.InterpolatingDoubleTreeMap;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.NetworkTable;
@@ -24,6 +25,8 @@ import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.robot.Constants;
 import frc.robot.RobotContainer.shootPositions;
 import frc.robot.subsystems.indexer.Indexer;
+import frc.robot.util.FeedforwardEstimator;
+import frc.robot.util.LoggingPolicy;
 import frc.robot.util.NoteVisualizer;
 
 /** Add your docs here. */
@@ -37,6 +40,7 @@ public class Shooter extends SubsystemBase {
     private Indexer indexer;
 
     private final SysIdRoutine sysId;
+    private final FeedforwardEstimator feedforwardEstimator = new FeedforwardEstimator("Shooter/FeedforwardEstimate", 1.0);
     public double m_velocitySetpoint;
     private double m_angle;
     private double m_height;
@@ -60,7 +64,8 @@ public class Shooter extends SubsystemBase {
 
                 break;
         }
-        SignalLogger.setPath("/media/sda1/");
+        // Same USB stick as the AdvantageKit logs, only written while a SysId routine runs
+        SignalLogger.setPath("/U/");
         this.indexer = indexer;
 
         setAngleMap();
@@ -74,7 +79,6 @@ public class Shooter extends SubsystemBase {
               null,
               (state) -> SignalLogger.writeString("state", state.toString())),
             new SysIdRoutine.Mechanism((voltage) -> runVolts(voltage.in(Volts)), null, this));
-            SignalLogger.start();
     }
 
     private double armOffset = 0.35;
@@ -110,9 +114,11 @@ public class Shooter extends SubsystemBase {
     public void periodic() {
         io.updateInputs(inputs);
         Logger.processInputs("Shooter/IO", inputs);
+        feedforwardEstimator.update(inputs.shooterVoltage.in(Volts), inputs.shooterVelocityMPS.in(RotationsPerSecond));
 
         Logger.recordOutput("Shooter/Angle", Units.radiansToDegrees(m_angle));
         Logger.recordOutput("Shooter/Height", m_height);
+        LoggingPolicy.record("Shooter/CAN Disconnect", getDisconnect());
     }
 
         /** Run open loop at the specified voltage. */
@@ -199,11 +205,14 @@ public class Shooter extends SubsystemBase {
     io.setVoltage(voltage);
   }
   
-  @AutoLogOutput(key = "Shooter/CAN Disconnect")
   public boolean getDisconnect(){
     return io.getDisconnect();
   }
 
+  public double getFlywheelVelocity() {
+    return inputs.shooterVelocityMPS.in(RotationsPerSecond);
+  }
+
   public boolean flywheelUpToSpeed(double mps){
     return inputs.shooterVelocityMPS.gte(RotationsPerSecond.of(mps*.95));
   }
@@ -213,22 +222,85 @@ public class Shooter extends SubsystemBase {
     return false;
   }
 
-  public void idleFlywheels(shootPositions armPosition) {
-    if (indexer.noteInIndexer() && !armPosition.equals(shootPositions.AMP)) {
-      setFlywheelSpeed(10);
-    } else {
+  private static final double IDLE_SPEED_MPS = 10.0;
+  // Roughly how long the flywheels take per m/s of speed gained, from idle to a 25 m/s shot in 0.6 s
+  private static final double SPINUP_SECS_PER_MPS = 0.6 / 15.0;
+  // Extra margin so the flywheels are at speed a little before the robot is in range
+  private static final double PRESPIN_LEAD_SECS = 0.3;
+  // Holding full speed costs a few amps, so a sagging battery only pre-spins part way
+  private static final double FULL_PRESPIN_VOLTS = 11.5;
+  private static final double NO_PRESPIN_VOLTS = 10.5;
+
+  /**
+   * Returns the flywheel speed the next shot from a shoot position will need. Positions without
+   * their own speaker shot are aimed from anywhere, at the auto shoot speed.
+   */
+  public double predictShotSpeed(shootPositions armPosition) {
+    if (armPosition.getShootSpeed() <= 0.0 || armPosition.equals(shootPositions.LOB)) {
+      return Constants.AUTO_SHOOT_SPEED_MPS;
+    }
+    return armPosition.getShootSpeed();
+  }
+
+  /**
+   * Idles the flywheels while holding a note, and ramps them up to the predicted shot speed as the
+   * robot approaches the speaker, so they are at speed by the time it is in range. The ramp starts
+   * when the time until the robot is in range drops below the time the flywheels need to spin up,
+   * and is scaled back on a low battery.
+   *
+   * @param distanceMeters Distance to the speaker
+   * @param closingVelocityMPS Speed toward the speaker, negative when driving away
+   * @param armPosition Selected shoot position
+   */
+  public void preSpinFlywheels(double distanceMeters, double closingVelocityMPS, shootPositions armPosition) {
+    if (!indexer.noteInIndexer() || armPosition.equals(shootPositions.AMP)) {
+      Logger.recordOutput("Shooter/PreSpin/TargetMPS", 0.0);
       stopFlywheel();
+      return;
     }
+
+    double shotSpeed = predictShotSpeed(armPosition);
+    double spinupSecs = Math.max(0.0, shotSpeed - IDLE_SPEED_MPS) * SPINUP_SECS_PER_MPS;
+    double secsToRange;
+    if (distanceMeters <= Constants.SPEAKER_PRESPIN_RANGE) {
+      secsToRange = 0.0;
+    } else if (closingVelocityMPS > 0.1) {
+      secsToRange = (distanceMeters - Constants.SPEAKER_PRESPIN_RANGE) / closingVelocityMPS;
+    } else {
+      secsToRange = Double.POSITIVE_INFINITY;
+    }
+
+    // Full speed once in range within the spin up time, then back to idle over another spin up time
+    double ramp = 1.0;
+    if (spinupSecs > 0.0) {
+      ramp = MathUtil.clamp(1.0 - (secsToRange - spinupSecs - PRESPIN_LEAD_SECS) / spinupSecs, 0.0, 1.0);
+    }
+    double batteryScale =
+        MathUtil.clamp(
+            (inputs.batteryVolts - NO_PRESPIN_VOLTS) / (FULL_PRESPIN_VOLTS - NO_PRESPIN_VOLTS),
+            0.0,
+            1.0);
+    double target = IDLE_SPEED_MPS + Math.max(0.0, shotSpeed - IDLE_SPEED_MPS) * ramp * batteryScale;
+
+    Logger.recordOutput("Shooter/PreSpin/SecsToRange", Math.min(secsToRange, 99.0));
+    Logger.recordOutput("Shooter/PreSpin/BatteryScale", batteryScale);
+    Logger.recordOutput("Shooter/PreSpin/TargetMPS", target);
+    setFlywheelSpeed(target);
   }
 
   /** Returns a command to run a quasistatic test in the specified direction. */
   public Command sysIdQuasistatic(SysIdRoutine.Direction direction) {
-    return sysId.quasistatic(direction);
+    return withSignalLogger(sysId.quasistatic(direction));
   }
 
   /** Returns a command to run a dynamic test in the specified direction. */
   public Command sysIdDynamic(SysIdRoutine.Direction direction) {
-    return sysId.dynamic(direction);
+    return withSignalLogger(sysId.dynamic(direction));
+  }
+
+  /** Runs the Phoenix signal logger only while a SysId test runs, it's otherwise unused. */
+  private static Command withSignalLogger(Command command) {
+    return command.beforeStarting(SignalLogger::start).finallyDo(SignalLogger::stop);
   }
 
   /** Returns a command that launches a note. */
@@ -27,6 +27,8 @@ public interface ShooterIO {
         public Measure<CurrentUnit> shooterCurrentAmps = Amp.of(0.0);
         public Measure<AngleUnit> motorPosition = Rotations.of(0.0);
         public Measure<AngularVelocityUnit> motorSetpoint = RotationsPerSecond.of(0.0);
+        // Logged here so the pre-spin ramp replays with the voltage the robot saw
+        public double batteryVolts = 12.0;
     }
     
     /** Run open loop at the specified voltage. */
@@ -24,6 +24,7 @@ import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.units.measure.Voltage;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.RobotController;
 import frc.robot.Constants;
 
 /** Add your docs here. */
@@ -109,6 +110,7 @@ public class ShooterIOReal implements ShooterIO {
         inputs.shooterVoltage = Volts.of(m_leftFlywheel.getMotorVoltage().getValueAsDouble());
         inputs.motorPosition = Rotations.of(m_leftFlywheel.getPosition().getValueAsDouble());
         inputs.motorSetpoint = RotationsPerSecond.of(m_request.Velocity * Constants.FLYWHEEL_CIRCUMFERENCE);
+        inputs.batteryVolts = RobotController.getBatteryVoltage();
 
         shooterDisconnectAlert.set(!position.getStatus().isOK());
     }
@@ -11,6 +11,7 @@ import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 import frc.robot.Constants;
 
@@ -29,6 +30,7 @@ public class ShooterIOSim implements ShooterIO{
 
         inputs.shooterVelocityMPS = RotationsPerSecond.of(shooterMotorSim.getAngularVelocityRPM() * Constants.FLYWHEEL_CIRCUMFERENCE / 60);
         inputs.shooterCurrentAmps = Amp.of(shooterMotorSim.getCurrentDrawAmps());
+        inputs.batteryVolts = RobotController.getBatteryVoltage();
         
         shooterMotorSim.setInputVoltage(
             shooterFeedforward.calculate(RotationsPerSecond.of(shooterFeedback.getSetpoint()),
@@ -0,0 +1,148 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.shooter;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.subsystems.arm.Arm;
+import frc.robot.subsystems.arm.ArmTrajectoryPlanner;
+
+/**
+ * Predicts when the flywheels and arm will be ready to shoot, so the indexer can start feeding
+ * early and the note reaches the flywheels just as they are ready, instead of only starting once
+ * both are already there.
+ *
+ * <p>The flywheels are modeled as a first order system under velocity control, and the arm as
+ * following the profile {@link ArmTrajectoryPlanner} plans for the move, from its current
+ * velocity. The feed starts once the predicted time until both are ready drops below the time the
+ * note takes to travel from the indexer to the flywheels, and stays on until {@link #reset()}.
+ * Each shot logs how far ahead of ready the feed started under the given key, so
+ * {@link #NOTE_TRAVEL_SECS} can be tuned from logs.
+ */
+public class ShotReadinessPredictor {
+    // Same threshold as Shooter.flywheelUpToSpeed
+    private static final double READY_FRACTION = 0.95;
+    // Flywheels reach 95% of a step from idle to a 25 m/s shot in about 0.6 s
+    private static final double FLYWHEEL_TIME_CONSTANT_SECS = 0.24;
+    private static final double ARM_SETTLE_SECS = 0.04;
+    // Indexer to flywheel contact at the feed speed, plus a loop of latency
+    private static final double NOTE_TRAVEL_SECS = 0.08 + 0.02;
+    private static final double VELOCITY_FILTER_GAIN = 0.5;
+
+    private final String key;
+    private final Shooter shooter;
+    private final Arm arm;
+
+    private double lastArmPosition = Double.NaN;
+    private double lastTimestamp = Double.NaN;
+    private double armVelocity = 0.0;
+    private double timeToReadySecs = Double.POSITIVE_INFINITY;
+    private boolean feeding = false;
+    private double feedStartTimestamp = Double.NaN;
+    private boolean readyLogged = false;
+
+    public ShotReadinessPredictor(String key, Shooter shooter, Arm arm) {
+        this.key = key;
+        this.shooter = shooter;
+        this.arm = arm;
+    }
+
+    /** Clears the state for a new shot. Call when the shoot command starts. */
+    public void reset() {
+        lastArmPosition = Double.NaN;
+        lastTimestamp = Double.NaN;
+        armVelocity = 0.0;
+        timeToReadySecs = Double.POSITIVE_INFINITY;
+        feeding = false;
+        feedStartTimestamp = Double.NaN;
+        readyLogged = false;
+    }
+
+    /**
+     * Updates the prediction. Call once per loop while shooting.
+     *
+     * @param targetMPS Flywheel speed the shot needs
+     * @return Whether the indexer should be feeding
+     */
+    public boolean update(double targetMPS) {
+        double now = Timer.getFPGATimestamp();
+        double armPosition = arm.getArmEncoderRotation();
+        if (!Double.isNaN(lastTimestamp) && now > lastTimestamp) {
+            double measured = (armPosition - lastArmPosition) / (now - lastTimestamp);
+            armVelocity += VELOCITY_FILTER_GAIN * (measured - armVelocity);
+        }
+        lastArmPosition = armPosition;
+        lastTimestamp = now;
+
+        double flywheelSecs = flywheelTimeToReady(shooter.getFlywheelVelocity(), targetMPS);
+        double armSecs =
+            armTimeToReady(
+                arm.getArmSetpoint() - armPosition,
+                armVelocity,
+                ArmTrajectoryPlanner.constraints(armPosition, arm.getArmSetpoint()));
+        timeToReadySecs = Math.max(flywheelSecs, armSecs);
+
+        if (!feeding && timeToReadySecs <= NOTE_TRAVEL_SECS) {
+            feeding = true;
+            feedStartTimestamp = now;
+        }
+        boolean ready = shooter.flywheelUpToSpeed(targetMPS) && arm.armAtSetpoint();
+        if (ready && !readyLogged) {
+            // Positive when the feed started ahead of the flywheels and arm being ready
+            Logger.recordOutput(key + "/FeedLeadSecs", feeding ? now - feedStartTimestamp : 0.0);
+            readyLogged = true;
+        }
+        // Never hold a note back once everything is already ready
+        feeding |= ready;
+
+        Logger.recordOutput(key + "/FlywheelSecs", Math.min(flywheelSecs, 99.0));
+        Logger.recordOutput(key + "/ArmSecs", Math.min(armSecs, 99.0));
+        Logger.recordOutput(key + "/TimeToReadySecs", Math.min(timeToReadySecs, 99.0));
+        Logger.recordOutput(key + "/Feeding", feeding);
+        return feeding;
+    }
+
+    public double getTimeToReadySecs() {
+        return timeToReadySecs;
+    }
+
+    /** Time for a first order flywheel to reach the ready fraction of the target. */
+    private static double flywheelTimeToReady(double velocity, double target) {
+        double threshold = READY_FRACTION * target;
+        if (velocity >= threshold) {
+            return 0.0;
+        }
+        return FLYWHEEL_TIME_CONSTANT_SECS * Math.log((target - velocity) / (target - threshold));
+    }
+
+    /**
+     * Time for the arm to cover the remaining error along its profile, starting from its current
+     * velocity and ending at rest.
+     */
+    private static double armTimeToReady(double error, double velocity, TrapezoidProfile.Constraints constraints) {
+        double distance = Math.abs(error);
+        if (distance <= Constants.ARM_SETPOINT_TOLERANCE_ROTATIONS) {
+            return 0.0;
+        }
+        double accel = constraints.maxAcceleration;
+        double cruise = constraints.maxVelocity;
+        // Speed toward the setpoint, moving away is treated as starting from rest
+        double speed = Math.max(0.0, Math.signum(error) * velocity);
+
+        if (speed * speed / (2.0 * accel) >= distance) {
+            // Already braking
+            return 2.0 * distance / speed + ARM_SETTLE_SECS;
+        }
+        // Accelerate to the peak speed, cruise if the peak is capped, then brake
+        double peak = Math.min(cruise, Math.sqrt(accel * distance + speed * speed / 2.0));
+        double accelDistance = (peak * peak - speed * speed) / (2.0 * accel);
+        double brakeDistance = peak * peak / (2.0 * accel);
+        double cruiseSecs = Math.max(0.0, distance - accelDistance - brakeDistance) / cruise;
+        return (peak - speed) / accel + cruiseSecs + peak / accel + ARM_SETTLE_SECS;
+    }
+}
@@ -0,0 +1,259 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.wpilog.WPILOGWriter;
+
+import frc.robot.util.Alert.AlertType;
+
+/**
+ * Log file sink that keeps USB writes off the logging thread, and keeps the USB stick healthy.
+ *
+ * <p>AdvantageKit hands every cycle's table to {@link #putTable} on its receiver thread. Tables go
+ * into a bounded queue and a writer thread drains it in batches into a {@link WPILOGWriter}, so a
+ * slow stick only fills the queue. Once the queue is half full, keys under the low priority
+ * prefixes are stripped from new tables. Only outputs should be marked low priority, inputs are
+ * needed for replay. A full queue drops whole tables. A new file is started after
+ * {@link #ROTATE_SECS} while disabled, so a long day of testing isn't one huge file. When the stick
+ * runs low on space the oldest logs are deleted, and if that isn't enough logging stops. The stick
+ * is checked every {@link #SPACE_CHECK_SECS} even while nothing is being written, so logging
+ * resumes once space is freed or the stick is plugged back in.
+ *
+ * <p>The writer thread only publishes counters. {@link #periodic()} logs them under Logging/ and
+ * raises alerts for a slow, full or missing stick. Call it from robotPeriodic.
+ */
+public class AsyncLogWriter implements LogDataReceiver {
+  private static final int QUEUE_CAPACITY = 250; // 5 s of cycles
+  private static final int LOW_PRIORITY_DROP_DEPTH = QUEUE_CAPACITY / 2;
+  private static final double SLOW_WRITE_MS = 20.0;
+  private static final double ROTATE_SECS = 20.0 * 60.0;
+  private static final long LOW_SPACE_BYTES = 500L * 1024 * 1024;
+  private static final long MIN_SPACE_BYTES = 100L * 1024 * 1024;
+  private static final double SPACE_CHECK_SECS = 5.0;
+
+  private final String folder;
+  private final List<String> lowPriorityPrefixes;
+  private final BlockingQueue<LogTable> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+  private Thread writerThread = null;
+
+  // Only touched from the writer thread
+  private LogDataReceiver writer = null;
+  private double fileStartSecs = Double.NaN;
+  private long lastSpaceCheckNanos = 0;
+
+  // Published by the writer thread for periodic()
+  private volatile double lastWriteMs = 0.0;
+  private volatile double maxWriteMs = 0.0;
+  private volatile long freeBytes = Long.MAX_VALUE;
+  private volatile boolean full = false;
+  private volatile boolean available = true;
+  private volatile int filesRotated = 0;
+  private volatile int filesDeleted = 0;
+  private volatile long droppedTables = 0;
+  private volatile long strippedTables = 0;
+
+  private final Alert slowAlert = new Alert("Log USB stick is slow, dropping low priority logs.", AlertType.WARNING);
+  private final Alert lowSpaceAlert = new Alert("Log USB stick almost full, deleting old logs.", AlertType.WARNING);
+  private final Alert fullAlert = new Alert("Log USB stick full or missing, NOT logging.", AlertType.ERROR);
+  private final Alert queueAlert = new Alert("Logger queue overflowed, data was lost.", AlertType.ERROR);
+
+  /**
+   * Creates the writer.
+   *
+   * @param folder Folder to write logs to, usually the USB stick
+   * @param lowPriorityPrefixes Key prefixes that are dropped first when writes fall behind, without
+   *     the leading slash, e.g. "RealOutputs/SwerveStates/"
+   */
+  public AsyncLogWriter(String folder, String... lowPriorityPrefixes) {
+    this.folder = folder;
+    this.lowPriorityPrefixes = List.of(lowPriorityPrefixes);
+  }
+
+  @Override
+  public void start() {
+    writerThread = new Thread(this::run, "AsyncLogWriter");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  @Override
+  public void end() {
+    if (writerThread != null) {
+      writerThread.interrupt();
+      try {
+        writerThread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void putTable(LogTable table) {
+    if (full || !available) {
+      droppedTables++;
+      return;
+    }
+    if (queue.size() >= LOW_PRIORITY_DROP_DEPTH && !lowPriorityPrefixes.isEmpty()) {
+      table = withoutLowPriority(table);
+      strippedTables++;
+    }
+    if (!queue.offer(table)) {
+      droppedTables++;
+    }
+  }
+
+  private LogTable withoutLowPriority(LogTable table) {
+    LogTable filtered = new LogTable(table.getTimestamp());
+    for (Map.Entry<String, LogValue> entry : table.getAll(false).entrySet()) {
+      String key = entry.getKey().startsWith("/") ? entry.getKey().substring(1) : entry.getKey();
+      if (lowPriorityPrefixes.stream().noneMatch(key::startsWith)) {
+        filtered.put(key, entry.getValue());
+      }
+    }
+    return filtered;
+  }
+
+  private void run() {
+    List<LogTable> batch = new ArrayList<>(QUEUE_CAPACITY);
+    checkSpace();
+    openFile();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        // Wait for one table, then take everything else that piled up behind it. Tables stop
+        // arriving while the stick is full or missing, so don't wait longer than a space check.
+        LogTable first = queue.poll((long) (SPACE_CHECK_SECS * 1000), TimeUnit.MILLISECONDS);
+        if (System.nanoTime() - lastSpaceCheckNanos >= SPACE_CHECK_SECS * 1e9) {
+          checkSpace();
+        }
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch);
+        for (LogTable table : batch) {
+          write(table);
+        }
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      // Shutting down
+    } finally {
+      closeFile();
+    }
+  }
+
+  private void write(LogTable table) throws InterruptedException {
+    double timestampSecs = table.getTimestamp() / 1e6;
+    if (Double.isNaN(fileStartSecs)) {
+      fileStartSecs = timestampSecs;
+    }
+    // Only start a new file while disabled so a match stays in one file
+    if (timestampSecs - fileStartSecs > ROTATE_SECS && !table.get("DriverStation/Enabled", false)) {
+      closeFile();
+      openFile();
+      fileStartSecs = timestampSecs;
+      filesRotated++;
+    }
+
+    if (writer == null || full || !available) {
+      return;
+    }
+
+    long startNanos = System.nanoTime();
+    writer.putTable(table);
+    double writeMs = (System.nanoTime() - startNanos) / 1e6;
+    lastWriteMs = writeMs;
+    maxWriteMs = Math.max(maxWriteMs, writeMs);
+  }
+
+  private void openFile() {
+    if (full || !available) {
+      return;
+    }
+    writer = new WPILOGWriter(folder);
+    writer.start();
+  }
+
+  private void closeFile() {
+    if (writer != null) {
+      writer.end();
+      writer = null;
+    }
+  }
+
+  /** Updates the free space, deleting the oldest logs when it runs low. */
+  private void checkSpace() {
+    lastSpaceCheckNanos = System.nanoTime();
+    boolean wasWriting = available && !full;
+    File directory = new File(folder);
+    available = directory.isDirectory() && directory.canWrite();
+    if (!available) {
+      if (wasWriting) {
+        closeFile();
+      }
+      return;
+    }
+
+    freeBytes = directory.getUsableSpace();
+    if (freeBytes < LOW_SPACE_BYTES) {
+      File[] logs = directory.listFiles((dir, name) -> name.endsWith(".wpilog"));
+      if (logs != null && logs.length > 1) {
+        // Newest first, never delete the file being written
+        Arrays.sort(logs, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = logs.length - 1; i > 0 && directory.getUsableSpace() < LOW_SPACE_BYTES; i--) {
+          if (logs[i].delete()) {
+            filesDeleted++;
+          }
+        }
+      }
+      freeBytes = directory.getUsableSpace();
+    }
+    full = freeBytes < MIN_SPACE_BYTES;
+    if (full && wasWriting) {
+      closeFile();
+    } else if (!full && !wasWriting) {
+      openFile();
+      fileStartSecs = Double.NaN;
+    }
+  }
+
+  /** Logs the writer's health and updates its alerts. Call once per loop from the main thread. */
+  public void periodic() {
+    int queueDepth = queue.size();
+    boolean slow = maxWriteMs > SLOW_WRITE_MS || queueDepth >= LOW_PRIORITY_DROP_DEPTH;
+
+    Logger.recordOutput("Logging/QueueDepth", queueDepth);
+    Logger.recordOutput("Logging/LastWriteMs", lastWriteMs);
+    Logger.recordOutput("Logging/MaxWriteMs", maxWriteMs);
+    Logger.recordOutput("Logging/FreeMB", freeBytes == Long.MAX_VALUE ? -1.0 : freeBytes / 1024.0 / 1024.0);
+    Logger.recordOutput("Logging/DroppedTables", droppedTables);
+    Logger.recordOutput("Logging/StrippedTables", strippedTables);
+    Logger.recordOutput("Logging/FilesRotated", filesRotated);
+    Logger.recordOutput("Logging/FilesDeleted", filesDeleted);
+
+    slowAlert.set(slow);
+    lowSpaceAlert.set(freeBytes < LOW_SPACE_BYTES && !full);
+    fullAlert.set(full || !available);
+    queueAlert.set(Logger.getReceiverQueueFault() || droppedTables > 0);
+
+    // Max is per loop, so one slow write doesn't latch the alert
+    maxWriteMs = lastWriteMs;
+  }
+}
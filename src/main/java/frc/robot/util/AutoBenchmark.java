@@ -0,0 +1,192 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Headless, faster-than-real-time runner for the PathPlanner autos in deploy/pathplanner/autos.
+ *
+ * <p>Robot timing is disabled and the HAL sim clock is paused, then stepped by exactly one loop
+ * period per robot cycle, so every IOSim and every Timer based command sees the same clock no matter
+ * how fast the CPU runs the loop. Each auto is run once from a disabled robot and its completion
+ * time and end pose are reported. The program exits when all autos have run, with a non-zero exit
+ * code if any of them failed to load or did not finish in time.
+ *
+ * <p>Enabled by setting the AUTO_BENCHMARK environment variable to "all" or to a comma separated
+ * list of auto names, e.g. {@code ./gradlew simulateJava -PautoBenchmark=all}.
+ */
+public class AutoBenchmark {
+  private static final String ENV_VARIABLE = "AUTO_BENCHMARK";
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  private static final double AUTO_TIMEOUT_SECS = 15.0;
+  private static final double SETTLE_SECS = 0.5;
+
+  private enum State {
+    SETTLING,
+    RUNNING,
+    DONE
+  }
+
+  private record Result(String name, boolean finished, double durationSecs, Pose2d endPose, String error) {}
+
+  private final Supplier<Pose2d> poseSupplier;
+  private final Runnable fieldResetter;
+  private final List<String> autoNames;
+  private final List<Result> results = new ArrayList<>();
+
+  private State state = State.SETTLING;
+  private int autoIndex = 0;
+  private double stateStartTime = 0.0;
+  private Command autoCommand = null;
+
+  /** Returns true if the headless auto benchmark was requested for this run. */
+  public static boolean isRequested() {
+    String value = System.getenv(ENV_VARIABLE);
+    return value != null && !value.isBlank();
+  }
+
+  /**
+   * Creates the benchmark and takes over the HAL sim clock and driver station.
+   *
+   * @param poseSupplier Supplier of the robot pose reported at the end of each auto
+   * @param fieldResetter Puts the simulated game pieces back before each auto
+   */
+  public AutoBenchmark(Supplier<Pose2d> poseSupplier, Runnable fieldResetter) {
+    this.poseSupplier = poseSupplier;
+    this.fieldResetter = fieldResetter;
+    this.autoNames = findAutos(System.getenv(ENV_VARIABLE));
+
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(AllianceStationID.Blue1);
+    setEnabled(false);
+    stateStartTime = Timer.getFPGATimestamp();
+
+    System.out.println("[AutoBenchmark] Running " + autoNames.size() + " autos: " + autoNames);
+  }
+
+  /** Steps the sim clock by one loop and advances the benchmark. Call once per robot loop. */
+  public void periodic() {
+    SimHooks.stepTiming(LOOP_PERIOD_SECS);
+    double now = Timer.getFPGATimestamp();
+
+    switch (state) {
+      case SETTLING:
+        // Give the mechanisms a moment disabled so each auto starts from rest
+        if (now - stateStartTime < SETTLE_SECS) {
+          break;
+        }
+        if (autoIndex >= autoNames.size()) {
+          state = State.DONE;
+          finish();
+          break;
+        }
+        startAuto(autoNames.get(autoIndex), now);
+        break;
+
+      case RUNNING:
+        double elapsed = now - stateStartTime;
+        boolean finished = !autoCommand.isScheduled();
+        if (finished || elapsed >= AUTO_TIMEOUT_SECS) {
+          autoCommand.cancel();
+          setEnabled(false);
+          recordResult(new Result(autoNames.get(autoIndex), finished, elapsed, poseSupplier.get(), ""));
+          autoIndex++;
+          state = State.SETTLING;
+          stateStartTime = now;
+        }
+        break;
+
+      case DONE:
+      default:
+        break;
+    }
+  }
+
+  private void startAuto(String name, double now) {
+    try {
+      autoCommand = PathCache.getInstance().getAuto(name);
+    } catch (Exception e) {
+      recordResult(new Result(name, false, 0.0, poseSupplier.get(), e.toString()));
+      autoIndex++;
+      stateStartTime = now;
+      return;
+    }
+
+    fieldResetter.run();
+    DriverStationSim.setAutonomous(true);
+    setEnabled(true);
+    autoCommand.schedule();
+    state = State.RUNNING;
+    stateStartTime = now;
+  }
+
+  private void recordResult(Result result) {
+    results.add(result);
+    Logger.recordOutput("AutoBenchmark/" + result.name() + "/Finished", result.finished());
+    Logger.recordOutput("AutoBenchmark/" + result.name() + "/DurationSecs", result.durationSecs());
+    Logger.recordOutput("AutoBenchmark/" + result.name() + "/EndPose", result.endPose());
+    System.out.println(
+        String.format(
+            "[AutoBenchmark] %-24s %-9s %6.2f s  end pose (%.2f, %.2f, %.1f deg) %s",
+            result.name(),
+            result.finished() ? "finished" : (result.error().isEmpty() ? "TIMEOUT" : "ERROR"),
+            result.durationSecs(),
+            result.endPose().getX(),
+            result.endPose().getY(),
+            result.endPose().getRotation().getDegrees(),
+            result.error()));
+  }
+
+  private void finish() {
+    boolean allFinished = results.stream().allMatch(Result::finished);
+    System.out.println(
+        "[AutoBenchmark] Done, "
+            + results.stream().filter(Result::finished).count()
+            + "/"
+            + results.size()
+            + " autos finished");
+
+    Logger.end();
+    System.exit(allFinished ? 0 : 1);
+  }
+
+  private static void setEnabled(boolean enabled) {
+    DriverStationSim.setEnabled(enabled);
+    DriverStationSim.notifyNewData();
+  }
+
+  /** Lists the autos to run, either every .auto file or the requested comma separated names. */
+  private static List<String> findAutos(String request) {
+    if (request != null && !request.trim().equalsIgnoreCase("all")) {
+      return Arrays.stream(request.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    File autoDir = new File(Filesystem.getDeployDirectory(), "pathplanner/autos");
+    File[] files = autoDir.listFiles((dir, name) -> name.endsWith(".auto"));
+    if (files == null) {
+      return List.of();
+    }
+    return Arrays.stream(files)
+        .map(file -> file.getName().substring(0, file.getName().lastIndexOf('.')))
+        .sorted()
+        .toList();
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Logs a boolean under Commands/ for each command while it runs, so logs can be searched by
+ * command.
+ *
+ * <p>The scheduler only reports top level commands, so the commands worth querying inside autos
+ * also report themselves from initialize and end. Both go through here, and each name is only
+ * logged when it starts or stops running, however many times it is reported. Only call from the
+ * main thread.
+ */
+public class CommandLog {
+  private static final Map<String, Integer> running = new HashMap<>();
+
+  private CommandLog() {}
+
+  /** Reports every command the scheduler runs. Call once at startup. */
+  public static void logScheduledCommands() {
+    CommandScheduler.getInstance().onCommandInitialize(CommandLog::started);
+    CommandScheduler.getInstance().onCommandFinish(CommandLog::ended);
+    CommandScheduler.getInstance().onCommandInterrupt(CommandLog::ended);
+  }
+
+  public static void started(Command command) {
+    started(command.getName());
+  }
+
+  public static void ended(Command command) {
+    ended(command.getName());
+  }
+
+  /** Marks a command as running, e.g. from its initialize. */
+  public static void started(String name) {
+    if (running.merge(name, 1, Integer::sum) == 1) {
+      Logger.recordOutput("Commands/" + name, true);
+    }
+  }
+
+  /** Marks a command as stopped, e.g. from its end. */
+  public static void ended(String name) {
+    Integer count = running.get(name);
+    if (count == null) {
+      return;
+    }
+    if (count <= 1) {
+      running.remove(name);
+      Logger.recordOutput("Commands/" + name, false);
+    } else {
+      running.put(name, count - 1);
+    }
+  }
+}
@@ -0,0 +1,232 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Estimates a mechanism's feedforward gains online with recursive least squares, from the voltage,
+ * velocity and gravity angle it already logs during normal use.
+ *
+ * <p>The model is volts = kS·sign(v) + kV·v + kA·a (+ kG·cos θ for arms). Each loop's voltage is
+ * paired with the velocity change it caused by the next loop, and with the average velocity over
+ * that loop. Every term goes through the same low-pass filter, which smooths the differenced
+ * acceleration without the filter lag biasing the fit. Samples are only used while the mechanism
+ * is moving and powered, so coasting and standing still don't drag kS and kV towards zero. A
+ * forgetting factor keeps roughly the last ten seconds of motion, so the estimates follow slow
+ * changes like a warm motor or a worn gearbox. Everything is preallocated, so {@link #update} is
+ * safe to call every loop. The estimates and the prediction residual are logged under the key
+ * given to the constructor.
+ */
+public class FeedforwardEstimator {
+  // Weight of old samples, 0.998 at 50 Hz is a time constant of about ten seconds
+  private static final double FORGETTING_FACTOR = 0.998;
+  private static final double INITIAL_COVARIANCE = 100.0;
+  // Stops the covariance from growing without bound while the mechanism isn't excited
+  private static final double MAX_COVARIANCE_TRACE = 1e4;
+  private static final double MIN_VOLTS = 0.5;
+  private static final double FILTER_GAIN = 0.3;
+  private static final double MAX_DT_SECS = 0.1;
+
+  private final int size;
+  private final double minVelocity;
+  private final double[] theta;
+  private final double[] covariance; // Row major, size x size
+  private final double[] regressors;
+  // Filtered volts followed by the filtered regressors
+  private final double[] filtered;
+  private final double[] covarianceRegressors;
+
+  private final String kSKey;
+  private final String kVKey;
+  private final String kAKey;
+  private final String kGKey;
+  private final String samplesKey;
+  private final String residualKey;
+
+  private double lastVolts = 0.0;
+  private double lastVelocity = Double.NaN;
+  private double lastGravityCos = 0.0;
+  private double lastTimestamp = Double.NaN;
+  private boolean filterPrimed = false;
+  private double residual = 0.0;
+  private long samples = 0;
+
+  /**
+   * Creates an estimator without a gravity term, for flywheels and drive modules.
+   *
+   * @param key Log key the estimates are recorded under
+   * @param minVelocity Slowest velocity a sample is used at, in the mechanism's units
+   */
+  public FeedforwardEstimator(String key, double minVelocity) {
+    this(key, minVelocity, false);
+  }
+
+  /**
+   * Creates an estimator.
+   *
+   * @param key Log key the estimates are recorded under
+   * @param minVelocity Slowest velocity a sample is used at, in the mechanism's units
+   * @param gravity Whether to estimate kG, for arms
+   */
+  public FeedforwardEstimator(String key, double minVelocity, boolean gravity) {
+    this.minVelocity = minVelocity;
+    size = gravity ? 4 : 3;
+    theta = new double[size];
+    covariance = new double[size * size];
+    regressors = new double[size];
+    filtered = new double[size + 1];
+    covarianceRegressors = new double[size];
+
+    kSKey = key + "/kS";
+    kVKey = key + "/kV";
+    kAKey = key + "/kA";
+    kGKey = key + "/kG";
+    samplesKey = key + "/Samples";
+    residualKey = key + "/ResidualVolts";
+    reset();
+  }
+
+  /** Forgets every sample and starts the estimates over from zero. */
+  public void reset() {
+    for (int i = 0; i < size; i++) {
+      theta[i] = 0.0;
+      for (int j = 0; j < size; j++) {
+        covariance[i * size + j] = i == j ? INITIAL_COVARIANCE : 0.0;
+      }
+    }
+    lastVolts = 0.0;
+    lastVelocity = Double.NaN;
+    lastGravityCos = 0.0;
+    lastTimestamp = Double.NaN;
+    filterPrimed = false;
+    residual = 0.0;
+    samples = 0;
+  }
+
+  /**
+   * Adds a sample. Call once per loop with the measured values.
+   *
+   * @param volts Voltage applied to the motor
+   * @param velocity Measured velocity
+   */
+  public void update(double volts, double velocity) {
+    update(volts, velocity, 0.0);
+  }
+
+  /**
+   * Adds a sample. Call once per loop with the measured values.
+   *
+   * @param volts Voltage applied to the motor
+   * @param velocity Measured velocity
+   * @param gravityCos Cosine of the arm angle from horizontal, ignored without a gravity term
+   */
+  public void update(double volts, double velocity, double gravityCos) {
+    // Replay safe, the logged timestamp is the same when replaying
+    update(volts, velocity, gravityCos, Logger.getTimestamp() / 1e6);
+  }
+
+  /** Adds a sample taken at the given timestamp in seconds. */
+  void update(double volts, double velocity, double gravityCos, double timestamp) {
+    double dt = timestamp - lastTimestamp;
+    boolean valid = !Double.isNaN(lastVelocity) && dt > 0.0 && dt < MAX_DT_SECS;
+    if (valid) {
+      // The last voltage was applied over this loop, so it explains the change since then
+      double averageVelocity = (velocity + lastVelocity) / 2.0;
+      filter(0, lastVolts);
+      filter(1, Math.signum(averageVelocity));
+      filter(2, averageVelocity);
+      filter(3, (velocity - lastVelocity) / dt);
+      if (size > 3) {
+        filter(4, (gravityCos + lastGravityCos) / 2.0);
+      }
+      filterPrimed = true;
+
+      if (Math.abs(averageVelocity) >= minVelocity && Math.abs(lastVolts) >= MIN_VOLTS) {
+        System.arraycopy(filtered, 1, regressors, 0, size);
+        addSample(filtered[0]);
+      }
+    } else {
+      filterPrimed = false;
+    }
+    lastVolts = volts;
+    lastVelocity = velocity;
+    lastGravityCos = gravityCos;
+    lastTimestamp = timestamp;
+
+    Logger.recordOutput(kSKey, theta[0]);
+    Logger.recordOutput(kVKey, theta[1]);
+    Logger.recordOutput(kAKey, theta[2]);
+    if (size > 3) {
+      Logger.recordOutput(kGKey, theta[3]);
+    }
+    Logger.recordOutput(samplesKey, samples);
+    Logger.recordOutput(residualKey, residual);
+  }
+
+  private void filter(int index, double value) {
+    filtered[index] = filterPrimed ? filtered[index] + FILTER_GAIN * (value - filtered[index]) : value;
+  }
+
+  private void addSample(double volts) {
+    // P·φ and φᵀ·P·φ
+    double denominator = FORGETTING_FACTOR;
+    residual = volts;
+    for (int i = 0; i < size; i++) {
+      double sum = 0.0;
+      for (int j = 0; j < size; j++) {
+        sum += covariance[i * size + j] * regressors[j];
+      }
+      covarianceRegressors[i] = sum;
+      denominator += regressors[i] * sum;
+      residual -= regressors[i] * theta[i];
+    }
+
+    // θ += K·e with gain K = P·φ / (λ + φᵀ·P·φ)
+    for (int i = 0; i < size; i++) {
+      theta[i] += covarianceRegressors[i] / denominator * residual;
+    }
+
+    // P = (P - K·φᵀ·P) / λ, P stays symmetric so φᵀ·P = (P·φ)ᵀ
+    double trace = 0.0;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        covariance[i * size + j] =
+            (covariance[i * size + j] - covarianceRegressors[i] * covarianceRegressors[j] / denominator)
+                / FORGETTING_FACTOR;
+      }
+      trace += covariance[i * size + i];
+    }
+    if (trace > MAX_COVARIANCE_TRACE) {
+      double scale = MAX_COVARIANCE_TRACE / trace;
+      for (int i = 0; i < size * size; i++) {
+        covariance[i] *= scale;
+      }
+    }
+    samples++;
+  }
+
+  public double getKs() {
+    return theta[0];
+  }
+
+  public double getKv() {
+    return theta[1];
+  }
+
+  public double getKa() {
+    return theta[2];
+  }
+
+  /** Returns the gravity gain, or zero without a gravity term. */
+  public double getKg() {
+    return size > 3 ? theta[3] : 0.0;
+  }
+
+  /** Returns how many samples have been used since the last reset. */
+  public long getSamples() {
+    return samples;
+  }
+}
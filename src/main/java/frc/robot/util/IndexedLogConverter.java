@@ -0,0 +1,243 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+
+/**
+ * Converts WPILOG files into an indexed, columnar file that {@link IndexedLogReader} can query one
+ * key at a time without scanning the whole log.
+ *
+ * <p>Every key becomes two compressed columns. Timestamps are stored as zigzag varint deltas.
+ * Numeric values (double, float, int64, boolean) are stored as the XOR of their bits with the
+ * previous value, so slow signals compress to almost nothing. Everything else, including arrays
+ * and structs, is stored as length prefixed raw bytes. The file is the magic, the index length,
+ * the index with each column's offset, count and time range, then the column data.
+ *
+ * <p>Run {@link #main(String...)} with WPILOG files or folders, e.g. the /U folder copied off the
+ * stick after an event, with {@code ./gradlew convertLogs --args="logs"}. Each log gets a .tblidx next to it, skipped if it is already up to date.
+ * Phoenix hoot files have to be exported to WPILOG with owlet first.
+ */
+public class IndexedLogConverter {
+  static final byte[] MAGIC = "TBLIDX01".getBytes(StandardCharsets.US_ASCII);
+  static final String EXTENSION = ".tblidx";
+  static final Set<String> NUMERIC_TYPES = Set.of("double", "float", "int64", "boolean");
+
+  private IndexedLogConverter() {}
+
+  private static class Column {
+    final String name;
+    final String type;
+    final boolean numeric;
+    final ByteArrayOutputStream timestampBytes = new ByteArrayOutputStream();
+    final ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+    final DataOutputStream timestamps = new DataOutputStream(timestampBytes);
+    final DataOutputStream values = new DataOutputStream(valueBytes);
+    long lastTimestamp = 0;
+    long lastBits = 0;
+    int count = 0;
+    long firstTimestamp = Long.MAX_VALUE;
+    long lastTimestampSeen = Long.MIN_VALUE;
+
+    Column(String name, String type) {
+      this.name = name;
+      this.type = type;
+      this.numeric = NUMERIC_TYPES.contains(type);
+    }
+
+    void add(DataLogRecord record) throws IOException {
+      long timestamp = record.getTimestamp();
+      writeVarLong(timestamps, zigzag(timestamp - lastTimestamp));
+      lastTimestamp = timestamp;
+      firstTimestamp = Math.min(firstTimestamp, timestamp);
+      lastTimestampSeen = Math.max(lastTimestampSeen, timestamp);
+
+      if (numeric) {
+        double value =
+            switch (type) {
+              case "double" -> record.getDouble();
+              case "float" -> record.getFloat();
+              case "int64" -> record.getInteger();
+              default -> record.getBoolean() ? 1.0 : 0.0;
+            };
+        long bits = Double.doubleToLongBits(value);
+        values.writeLong(bits ^ lastBits);
+        lastBits = bits;
+      } else {
+        byte[] raw = record.getRaw();
+        writeVarLong(values, raw.length);
+        values.write(raw);
+      }
+      count++;
+    }
+  }
+
+  /**
+   * Converts one WPILOG file.
+   *
+   * @param input WPILOG file
+   * @param output Indexed file to write
+   */
+  public static void convert(File input, File output) throws IOException {
+    DataLogReader reader = new DataLogReader(input.getPath());
+    if (!reader.isValid()) {
+      throw new IOException("Not a valid WPILOG file: " + input);
+    }
+
+    // Entries are merged by name, the same key can be started again after a restart
+    Map<Integer, Column> entries = new HashMap<>();
+    Map<String, Column> columns = new LinkedHashMap<>();
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        Column column = columns.computeIfAbsent(start.name, name -> new Column(name, start.type));
+        if (column.type.equals(start.type)) {
+          entries.put(start.entry, column);
+        }
+        continue;
+      }
+      if (record.isControl()) {
+        continue;
+      }
+      Column column = entries.get(record.getEntry());
+      if (column != null) {
+        column.add(record);
+      }
+    }
+
+    // Compress the columns, then write the index with their offsets in front of them
+    ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+    DataOutputStream index = new DataOutputStream(indexBytes);
+    List<byte[]> blocks = new ArrayList<>();
+    long offset = 0;
+    index.writeInt(columns.size());
+    for (Column column : columns.values()) {
+      byte[] rawTimestamps = column.timestampBytes.toByteArray();
+      byte[] rawValues = column.valueBytes.toByteArray();
+      byte[] timestamps = compress(rawTimestamps);
+      byte[] values = compress(rawValues);
+
+      index.writeUTF(column.name);
+      index.writeUTF(column.type);
+      index.writeBoolean(column.numeric);
+      index.writeInt(column.count);
+      index.writeLong(column.count > 0 ? column.firstTimestamp : 0);
+      index.writeLong(column.count > 0 ? column.lastTimestampSeen : 0);
+      index.writeLong(offset);
+      index.writeInt(timestamps.length);
+      index.writeInt(rawTimestamps.length);
+      index.writeLong(offset + timestamps.length);
+      index.writeInt(values.length);
+      index.writeInt(rawValues.length);
+
+      blocks.add(timestamps);
+      blocks.add(values);
+      offset += timestamps.length + values.length;
+    }
+
+    File temp = new File(output.getPath() + ".tmp");
+    try (OutputStream stream = new FileOutputStream(temp)) {
+      DataOutputStream out = new DataOutputStream(stream);
+      out.write(MAGIC);
+      out.writeInt(indexBytes.size());
+      indexBytes.writeTo(out);
+      for (byte[] block : blocks) {
+        out.write(block);
+      }
+      out.flush();
+    }
+    if (!temp.renameTo(output)) {
+      temp.delete();
+      throw new IOException("Could not write " + output);
+    }
+  }
+
+  private static byte[] compress(byte[] data) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    deflater.setInput(data);
+    deflater.finish();
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+    byte[] buffer = new byte[64 * 1024];
+    while (!deflater.finished()) {
+      out.write(buffer, 0, deflater.deflate(buffer));
+    }
+    deflater.end();
+    return out.toByteArray();
+  }
+
+  static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  /** Returns the indexed file for a log. */
+  public static File indexFileFor(File log) {
+    String path = log.getPath();
+    return new File(path.substring(0, path.length() - ".wpilog".length()) + EXTENSION);
+  }
+
+  /**
+   * Converts every WPILOG in the given files and folders that doesn't have an up to date index.
+   *
+   * <p>Arguments: WPILOG files or folders containing them.
+   */
+  public static void main(String... args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Usage: IndexedLogConverter <log.wpilog | folder>...");
+      return;
+    }
+    List<File> logs = new ArrayList<>();
+    for (String arg : args) {
+      File file = new File(arg);
+      File[] children = file.isDirectory() ? file.listFiles() : new File[] {file};
+      for (File child : children == null ? new File[0] : children) {
+        if (child.getName().endsWith(".wpilog")) {
+          logs.add(child);
+        } else if (child.getName().endsWith(".hoot")) {
+          System.out.println("Skipping " + child + ", export it to WPILOG with owlet first");
+        }
+      }
+    }
+
+    for (File log : logs) {
+      File output = indexFileFor(log);
+      if (output.exists() && output.lastModified() >= log.lastModified()) {
+        continue;
+      }
+      long startNanos = System.nanoTime();
+      convert(log, output);
+      System.out.println(
+          String.format(
+              "%s: %.1f MB -> %.1f MB in %.0f ms",
+              log.getName(),
+              log.length() / 1e6,
+              output.length() / 1e6,
+              (System.nanoTime() - startNanos) / 1e6));
+    }
+  }
+}
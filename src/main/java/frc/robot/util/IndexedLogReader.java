@@ -0,0 +1,310 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the indexed logs written by {@link IndexedLogConverter}.
+ *
+ * <p>The file is memory mapped and only the index is parsed when it is opened. Reading a key
+ * decompresses just that key's two columns. RobotContainer logs a boolean per scheduled command
+ * under "RealOutputs/Commands/", so a query like every shooter velocity while AutoShootCommand was
+ * running is {@link #valuesWhile(String, String)} with "RealOutputs/Commands/AutoShootCommand".
+ *
+ * <p>Keys can be given with or without the leading slash AdvantageKit writes.
+ */
+public class IndexedLogReader implements AutoCloseable {
+  /** Timestamps in microseconds and their numeric values. */
+  public record Series(long[] timestamps, double[] values) {}
+
+  /** Timestamps in microseconds and their raw serialized values. */
+  public record RawSeries(String type, long[] timestamps, byte[][] values) {}
+
+  private record Column(
+      String type,
+      boolean numeric,
+      int count,
+      long firstTimestamp,
+      long lastTimestamp,
+      long timestampOffset,
+      int timestampLength,
+      int timestampRawLength,
+      long valueOffset,
+      int valueLength,
+      int valueRawLength) {}
+
+  private final File file;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private final Map<String, Column> columns = new HashMap<>();
+  private final int dataStart;
+
+  public IndexedLogReader(File file) throws IOException {
+    this.file = file;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+    byte[] magic = new byte[IndexedLogConverter.MAGIC.length];
+    buffer.get(0, magic);
+    if (!Arrays.equals(magic, IndexedLogConverter.MAGIC)) {
+      channel.close();
+      throw new IOException("Not an indexed log: " + file);
+    }
+    int indexLength = buffer.getInt(magic.length);
+    dataStart = magic.length + Integer.BYTES + indexLength;
+
+    ByteBuffer index = buffer.slice(magic.length + Integer.BYTES, indexLength);
+    int count = index.getInt();
+    for (int i = 0; i < count; i++) {
+      String name = readUtf(index);
+      columns.put(
+          name,
+          new Column(
+              readUtf(index),
+              index.get() != 0,
+              index.getInt(),
+              index.getLong(),
+              index.getLong(),
+              index.getLong(),
+              index.getInt(),
+              index.getInt(),
+              index.getLong(),
+              index.getInt(),
+              index.getInt()));
+    }
+  }
+
+  /** Opens the indexed log of every WPILOG in a folder that has been converted. */
+  public static List<IndexedLogReader> openFolder(File folder) throws IOException {
+    List<IndexedLogReader> readers = new ArrayList<>();
+    File[] files = folder.listFiles((dir, name) -> name.endsWith(IndexedLogConverter.EXTENSION));
+    if (files != null) {
+      Arrays.sort(files);
+      for (File file : files) {
+        readers.add(new IndexedLogReader(file));
+      }
+    }
+    return readers;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public Set<String> getKeys() {
+    return columns.keySet();
+  }
+
+  private Column getColumn(String key) {
+    Column column = columns.get(key);
+    if (column == null) {
+      column = columns.get(key.startsWith("/") ? key.substring(1) : "/" + key);
+    }
+    return column;
+  }
+
+  /** Returns a numeric key's values, booleans as 0 or 1. */
+  public Optional<Series> readDoubles(String key) throws IOException {
+    Column column = getColumn(key);
+    if (column == null || !column.numeric()) {
+      return Optional.empty();
+    }
+    long[] timestamps = readTimestamps(column);
+    ByteBuffer values =
+        ByteBuffer.wrap(inflate(column.valueOffset(), column.valueLength(), column.valueRawLength()));
+    double[] result = new double[column.count()];
+    long bits = 0;
+    for (int i = 0; i < result.length; i++) {
+      bits ^= values.getLong();
+      result[i] = Double.longBitsToDouble(bits);
+    }
+    return Optional.of(new Series(timestamps, result));
+  }
+
+  /** Returns a key's raw serialized values, e.g. for arrays and structs. */
+  public Optional<RawSeries> readRaw(String key) throws IOException {
+    Column column = getColumn(key);
+    if (column == null || column.numeric()) {
+      return Optional.empty();
+    }
+    long[] timestamps = readTimestamps(column);
+    ByteBuffer values =
+        ByteBuffer.wrap(inflate(column.valueOffset(), column.valueLength(), column.valueRawLength()));
+    byte[][] result = new byte[column.count()][];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = new byte[(int) readVarLong(values)];
+      values.get(result[i]);
+    }
+    return Optional.of(new RawSeries(column.type(), timestamps, result));
+  }
+
+  /**
+   * Returns the time ranges a boolean key was true, as [start, end) pairs in microseconds. A range
+   * still open at the end of the log ends at the last timestamp in the log.
+   */
+  public List<long[]> trueIntervals(String booleanKey) throws IOException {
+    List<long[]> intervals = new ArrayList<>();
+    Optional<Series> series = readDoubles(booleanKey);
+    if (series.isEmpty()) {
+      return intervals;
+    }
+    long start = -1;
+    for (int i = 0; i < series.get().values().length; i++) {
+      boolean active = series.get().values()[i] != 0.0;
+      long timestamp = series.get().timestamps()[i];
+      if (active && start < 0) {
+        start = timestamp;
+      } else if (!active && start >= 0) {
+        intervals.add(new long[] {start, timestamp});
+        start = -1;
+      }
+    }
+    if (start >= 0) {
+      long end = columns.values().stream().mapToLong(Column::lastTimestamp).max().orElse(start) + 1;
+      intervals.add(new long[] {start, end});
+    }
+    return intervals;
+  }
+
+  /** Returns a numeric key's values that were logged while a boolean key was true. */
+  public Series valuesWhile(String valueKey, String booleanKey) throws IOException {
+    Optional<Series> series = readDoubles(valueKey);
+    List<long[]> intervals = trueIntervals(booleanKey);
+    if (series.isEmpty() || intervals.isEmpty()) {
+      return new Series(new long[0], new double[0]);
+    }
+
+    // Both are sorted, walk them together
+    long[] timestamps = series.get().timestamps();
+    double[] values = series.get().values();
+    long[] keptTimestamps = new long[timestamps.length];
+    double[] keptValues = new double[values.length];
+    int kept = 0;
+    int interval = 0;
+    for (int i = 0; i < timestamps.length && interval < intervals.size(); i++) {
+      while (interval < intervals.size() && timestamps[i] >= intervals.get(interval)[1]) {
+        interval++;
+      }
+      if (interval < intervals.size() && timestamps[i] >= intervals.get(interval)[0]) {
+        keptTimestamps[kept] = timestamps[i];
+        keptValues[kept] = values[i];
+        kept++;
+      }
+    }
+    return new Series(Arrays.copyOf(keptTimestamps, kept), Arrays.copyOf(keptValues, kept));
+  }
+
+  private long[] readTimestamps(Column column) throws IOException {
+    ByteBuffer data =
+        ByteBuffer.wrap(
+            inflate(column.timestampOffset(), column.timestampLength(), column.timestampRawLength()));
+    long[] timestamps = new long[column.count()];
+    long timestamp = 0;
+    for (int i = 0; i < timestamps.length; i++) {
+      long zigzag = readVarLong(data);
+      timestamp += (zigzag >>> 1) ^ -(zigzag & 1);
+      timestamps[i] = timestamp;
+    }
+    return timestamps;
+  }
+
+  private byte[] inflate(long offset, int length, int rawLength) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(buffer.slice((int) (dataStart + offset), length));
+      byte[] raw = new byte[rawLength];
+      int read = 0;
+      while (read < rawLength && !inflater.finished()) {
+        read += inflater.inflate(raw, read, rawLength - read);
+      }
+      return raw;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt column in " + file, e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static long readVarLong(ByteBuffer data) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = data.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  /** Reads a string written by DataOutputStream.writeUTF, which is plain UTF-8 for log keys. */
+  private static String readUtf(ByteBuffer data) {
+    byte[] bytes = new byte[data.getShort() & 0xFFFF];
+    data.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Prints a numeric key's values across every indexed log in a folder, optionally only while a
+   * boolean key was true, and how long the query took.
+   *
+   * <p>Arguments: folder, value key, then optionally the boolean key, e.g. {@code logs
+   * Shooter/IO/shooterVelocityMPS RealOutputs/Commands/AutoShootCommand}. Run it with
+   * {@code ./gradlew queryLogs --args="..."}.
+   */
+  public static void main(String... args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: IndexedLogReader <folder> <key> [while boolean key]");
+      return;
+    }
+    List<IndexedLogReader> readers = openFolder(new File(args[0]));
+    long startNanos = System.nanoTime();
+    int total = 0;
+    double sum = 0.0;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (IndexedLogReader reader : readers) {
+      double[] values =
+          args.length > 2
+              ? reader.valuesWhile(args[1], args[2]).values()
+              : reader.readDoubles(args[1]).map(Series::values).orElse(new double[0]);
+      for (double value : values) {
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+      }
+      total += values.length;
+    }
+    double elapsedMs = (System.nanoTime() - startNanos) / 1e6;
+    System.out.println(
+        String.format(
+            "%d values from %d logs in %.1f ms, mean %.4f, min %.4f, max %.4f",
+            total, readers.size(), elapsedMs, total > 0 ? sum / total : 0.0, min, max));
+    for (IndexedLogReader reader : readers) {
+      reader.close();
+    }
+  }
+}
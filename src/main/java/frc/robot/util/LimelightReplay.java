@@ -0,0 +1,246 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+
+/**
+ * Stand-in for the Limelights that replays their recorded NetworkTables topics from a WPILOG.
+ *
+ * <p>The log needs the Limelight tables recorded as "NT:/limelight-.../key" entries. The
+ * AdvantageKit logs don't have them, so the robot records both Limelight tables with {@link
+ * #startRecording(String)} into separate WPILOGs in /U/limelight. Replay one of those files, not
+ * the AdvantageKit log. The json, botpose_orb_wpiblue, rawfiducials, rawdetections, tx/ty/tv/ta and
+ * latency topics are republished at their recorded spacing, optionally sped up, so LimelightHelpers
+ * and everything built on it sees the same data it saw on the field.
+ *
+ * <p>Inside the robot sim set LIMELIGHT_REPLAY to the log path (and optionally
+ * LIMELIGHT_REPLAY_SPEED), e.g. {@code ./gradlew simulateJava -PlimelightReplay=path/to/log.wpilog},
+ * and call {@link #periodic()} every loop so the replay follows the sim clock. On its own, {@link
+ * #main(String...)} connects to an NT server on localhost like a real Limelight and streams the
+ * log from a background thread.
+ */
+public class LimelightReplay {
+  private static final String PATH_ENV_VARIABLE = "LIMELIGHT_REPLAY";
+  private static final String SPEED_ENV_VARIABLE = "LIMELIGHT_REPLAY_SPEED";
+  private static final String ENTRY_PREFIX = "NT:/";
+  private static final Set<String> REPLAYED_KEYS =
+      Set.of(
+          "json",
+          "botpose_orb_wpiblue",
+          "botpose_wpiblue",
+          "rawfiducials",
+          "rawdetections",
+          "tx",
+          "ty",
+          "tv",
+          "ta",
+          "tl",
+          "cl",
+          "hb");
+
+  private record Topic(NetworkTable table, String key, String type) {}
+
+  private record Sample(long timestampMicros, NetworkTable table, String key, Object value) {}
+
+  private final List<Sample> samples;
+  private final double speed;
+  private final long firstTimestampMicros;
+
+  private double startTime = Double.NaN;
+  private int nextSample = 0;
+
+  /**
+   * Records the Limelight tables to a WPILOG in a folder, in the format this class replays. Only
+   * the Limelight tables are recorded, DataLogManager removes its oldest files when the stick is
+   * almost full.
+   */
+  public static void startRecording(String folder) {
+    DataLogManager.logNetworkTables(false);
+    DataLogManager.start(folder);
+    for (String limelight : List.of(Constants.VISION_LIMELIGHT, Constants.DRIVER_LIMELIGHT)) {
+      NetworkTableInstance.getDefault()
+          .startEntryDataLog(DataLogManager.getLog(), "/" + limelight + "/", ENTRY_PREFIX + limelight + "/");
+    }
+  }
+
+  /** Returns true if a Limelight replay was requested for this sim run. */
+  public static boolean isRequested() {
+    String value = System.getenv(PATH_ENV_VARIABLE);
+    return value != null && !value.isBlank();
+  }
+
+  /** Creates the replay requested through the environment, publishing to the default instance. */
+  public static LimelightReplay fromEnvironment() throws IOException {
+    String speed = System.getenv(SPEED_ENV_VARIABLE);
+    return new LimelightReplay(
+        System.getenv(PATH_ENV_VARIABLE),
+        speed == null || speed.isBlank() ? 1.0 : Double.parseDouble(speed),
+        NetworkTableInstance.getDefault());
+  }
+
+  /**
+   * Loads the Limelight topics from a log.
+   *
+   * @param logPath Path to the WPILOG file
+   * @param speed Replay speed, 1.0 is real time
+   * @param instance NetworkTables instance to publish to
+   */
+  public LimelightReplay(String logPath, double speed, NetworkTableInstance instance) throws IOException {
+    this.speed = speed;
+    this.samples = readSamples(logPath, instance);
+    this.firstTimestampMicros = samples.isEmpty() ? 0 : samples.get(0).timestampMicros();
+    System.out.println(
+        "[LimelightReplay] Loaded " + samples.size() + " samples from " + logPath + " at " + speed + "x");
+  }
+
+  /** Publishes every sample that is due at the current robot time. Call once per robot loop. */
+  public void periodic() {
+    publishUntil(Timer.getFPGATimestamp());
+  }
+
+  /** Returns true once every sample has been published. */
+  public boolean isFinished() {
+    return nextSample >= samples.size();
+  }
+
+  /**
+   * Publishes every sample that is due at the given time.
+   *
+   * @param nowSecs Current time in seconds, the first call starts the replay
+   */
+  public void publishUntil(double nowSecs) {
+    if (Double.isNaN(startTime)) {
+      startTime = nowSecs;
+    }
+    long logTime = firstTimestampMicros + (long) ((nowSecs - startTime) * speed * 1e6);
+
+    while (nextSample < samples.size() && samples.get(nextSample).timestampMicros() <= logTime) {
+      publish(samples.get(nextSample));
+      nextSample++;
+    }
+  }
+
+  private static void publish(Sample sample) {
+    var entry = sample.table().getEntry(sample.key());
+    if (sample.value() instanceof Double value) {
+      entry.setDouble(value);
+    } else if (sample.value() instanceof double[] value) {
+      entry.setDoubleArray(value);
+    } else if (sample.value() instanceof String value) {
+      entry.setString(value);
+    }
+  }
+
+  private static List<Sample> readSamples(String logPath, NetworkTableInstance instance) throws IOException {
+    DataLogReader reader = new DataLogReader(logPath);
+    if (!reader.isValid()) {
+      throw new IOException("Not a valid WPILOG file: " + logPath);
+    }
+
+    Map<Integer, Topic> topics = new HashMap<>();
+    List<Sample> samples = new ArrayList<>();
+
+    for (DataLogRecord record : reader) {
+      if (record.isStart()) {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        Topic topic = parseTopic(start.name, start.type, instance);
+        if (topic != null) {
+          topics.put(start.entry, topic);
+        }
+        continue;
+      }
+      if (record.isControl()) {
+        continue;
+      }
+
+      Topic topic = topics.get(record.getEntry());
+      if (topic == null) {
+        continue;
+      }
+      Object value =
+          switch (topic.type()) {
+            case "double" -> record.getDouble();
+            case "double[]" -> record.getDoubleArray();
+            case "string", "json" -> record.getString();
+            default -> null;
+          };
+      if (value != null) {
+        samples.add(new Sample(record.getTimestamp(), topic.table(), topic.key(), value));
+      }
+    }
+
+    // Records are written in order per entry, but not always across entries
+    samples.sort((a, b) -> Long.compare(a.timestampMicros(), b.timestampMicros()));
+    return samples;
+  }
+
+  /** Maps an "NT:/limelight-name/key" log entry to its table, or null if it isn't replayed. */
+  private static Topic parseTopic(String name, String type, NetworkTableInstance instance) {
+    if (!name.startsWith(ENTRY_PREFIX + "limelight")) {
+      return null;
+    }
+    String path = name.substring(ENTRY_PREFIX.length());
+    int split = path.indexOf('/');
+    if (split < 0 || !REPLAYED_KEYS.contains(path.substring(split + 1))) {
+      return null;
+    }
+    return new Topic(instance.getTable(path.substring(0, split)), path.substring(split + 1), type);
+  }
+
+  /**
+   * Streams a log to an NT server on localhost, standing in for the Limelights.
+   *
+   * <p>Arguments: log path, then optionally the replay speed and "--loop" to repeat forever.
+   */
+  public static void main(String... args) throws IOException, InterruptedException {
+    if (args.length < 1) {
+      System.out.println("Usage: LimelightReplay <log.wpilog> [speed] [--loop]");
+      return;
+    }
+    double speed = args.length > 1 && !args[1].startsWith("--") ? Double.parseDouble(args[1]) : 1.0;
+    boolean loop = List.of(args).contains("--loop");
+
+    NetworkTableInstance instance = NetworkTableInstance.create();
+    instance.setServer("localhost");
+    instance.startClient4("limelight-replay");
+
+    do {
+      LimelightReplay replay = new LimelightReplay(args[0], speed, instance);
+      Thread thread =
+          new Thread(
+              () -> {
+                while (!replay.isFinished()) {
+                  replay.publishUntil(System.nanoTime() / 1e9);
+                  instance.flush();
+                  try {
+                    Thread.sleep(1);
+                  } catch (InterruptedException e) {
+                    return;
+                  }
+                }
+              },
+              "LimelightReplay");
+      thread.setDaemon(true);
+      thread.start();
+      thread.join();
+    } while (loop);
+
+    instance.close();
+  }
+}
@@ -10,7 +10,9 @@ import edu.wpi.first.math.Pair;
 import edu.wpi.first.math.geometry.Translation2d;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.littletonrobotics.junction.LogTable;
 import org.littletonrobotics.junction.Logger;
 import org.littletonrobotics.junction.inputs.LoggableInputs;
@@ -19,7 +21,25 @@ import org.littletonrobotics.junction.inputs.LoggableInputs;
 // https://gist.github.com/mjansen4857/a8024b55eb427184dbd10ae8923bd57d
 
 public class LocalADStarAK implements Pathfinder {
+  // Dynamic obstacle handling. LocalADStar replans on its own thread whenever the obstacle set
+  // changes, so obstacles are snapped to the navgrid and only pushed when the covered cells change,
+  // at most once per update period. Unchanged or jittering detections never trigger a replan.
+  private static final double NAVGRID_NODE_SIZE = 0.3;
+  private static final double OBSTACLE_LIFETIME_SECS = 1.0;
+  private static final double MIN_OBSTACLE_UPDATE_PERIOD_SECS = 0.25;
+  private static final int MAX_OBSTACLES = 8;
+  private static final double GOAL_KEEP_OUT_METERS = 0.75;
+  private static final double ROBOT_KEEP_OUT_METERS = 0.6;
+
+  private record TimedObstacle(Translation2d center, double radius, double expiresAt) {}
+
   private final ADStarIO io = new ADStarIO();
+  private final NavGrid navGrid = NavGrid.getInstance();
+
+  private final List<TimedObstacle> timedObstacles = new ArrayList<>();
+  private Set<Long> lastObstacleCells = Set.of();
+  private double lastObstacleUpdate = Double.NEGATIVE_INFINITY;
+  private Translation2d goalPosition = null;
 
   /**
    * Get if a new path has been calculated since the last time a path was retrieved
@@ -80,6 +100,7 @@ public class LocalADStarAK implements Pathfinder {
    */
   @Override
   public void setGoalPosition(Translation2d goalPosition) {
+    this.goalPosition = goalPosition;
     if (!Logger.hasReplaySource()) {
       io.adStar.setGoalPosition(goalPosition);
     }
@@ -101,6 +122,84 @@ public class LocalADStarAK implements Pathfinder {
     }
   }
 
+  /**
+   * Adds or refreshes a dynamic obstacle, such as a robot or note seen by vision. Obstacles expire
+   * if they are not seen again within their lifetime.
+   *
+   * @param center Field position of the obstacle
+   * @param radius Radius to keep clear around the obstacle in meters
+   * @param timestamp Time the obstacle was seen in seconds
+   */
+  public void addObstacle(Translation2d center, double radius, double timestamp) {
+    // Nothing to replan around if it is already inside a static obstacle
+    if (navGrid.isBlocked(center)) {
+      return;
+    }
+    // A detection close to a known obstacle is the same obstacle seen again
+    timedObstacles.removeIf(obstacle -> obstacle.center().getDistance(center) < NAVGRID_NODE_SIZE);
+    timedObstacles.add(new TimedObstacle(center, radius, timestamp + OBSTACLE_LIFETIME_SECS));
+  }
+
+  /**
+   * Expires old obstacles and passes the current set to the pathfinder if it changed. Call once per
+   * loop.
+   *
+   * @param robotPosition Current robot position
+   * @param timestamp Current time in seconds
+   */
+  public void updateObstacles(Translation2d robotPosition, double timestamp) {
+    long startNanos = System.nanoTime();
+    timedObstacles.removeIf(obstacle -> obstacle.expiresAt() < timestamp);
+
+    if (!Logger.hasReplaySource()
+        && timestamp - lastObstacleUpdate >= MIN_OBSTACLE_UPDATE_PERIOD_SECS) {
+      // Keep the nearest obstacles, never the ones on top of the robot or the goal
+      List<TimedObstacle> active =
+          timedObstacles.stream()
+              .filter(obstacle -> obstacle.center().getDistance(robotPosition) > ROBOT_KEEP_OUT_METERS)
+              .filter(
+                  obstacle ->
+                      goalPosition == null
+                          || obstacle.center().getDistance(goalPosition) > GOAL_KEEP_OUT_METERS)
+              .sorted(
+                  (a, b) ->
+                      Double.compare(
+                          a.center().getDistance(robotPosition), b.center().getDistance(robotPosition)))
+              .limit(MAX_OBSTACLES)
+              .toList();
+
+      List<Pair<Translation2d, Translation2d>> boxes = new ArrayList<>();
+      Set<Long> cells = new HashSet<>();
+      for (TimedObstacle obstacle : active) {
+        Translation2d offset = new Translation2d(obstacle.radius(), obstacle.radius());
+        Translation2d min = obstacle.center().minus(offset);
+        Translation2d max = obstacle.center().plus(offset);
+        boxes.add(Pair.of(min, max));
+        for (int x = toCell(min.getX()); x <= toCell(max.getX()); x++) {
+          for (int y = toCell(min.getY()); y <= toCell(max.getY()); y++) {
+            cells.add(((long) x << 32) | (y & 0xffffffffL));
+          }
+        }
+      }
+
+      if (!cells.equals(lastObstacleCells)) {
+        io.adStar.setDynamicObstacles(boxes, robotPosition);
+        lastObstacleCells = cells;
+        lastObstacleUpdate = timestamp;
+        Logger.recordOutput("LocalADStarAK/ObstacleUpdateTimestamp", timestamp);
+      }
+    }
+
+    Logger.recordOutput(
+        "LocalADStarAK/DynamicObstacles",
+        timedObstacles.stream().map(TimedObstacle::center).toArray(Translation2d[]::new));
+    Logger.recordOutput("LocalADStarAK/ObstacleUpdateMicros", (System.nanoTime() - startNanos) / 1000.0);
+  }
+
+  private static int toCell(double meters) {
+    return (int) Math.floor(meters / NAVGRID_NODE_SIZE);
+  }
+
   private static class ADStarIO implements LoggableInputs {
     public LocalADStar adStar = new LocalADStar();
     public boolean isNewPathAvailable = false;
@@ -0,0 +1,276 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.util.struct.Struct;
+import edu.wpi.first.util.struct.StructSerializable;
+
+/**
+ * Rate limits, change-only logging and a per-loop byte budget for the outputs that are expensive to
+ * record, with statistics on what the logs are spending their bytes and time on.
+ *
+ * <p>Outputs recorded through {@link #record} are matched against the rules below by key prefix.
+ * A rule can log a key at most every so often, log it only when its value changes, and mark it low
+ * priority. Low priority keys are skipped for the rest of the loop once the loop has recorded
+ * {@link #CYCLE_BYTE_BUDGET} bytes through this class, and go out on a later loop instead. Keys
+ * without a rule are recorded every call. Bytes are estimated from the serialized size. Every few
+ * seconds the keys using the most bytes and CPU time are logged under LoggingPolicy/. Only call
+ * from the main thread.
+ */
+public class LoggingPolicy {
+  private static final int CYCLE_BYTE_BUDGET = 4096;
+  private static final double STATS_PERIOD_SECS = 5.0;
+  private static final int TOP_KEYS = 5;
+
+  public static enum Priority {
+    /** Always recorded when the rate and change rules allow. */
+    NORMAL,
+    /** Deferred to a later loop when the loop is over its byte budget. */
+    LOW
+  }
+
+  private record Rule(String prefix, double minPeriodSecs, boolean changeOnly, Priority priority) {}
+
+  private static final List<Rule> rules =
+      List.of(
+          new Rule("SwerveStates/", 0.1, false, Priority.LOW),
+          new Rule("Odometry/Robot 3d", 0.1, false, Priority.LOW),
+          new Rule("Odometry/Trajectory", 0.0, true, Priority.NORMAL),
+          new Rule("Poses/", 0.1, false, Priority.LOW),
+          new Rule("NoteVisualizer", 0.05, false, Priority.LOW),
+          new Rule("Drive/Max Angular Speed", 0.0, true, Priority.NORMAL),
+          new Rule("Drive/Turn CAN Disconnect", 0.0, true, Priority.NORMAL),
+          new Rule("Drive/Drive CAN Disconnect", 0.0, true, Priority.NORMAL),
+          new Rule("Arm/CAN Disconnect", 0.0, true, Priority.NORMAL),
+          new Rule("Shooter/CAN Disconnect", 0.0, true, Priority.NORMAL),
+          new Rule("Indexer/CAN Disconnect", 0.0, true, Priority.NORMAL));
+  private static final Rule DEFAULT_RULE = new Rule("", 0.0, false, Priority.NORMAL);
+
+  private static class KeyState {
+    final String key;
+    final Rule rule;
+    double lastRecordSecs = Double.NEGATIVE_INFINITY;
+    boolean hasValue = false;
+    long lastBits = 0; // Last double or boolean, for change-only keys
+    Object lastValue = null; // Copy of the last array, for change-only keys
+
+    long skipped = 0;
+    long periodBytes = 0;
+    long periodNanos = 0;
+
+    KeyState(String key, Rule rule) {
+      this.key = key;
+      this.rule = rule;
+    }
+  }
+
+  private static final Map<String, KeyState> states = new HashMap<>();
+  private static final Map<Class<?>, Integer> structSizes = new HashMap<>();
+  private static int cycleBytes = 0;
+  private static long cycleSkipped = 0;
+  private static double lastStatsSecs = 0.0;
+
+  private LoggingPolicy() {}
+
+  private static KeyState getState(String key) {
+    KeyState state = states.get(key);
+    if (state == null) {
+      Rule match = DEFAULT_RULE;
+      for (Rule rule : rules) {
+        if (key.startsWith(rule.prefix())) {
+          match = rule;
+          break;
+        }
+      }
+      state = new KeyState(key, match);
+      states.put(key, state);
+    }
+    return state;
+  }
+
+  /** Returns true if the rules allow recording now, and counts the skip if not. */
+  private static boolean allow(KeyState state, boolean changed, int bytes, double now) {
+    boolean allowed =
+        changed
+            && now - state.lastRecordSecs >= state.rule.minPeriodSecs()
+            && (state.rule.priority() != Priority.LOW || cycleBytes + bytes <= CYCLE_BYTE_BUDGET);
+    if (!allowed) {
+      state.skipped++;
+      cycleSkipped++;
+    }
+    return allowed;
+  }
+
+  private static void recorded(KeyState state, int bytes, double now, long startNanos) {
+    long elapsedNanos = System.nanoTime() - startNanos;
+    state.lastRecordSecs = now;
+    state.hasValue = true;
+    state.periodBytes += bytes;
+    state.periodNanos += elapsedNanos;
+    cycleBytes += bytes;
+  }
+
+  private static double now() {
+    return Logger.getTimestamp() / 1e6;
+  }
+
+  public static void record(String key, double value) {
+    KeyState state = getState(key);
+    long bits = Double.doubleToLongBits(value);
+    double now = now();
+    boolean changed = !state.rule.changeOnly() || !state.hasValue || bits != state.lastBits;
+    if (allow(state, changed, Double.BYTES, now)) {
+      long startNanos = System.nanoTime();
+      Logger.recordOutput(key, value);
+      state.lastBits = bits;
+      recorded(state, Double.BYTES, now, startNanos);
+    }
+  }
+
+  public static void record(String key, boolean value) {
+    KeyState state = getState(key);
+    long bits = value ? 1 : 0;
+    double now = now();
+    boolean changed = !state.rule.changeOnly() || !state.hasValue || bits != state.lastBits;
+    if (allow(state, changed, 1, now)) {
+      long startNanos = System.nanoTime();
+      Logger.recordOutput(key, value);
+      state.lastBits = bits;
+      recorded(state, 1, now, startNanos);
+    }
+  }
+
+  public static void record(String key, double[] value) {
+    KeyState state = getState(key);
+    double now = now();
+    boolean changed =
+        !state.rule.changeOnly() || !state.hasValue || !Arrays.equals(value, (double[]) state.lastValue);
+    int bytes = value.length * Double.BYTES;
+    if (allow(state, changed, bytes, now)) {
+      long startNanos = System.nanoTime();
+      Logger.recordOutput(key, value);
+      if (state.rule.changeOnly()) {
+        state.lastValue = value.clone();
+      }
+      recorded(state, bytes, now, startNanos);
+    }
+  }
+
+  public static void record(String key, boolean[] value) {
+    KeyState state = getState(key);
+    double now = now();
+    boolean changed =
+        !state.rule.changeOnly() || !state.hasValue || !Arrays.equals(value, (boolean[]) state.lastValue);
+    if (allow(state, changed, value.length, now)) {
+      long startNanos = System.nanoTime();
+      Logger.recordOutput(key, value);
+      if (state.rule.changeOnly()) {
+        state.lastValue = value.clone();
+      }
+      recorded(state, value.length, now, startNanos);
+    }
+  }
+
+  public static <T extends StructSerializable> void record(String key, T value) {
+    KeyState state = getState(key);
+    double now = now();
+    boolean changed = !state.rule.changeOnly() || !state.hasValue || !value.equals(state.lastValue);
+    int bytes = structSize(value.getClass());
+    if (allow(state, changed, bytes, now)) {
+      long startNanos = System.nanoTime();
+      Logger.recordOutput(key, value);
+      if (state.rule.changeOnly()) {
+        state.lastValue = value;
+      }
+      recorded(state, bytes, now, startNanos);
+    }
+  }
+
+  @SafeVarargs
+  public static <T extends StructSerializable> void record(String key, T... value) {
+    KeyState state = getState(key);
+    double now = now();
+    boolean changed =
+        !state.rule.changeOnly() || !state.hasValue || !Arrays.equals(value, (Object[]) state.lastValue);
+    int bytes = value.length * structSize(value.getClass().getComponentType());
+    if (allow(state, changed, bytes, now)) {
+      long startNanos = System.nanoTime();
+      Logger.recordOutput(key, value);
+      if (state.rule.changeOnly()) {
+        state.lastValue = value.clone();
+      }
+      recorded(state, bytes, now, startNanos);
+    }
+  }
+
+  /** Returns the serialized size of a struct type, found the same way AdvantageKit does. */
+  private static int structSize(Class<?> type) {
+    return structSizes.computeIfAbsent(
+        type,
+        t -> {
+          try {
+            return ((Struct<?>) t.getField("struct").get(null)).getSize();
+          } catch (ReflectiveOperationException | ClassCastException e) {
+            return 0;
+          }
+        });
+  }
+
+  /** Logs the budget use and statistics, and starts the next loop's budget. Call once per loop. */
+  public static void periodic() {
+    Logger.recordOutput("LoggingPolicy/CycleBytes", cycleBytes);
+    Logger.recordOutput("LoggingPolicy/CycleSkipped", cycleSkipped);
+    cycleBytes = 0;
+    cycleSkipped = 0;
+
+    double now = now();
+    if (now - lastStatsSecs < STATS_PERIOD_SECS) {
+      return;
+    }
+    double periodSecs = now - lastStatsSecs;
+    lastStatsSecs = now;
+
+    List<KeyState> sorted = new ArrayList<>(states.values());
+    sorted.sort(Comparator.comparingLong((KeyState state) -> state.periodBytes).reversed());
+    Logger.recordOutput("LoggingPolicy/TopKeysByBytes", topKeys(sorted, periodSecs));
+    sorted.sort(Comparator.comparingLong((KeyState state) -> state.periodNanos).reversed());
+    Logger.recordOutput("LoggingPolicy/TopKeysByCpu", topKeys(sorted, periodSecs));
+
+    long totalBytes = 0;
+    long totalNanos = 0;
+    for (KeyState state : sorted) {
+      totalBytes += state.periodBytes;
+      totalNanos += state.periodNanos;
+      state.periodBytes = 0;
+      state.periodNanos = 0;
+    }
+    Logger.recordOutput("LoggingPolicy/BytesPerSec", totalBytes / periodSecs);
+    Logger.recordOutput("LoggingPolicy/CpuMsPerSec", totalNanos / 1e6 / periodSecs);
+  }
+
+  private static String[] topKeys(List<KeyState> sorted, double periodSecs) {
+    String[] top = new String[Math.min(TOP_KEYS, sorted.size())];
+    for (int i = 0; i < top.length; i++) {
+      KeyState state = sorted.get(i);
+      top[i] =
+          String.format(
+              "%s: %.1f KB/s, %.0f us/s, %d skipped",
+              state.key,
+              state.periodBytes / 1024.0 / periodSecs,
+              state.periodNanos / 1e3 / periodSecs,
+              state.skipped);
+    }
+    return top;
+  }
+}
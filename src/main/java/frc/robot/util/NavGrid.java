@@ -0,0 +1,282 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Compact, read-only copy of the PathPlanner navgrid with fast occupancy queries.
+ *
+ * <p>navgrid.bin is generated from navgrid.json at build time by the generateNavGrid gradle task
+ * (see {@link #main(String...)}) and memory-mapped on first use. It holds the occupancy as a
+ * bitset and a precomputed distance field, the distance in millimeters from each cell center to the
+ * nearest obstacle cell or field wall. Lookups are O(1) and line of sight walks only the cells under
+ * the segment. If the binary is missing or older than the JSON, the JSON is parsed instead.
+ *
+ * <p>Layout, little endian: magic "NAVG", int version, int columns, int rows, double node size,
+ * double field length, double field width, the occupancy bits packed into longs (row major), then
+ * one unsigned short per cell for the distance field.
+ */
+public class NavGrid {
+  private static final int MAGIC = 0x4756414e; // "NAVG" read little endian
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 4 * 4 + 3 * 8;
+
+  private static NavGrid instance;
+
+  private final ByteBuffer buffer;
+  private final int columns;
+  private final int rows;
+  private final double nodeSize;
+  private final double fieldLength;
+  private final double fieldWidth;
+  private final int distanceOffset;
+
+  /** Returns the navgrid from the deploy directory, loading it on first use. */
+  public static synchronized NavGrid getInstance() {
+    if (instance == null) {
+      File pathplannerDir = new File(Filesystem.getDeployDirectory(), "pathplanner");
+      instance = load(new File(pathplannerDir, "navgrid.bin"), new File(pathplannerDir, "navgrid.json"));
+    }
+    return instance;
+  }
+
+  /** Memory-maps the binary grid, or builds it from the JSON if the binary is missing or stale. */
+  public static NavGrid load(File binaryFile, File jsonFile) {
+    try {
+      if (binaryFile.exists() && binaryFile.lastModified() >= jsonFile.lastModified()) {
+        try (RandomAccessFile file = new RandomAccessFile(binaryFile, "r");
+            FileChannel channel = file.getChannel()) {
+          return new NavGrid(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+      }
+      return new NavGrid(fromJson(jsonFile));
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to load navgrid", e);
+    }
+  }
+
+  private NavGrid(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      throw new IOException("Unsupported navgrid binary");
+    }
+    columns = buffer.getInt(8);
+    rows = buffer.getInt(12);
+    nodeSize = buffer.getDouble(16);
+    fieldLength = buffer.getDouble(24);
+    fieldWidth = buffer.getDouble(32);
+    distanceOffset = HEADER_BYTES + bitsetLongs(columns * rows) * 8;
+  }
+
+  public int getColumns() {
+    return columns;
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public double getNodeSizeMeters() {
+    return nodeSize;
+  }
+
+  /** Returns true if the cell is an obstacle. Cells off the grid count as obstacles. */
+  public boolean isBlocked(int column, int row) {
+    if (column < 0 || row < 0 || column >= columns || row >= rows) {
+      return true;
+    }
+    int index = row * columns + column;
+    return (buffer.getLong(HEADER_BYTES + (index >>> 6) * 8) & (1L << (index & 63))) != 0;
+  }
+
+  /** Returns true if the field position is inside an obstacle cell or off the field. */
+  public boolean isBlocked(Translation2d position) {
+    return isBlocked(toColumn(position.getX()), toRow(position.getY()));
+  }
+
+  /** Returns the distance in meters from the position's cell to the nearest obstacle or wall. */
+  public double getDistanceToObstacle(Translation2d position) {
+    int column = toColumn(position.getX());
+    int row = toRow(position.getY());
+    if (column < 0 || row < 0 || column >= columns || row >= rows) {
+      return 0.0;
+    }
+    return (buffer.getShort(distanceOffset + (row * columns + column) * 2) & 0xffff) / 1000.0;
+  }
+
+  /** Returns true if the straight segment between two positions crosses no obstacle cells. */
+  public boolean hasLineOfSight(Translation2d start, Translation2d end) {
+    return hasLineOfSight(start, end, 0.0);
+  }
+
+  /**
+   * Returns true if the straight segment between two positions keeps at least the given clearance
+   * from every obstacle, e.g. half the bumper width.
+   */
+  public boolean hasLineOfSight(Translation2d start, Translation2d end, double clearanceMeters) {
+    // Grid traversal (Amanatides and Woo), visiting every cell the segment passes through
+    double x0 = start.getX() / nodeSize;
+    double y0 = start.getY() / nodeSize;
+    double dx = end.getX() / nodeSize - x0;
+    double dy = end.getY() / nodeSize - y0;
+    int column = (int) Math.floor(x0);
+    int row = (int) Math.floor(y0);
+    int endColumn = (int) Math.floor(x0 + dx);
+    int endRow = (int) Math.floor(y0 + dy);
+    int stepX = dx > 0 ? 1 : -1;
+    int stepY = dy > 0 ? 1 : -1;
+    double tDeltaX = dx == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dx);
+    double tDeltaY = dy == 0 ? Double.POSITIVE_INFINITY : Math.abs(1.0 / dy);
+    double tMaxX = dx == 0 ? Double.POSITIVE_INFINITY : (dx > 0 ? column + 1 - x0 : x0 - column) * tDeltaX;
+    double tMaxY = dy == 0 ? Double.POSITIVE_INFINITY : (dy > 0 ? row + 1 - y0 : y0 - row) * tDeltaY;
+
+    while (true) {
+      if (!isClear(column, row, clearanceMeters)) {
+        return false;
+      }
+      if (column == endColumn && row == endRow) {
+        return true;
+      }
+      if (tMaxX == tMaxY) {
+        if (tMaxX > 1.0) {
+          return true;
+        }
+        // Through a corner, so both cells beside it have to be clear or the segment squeezes between
+        if (!isClear(column + stepX, row, clearanceMeters) || !isClear(column, row + stepY, clearanceMeters)) {
+          return false;
+        }
+        tMaxX += tDeltaX;
+        tMaxY += tDeltaY;
+        column += stepX;
+        row += stepY;
+      } else if (tMaxX < tMaxY) {
+        if (tMaxX > 1.0) {
+          return true;
+        }
+        tMaxX += tDeltaX;
+        column += stepX;
+      } else {
+        if (tMaxY > 1.0) {
+          return true;
+        }
+        tMaxY += tDeltaY;
+        row += stepY;
+      }
+    }
+  }
+
+  private boolean isClear(int column, int row, double clearanceMeters) {
+    if (isBlocked(column, row)) {
+      return false;
+    }
+    return clearanceMeters <= 0.0
+        || (buffer.getShort(distanceOffset + (row * columns + column) * 2) & 0xffff) / 1000.0
+            >= clearanceMeters;
+  }
+
+  private int toColumn(double x) {
+    return (int) Math.floor(x / nodeSize);
+  }
+
+  private int toRow(double y) {
+    return (int) Math.floor(y / nodeSize);
+  }
+
+  private static int bitsetLongs(int cells) {
+    return (cells + 63) / 64;
+  }
+
+  /** Builds the binary grid in memory from PathPlanner's navgrid.json. */
+  private static ByteBuffer fromJson(File jsonFile) throws IOException {
+    JsonNode root = new ObjectMapper().readTree(jsonFile);
+    double nodeSize = root.get("nodeSizeMeters").asDouble();
+    double fieldLength = root.get("field_size").get("x").asDouble();
+    double fieldWidth = root.get("field_size").get("y").asDouble();
+    JsonNode grid = root.get("grid");
+    int rows = grid.size();
+    int columns = grid.get(0).size();
+
+    boolean[] blocked = new boolean[rows * columns];
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        blocked[row * columns + column] = grid.get(row).get(column).asBoolean();
+      }
+    }
+
+    ByteBuffer buffer =
+        ByteBuffer.allocate(HEADER_BYTES + bitsetLongs(rows * columns) * 8 + rows * columns * 2)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(columns).putInt(rows);
+    buffer.putDouble(nodeSize).putDouble(fieldLength).putDouble(fieldWidth);
+
+    long[] bits = new long[bitsetLongs(rows * columns)];
+    for (int i = 0; i < blocked.length; i++) {
+      if (blocked[i]) {
+        bits[i >>> 6] |= 1L << (i & 63);
+      }
+    }
+    for (long word : bits) {
+      buffer.putLong(word);
+    }
+
+    // Exact distance field, only run at build time or as a fallback so brute force is fine
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        double x = (column + 0.5) * nodeSize;
+        double y = (row + 0.5) * nodeSize;
+        double distance = Math.min(Math.min(x, fieldLength - x), Math.min(y, fieldWidth - y));
+        if (blocked[row * columns + column]) {
+          distance = 0.0;
+        }
+        for (int i = 0; i < blocked.length && distance > 0.0; i++) {
+          if (blocked[i]) {
+            double ox = (i % columns + 0.5) * nodeSize;
+            double oy = (i / columns + 0.5) * nodeSize;
+            // Distance to the edge of the obstacle cell, not its center
+            double ex = Math.max(Math.abs(ox - x) - nodeSize / 2.0, 0.0);
+            double ey = Math.max(Math.abs(oy - y) - nodeSize / 2.0, 0.0);
+            distance = Math.min(distance, Math.hypot(ex, ey));
+          }
+        }
+        buffer.putShort((short) Math.min(Math.round(Math.max(distance, 0.0) * 1000.0), 0xffff));
+      }
+    }
+
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Generates navgrid.bin from navgrid.json. Run by the generateNavGrid gradle task.
+   *
+   * <p>Arguments: input JSON path, output binary path.
+   */
+  public static void main(String... args) throws IOException {
+    File jsonFile = new File(args[0]);
+    File binaryFile = new File(args[1]);
+    ByteBuffer buffer = fromJson(jsonFile);
+    Files.write(
+        binaryFile.toPath(),
+        buffer.array(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE);
+    System.out.println("Wrote " + buffer.limit() + " byte navgrid to " + binaryFile);
+  }
+}
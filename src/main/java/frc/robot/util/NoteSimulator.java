@@ -0,0 +1,223 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import org.littletonrobotics.junction.Logger;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Simulated game piece world for the intake, indexer and shooter.
+ *
+ * <p>Tracks the notes lying on the field and the note held by the robot. A note is picked up when
+ * it touches the front intake while the intake is running, then moves through the intake beam
+ * break and into the indexer beam break while the rollers push it. Running the indexer forward
+ * feeds a held note into the flywheels and running it backward ejects it out of the amp side.
+ * Each stage takes time, so commands see the same beam break timing they would on the robot, and
+ * intake to shot times are logged for cycle time profiling.
+ */
+public class NoteSimulator {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+
+  // Stage timings, in seconds of the rollers actually pushing the note
+  private static final double INTAKE_TO_INDEXER_SECS = 0.15;
+  private static final double INDEXER_TO_SHOT_SECS = 0.12;
+  private static final double EJECT_SECS = 0.3;
+
+  // Roller voltage needed to move a note
+  private static final double MIN_ROLLER_VOLTS = 2.0;
+
+  // Note contact zone in front of the bumper, robot relative
+  private static final double INTAKE_MIN_X = 0.91 / 2.0 - 0.1;
+  private static final double INTAKE_MAX_X = 0.91 / 2.0 + 0.2;
+  private static final double INTAKE_HALF_WIDTH = 0.25;
+
+  private static final List<Translation2d> STARTING_NOTES =
+      List.of(
+          // Blue wing
+          new Translation2d(2.8956, 4.1021),
+          new Translation2d(2.8956, 5.5535),
+          new Translation2d(2.8956, 7.0048),
+          // Center line
+          new Translation2d(8.2705, 0.7529),
+          new Translation2d(8.2705, 2.4293),
+          new Translation2d(8.2705, 4.1057),
+          new Translation2d(8.2705, 5.7821),
+          new Translation2d(8.2705, 7.4585),
+          // Red wing
+          new Translation2d(13.6449, 4.1021),
+          new Translation2d(13.6449, 5.5535),
+          new Translation2d(13.6449, 7.0048));
+
+  public enum NoteState {
+    /** No note in the robot. */
+    NONE,
+    /** Note past the intake beam break, moving towards the indexer. */
+    IN_INTAKE,
+    /** Note held at the indexer beam break. */
+    IN_INDEXER
+  }
+
+  private final Supplier<Pose2d> robotPoseSupplier;
+  private DoubleSupplier flywheelSpeedSupplier = () -> 0.0;
+
+  private final List<Translation2d> fieldNotes = new ArrayList<>();
+  private NoteState state = NoteState.NONE;
+  private double stageProgressSecs = 0.0;
+
+  private double intakeVolts = 0.0;
+  private double indexerVolts = 0.0;
+
+  private double intakeTimestamp = Double.NaN;
+  private double lastShotTimestamp = Double.NaN;
+  private int shotCount = 0;
+
+  /**
+   * @param robotPoseSupplier Supplier of the true robot pose from the physics sim
+   */
+  public NoteSimulator(Supplier<Pose2d> robotPoseSupplier) {
+    this.robotPoseSupplier = robotPoseSupplier;
+    resetField(true);
+  }
+
+  /** Sets the supplier of the flywheel speed in m/s, logged with each shot. */
+  public void setFlywheelSpeedSupplier(DoubleSupplier supplier) {
+    flywheelSpeedSupplier = supplier;
+  }
+
+  /** Puts every note back on its starting mark, optionally with a preloaded note in the indexer. */
+  public void resetField(boolean preload) {
+    fieldNotes.clear();
+    fieldNotes.addAll(STARTING_NOTES);
+    state = preload ? NoteState.IN_INDEXER : NoteState.NONE;
+    stageProgressSecs = 0.0;
+    intakeTimestamp = Double.NaN;
+    lastShotTimestamp = Double.NaN;
+    shotCount = 0;
+  }
+
+  public void setIntakeVolts(double volts) {
+    intakeVolts = volts;
+  }
+
+  public void setIndexerVolts(double volts) {
+    indexerVolts = volts;
+  }
+
+  /** Returns true while a note is blocking the intake beam break. */
+  public boolean getIntakeBeamBreak() {
+    return state == NoteState.IN_INTAKE;
+  }
+
+  /** Returns true while a note is blocking the indexer beam breaks. */
+  public boolean getIndexerBeamBreak() {
+    return state == NoteState.IN_INDEXER;
+  }
+
+  public List<Translation2d> getFieldNotes() {
+    return fieldNotes;
+  }
+
+  /** Advances the note world by one robot loop. */
+  public void update() {
+    Pose2d robotPose = robotPoseSupplier.get();
+
+    switch (state) {
+      case NONE:
+        if (intakeVolts > MIN_ROLLER_VOLTS) {
+          for (int i = 0; i < fieldNotes.size(); i++) {
+            Translation2d note =
+                fieldNotes.get(i)
+                    .minus(robotPose.getTranslation())
+                    .rotateBy(robotPose.getRotation().unaryMinus());
+            if (note.getX() >= INTAKE_MIN_X
+                && note.getX() <= INTAKE_MAX_X
+                && Math.abs(note.getY()) <= INTAKE_HALF_WIDTH) {
+              fieldNotes.remove(i);
+              setState(NoteState.IN_INTAKE);
+              intakeTimestamp = Timer.getFPGATimestamp();
+              break;
+            }
+          }
+        }
+        break;
+
+      case IN_INTAKE:
+        if (intakeVolts < -MIN_ROLLER_VOLTS) {
+          // Spit back out the front
+          fieldNotes.add(
+              robotPose.transformBy(new Transform2d(INTAKE_MAX_X + 0.2, 0.0, new Rotation2d()))
+                  .getTranslation());
+          setState(NoteState.NONE);
+        } else if (indexerVolts > MIN_ROLLER_VOLTS) {
+          stageProgressSecs += LOOP_PERIOD_SECS;
+          if (stageProgressSecs >= INTAKE_TO_INDEXER_SECS) {
+            setState(NoteState.IN_INDEXER);
+            Logger.recordOutput(
+                "NoteSimulator/IntakeToIndexerSecs", Timer.getFPGATimestamp() - intakeTimestamp);
+          }
+        }
+        break;
+
+      case IN_INDEXER:
+        if (indexerVolts > MIN_ROLLER_VOLTS) {
+          stageProgressSecs += LOOP_PERIOD_SECS;
+          if (stageProgressSecs >= INDEXER_TO_SHOT_SECS) {
+            recordShot();
+            setState(NoteState.NONE);
+          }
+        } else if (indexerVolts < -MIN_ROLLER_VOLTS) {
+          stageProgressSecs -= LOOP_PERIOD_SECS;
+          if (stageProgressSecs <= -EJECT_SECS) {
+            Logger.recordOutput("NoteSimulator/EjectTimestamp", Timer.getFPGATimestamp());
+            setState(NoteState.NONE);
+          }
+        }
+        break;
+
+      default:
+        break;
+    }
+
+    Logger.recordOutput("NoteSimulator/State", state);
+    Logger.recordOutput("NoteSimulator/ShotCount", shotCount);
+    Logger.recordOutput(
+        "NoteSimulator/FieldNotes",
+        fieldNotes.stream()
+            .map(note -> new Pose3d(new Translation3d(note.getX(), note.getY(), 0.025), new Rotation3d()))
+            .toArray(Pose3d[]::new));
+  }
+
+  private void setState(NoteState newState) {
+    state = newState;
+    stageProgressSecs = 0.0;
+  }
+
+  private void recordShot() {
+    double now = Timer.getFPGATimestamp();
+    shotCount++;
+    Logger.recordOutput("NoteSimulator/ShotFlywheelSpeedMPS", flywheelSpeedSupplier.getAsDouble());
+    if (!Double.isNaN(intakeTimestamp)) {
+      Logger.recordOutput("NoteSimulator/IntakeToShotSecs", now - intakeTimestamp);
+    }
+    if (!Double.isNaN(lastShotTimestamp)) {
+      Logger.recordOutput("NoteSimulator/CycleTimeSecs", now - lastShotTimestamp);
+    }
+    lastShotTimestamp = now;
+    intakeTimestamp = Double.NaN;
+  }
+}
@@ -59,7 +59,7 @@ public class NoteVisualizer {
                   timer.start();
                   return Commands.run(
                           () -> {
-                            Logger.recordOutput(
+                            LoggingPolicy.record(
                                 "NoteVisualizer",
                                 new Pose3d[] {
                                   startPose.interpolate(endPose, timer.get() / duration)
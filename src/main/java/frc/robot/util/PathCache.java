@@ -0,0 +1,142 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Builds the PathPlanner autos ahead of time, and preloads the paths that commands follow outside
+ * of autos, so neither is parsed from disk when auto starts or a button is pressed.
+ *
+ * <p>Autos have to be built on the main thread since they create commands, so {@link #periodic()}
+ * builds one per loop while disabled. Each auto loads its own copies of its paths. The paths given
+ * to {@link #start} are parsed on a background thread along with their ideal trajectories, which
+ * FollowPathCommand reuses. Lookups that miss the cache load synchronously as a fallback.
+ */
+public class PathCache {
+  private static PathCache instance;
+
+  private final Map<String, PathPlannerPath> paths = new ConcurrentHashMap<>();
+
+  // Only touched from the main thread
+  private final Map<String, Command> autos = new HashMap<>();
+  private final List<String> autoNames = new ArrayList<>();
+  private int nextAutoToBuild = 0;
+
+  private volatile boolean pathsLoaded = false;
+  private volatile double pathLoadMs = 0.0;
+  private Thread loaderThread = null;
+
+  public static PathCache getInstance() {
+    if (instance == null) {
+      instance = new PathCache();
+    }
+    return instance;
+  }
+
+  private PathCache() {}
+
+  /**
+   * Lists the autos to build and starts loading the paths on a background thread. Call once at
+   * startup.
+   *
+   * @param pathNames Path file names without the extension, for paths followed outside of autos
+   */
+  public void start(String... pathNames) {
+    if (loaderThread != null) {
+      return;
+    }
+    autoNames.addAll(AutoBuilder.getAllAutoNames());
+    List<String> names = List.of(pathNames);
+    loaderThread = new Thread(() -> loadPaths(names), "PathCache");
+    loaderThread.setDaemon(true);
+    loaderThread.setPriority(Thread.MIN_PRIORITY);
+    loaderThread.start();
+  }
+
+  private void loadPaths(List<String> names) {
+    long startNanos = System.nanoTime();
+    RobotConfig config = null;
+    try {
+      config = RobotConfig.fromGUISettings();
+    } catch (Exception e) {
+      DriverStation.reportWarning("PathCache: no robot config, skipping trajectories", false);
+    }
+
+    for (String name : names) {
+      try {
+        loadPath(name, config);
+      } catch (Exception e) {
+        DriverStation.reportWarning("PathCache: failed to load " + name + ": " + e.getMessage(), false);
+      }
+    }
+
+    pathLoadMs = (System.nanoTime() - startNanos) / 1e6;
+    pathsLoaded = true;
+  }
+
+  private PathPlannerPath loadPath(String name, RobotConfig config) throws Exception {
+    PathPlannerPath path = PathPlannerPath.fromPathFile(name);
+    if (config != null) {
+      // Cached inside the path, FollowPathCommand uses it instead of generating one
+      path.getIdealTrajectory(config);
+    }
+    paths.put(name, path);
+    return path;
+  }
+
+  /** Builds one cached auto per call. Call periodically while disabled. */
+  public void periodic() {
+    if (nextAutoToBuild < autoNames.size()) {
+      getAuto(autoNames.get(nextAutoToBuild));
+      nextAutoToBuild++;
+    }
+    Logger.recordOutput("PathCache/PathsLoaded", pathsLoaded);
+    Logger.recordOutput("PathCache/PathLoadMs", pathLoadMs);
+    Logger.recordOutput("PathCache/AutosBuilt", autos.size());
+  }
+
+  /** Returns the names of every auto in the deploy directory. */
+  public List<String> getAutoNames() {
+    return autoNames;
+  }
+
+  /**
+   * Returns the path as drawn in the GUI (blue alliance). AutoBuilder flips it when following.
+   *
+   * @param name Path file name without the extension
+   */
+  public Optional<PathPlannerPath> getPath(String name) {
+    PathPlannerPath path = paths.get(name);
+    if (path == null) {
+      try {
+        path = loadPath(name, null);
+      } catch (Exception e) {
+        DriverStation.reportError("PathCache: path " + name + " not found: " + e.getMessage(), false);
+      }
+    }
+    return Optional.ofNullable(path);
+  }
+
+  /** Returns the auto with the given name, building it now if it isn't cached yet. */
+  public Command getAuto(String name) {
+    return autos.computeIfAbsent(name, PathPlannerAuto::new);
+  }
+}
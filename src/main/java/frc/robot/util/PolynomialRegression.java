@@ -2,8 +2,10 @@ package frc.robot.util;
 
 import Jama.Matrix;
 import Jama.QRDecomposition;
+import java.util.Arrays;
+import java.util.Random;
 
-// NOTE: This file is available at
+// NOTE: The interface follows
 // http://algs4.cs.princeton.edu/14analysis/PolynomialRegression.java.html
 
 /**
@@ -16,19 +18,45 @@ import Jama.QRDecomposition;
  * residuals of the multiple regression model. It also computes associated the coefficient of
  * determination <em>R</em><sup>2</sup>.
  *
- * <p>This implementation performs a QR-decomposition of the underlying Vandermonde matrix, so it is
- * neither the fastest nor the most numerically stable way to perform the polynomial regression.
+ * <p>This implementation streams the samples. It keeps the running sums of the normal equations in
+ * primitive arrays, so adding or removing a sample is O(d) and no samples are stored unless a
+ * sliding window is used. The fit is solved on demand with Gaussian elimination, O(d³), and cached
+ * until the next sample. The predictor is shifted by the first sample to keep the sums well
+ * conditioned. As before, the degree is reduced until the fit has full rank.
  *
  * @author Robert Sedgewick
  * @author Kevin Wayne
  */
 public class PolynomialRegression implements Comparable<PolynomialRegression> {
+  private static final double RANK_TOLERANCE = 1E-12;
+
   private final String variableName; // name of the predictor variable
+  private final int maxDegree; // degree requested
   private int degree; // degree of the polynomial regression
-  private Matrix beta; // the polynomial regression coefficients
+  private final double[] beta; // the polynomial regression coefficients
   private double sse; // sum of squares due to error
   private double sst; // total sum of squares
 
+  // Running sums of (x - shift)^k for k up to 2d, and of y * (x - shift)^k for k up to d
+  private final double[] xPowerSums;
+  private final double[] xyPowerSums;
+  private double sumY = 0.0;
+  private double sumY2 = 0.0;
+  private long n = 0;
+  private double shift = Double.NaN;
+  private boolean solved = false;
+
+  // Sliding window of samples, null when unbounded
+  private final double[] windowX;
+  private final double[] windowY;
+  private int windowStart = 0;
+  private int windowCount = 0;
+
+  // Scratch space for solving
+  private final double[] matrix;
+  private final double[] rhs;
+  private final double[] coefficients;
+
   /**
    * Performs a polynomial reggression on the data points {@code (y[i], x[i])}. Uses n as the name
    * of the predictor variable.
@@ -52,54 +80,221 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
    * @throws IllegalArgumentException if the lengths of the two arrays are not equal
    */
   public PolynomialRegression(double[] x, double[] y, int degree, String variableName) {
+    this(degree, 0, variableName);
+    if (x.length != y.length) {
+      throw new IllegalArgumentException("array lengths are not equal");
+    }
+    for (int i = 0; i < x.length; i++) {
+      add(x[i], y[i]);
+    }
+  }
+
+  /**
+   * Creates an empty streaming regression. Add samples with {@link #add(double, double)}.
+   *
+   * @param degree the degree of the polynomial to fit
+   */
+  public PolynomialRegression(int degree) {
+    this(degree, 0, "n");
+  }
+
+  /**
+   * Creates an empty streaming regression over a sliding window. Once the window is full, each new
+   * sample removes the oldest one.
+   *
+   * @param degree the degree of the polynomial to fit
+   * @param windowSize the number of most recent samples to fit, 0 for no limit
+   */
+  public PolynomialRegression(int degree, int windowSize) {
+    this(degree, windowSize, "n");
+  }
+
+  private PolynomialRegression(int degree, int windowSize, String variableName) {
+    if (degree < 0 || windowSize < 0) {
+      throw new IllegalArgumentException("degree and window size must not be negative");
+    }
+    this.maxDegree = degree;
     this.degree = degree;
     this.variableName = variableName;
+    beta = new double[degree + 1];
+    xPowerSums = new double[2 * degree + 1];
+    xyPowerSums = new double[degree + 1];
+    windowX = windowSize > 0 ? new double[windowSize] : null;
+    windowY = windowSize > 0 ? new double[windowSize] : null;
+    matrix = new double[(degree + 1) * (degree + 1)];
+    rhs = new double[degree + 1];
+    coefficients = new double[degree + 1];
+  }
 
-    int n = x.length;
-    QRDecomposition qr = null;
-    Matrix matrixX = null;
+  /**
+   * Adds a data point, dropping the oldest one if the window is full.
+   *
+   * @param x the value of the predictor variable
+   * @param y the corresponding value of the response variable
+   */
+  public void add(double x, double y) {
+    if (windowX != null) {
+      int index = (windowStart + windowCount) % windowX.length;
+      if (windowCount == windowX.length) {
+        accumulate(windowX[windowStart], windowY[windowStart], -1.0);
+        windowStart = (windowStart + 1) % windowX.length;
+      } else {
+        windowCount++;
+      }
+      windowX[index] = x;
+      windowY[index] = y;
+    }
+    if (Double.isNaN(shift)) {
+      shift = x;
+    }
+    accumulate(x, y, 1.0);
+  }
 
-    // in case Vandermonde matrix does not have full rank, reduce degree until it
-    // does
-    while (true) {
+  /**
+   * Removes a data point that was added before. Only allowed without a sliding window, which
+   * removes samples itself.
+   *
+   * @param x the value of the predictor variable
+   * @param y the corresponding value of the response variable
+   * @throws IllegalStateException if the regression has a sliding window
+   */
+  public void remove(double x, double y) {
+    if (windowX != null) {
+      throw new IllegalStateException("samples leave a sliding window on their own");
+    }
+    accumulate(x, y, -1.0);
+  }
 
-      // build Vandermonde matrix
-      double[][] vandermonde = new double[n][this.degree + 1];
-      for (int i = 0; i < n; i++) {
-        for (int j = 0; j <= this.degree; j++) {
-          vandermonde[i][j] = Math.pow(x[i], j);
-        }
+  /** Removes every data point. */
+  public void clear() {
+    Arrays.fill(xPowerSums, 0.0);
+    Arrays.fill(xyPowerSums, 0.0);
+    sumY = 0.0;
+    sumY2 = 0.0;
+    n = 0;
+    shift = Double.NaN;
+    windowStart = 0;
+    windowCount = 0;
+    solved = false;
+  }
+
+  /**
+   * Returns the number of data points in the fit.
+   *
+   * @return the number of data points in the fit
+   */
+  public long size() {
+    return n;
+  }
+
+  private void accumulate(double x, double y, double sign) {
+    double u = x - shift;
+    double power = sign;
+    for (int k = 0; k < xPowerSums.length; k++) {
+      xPowerSums[k] += power;
+      if (k < xyPowerSums.length) {
+        xyPowerSums[k] += power * y;
       }
-      matrixX = new Matrix(vandermonde);
+      power *= u;
+    }
+    sumY += sign * y;
+    sumY2 += sign * y * y;
+    n += (long) sign;
+    solved = false;
+  }
 
-      // find least squares solution
-      qr = new QRDecomposition(matrixX);
-      if (qr.isFullRank()) break;
+  private void solve() {
+    if (solved) {
+      return;
+    }
+    solved = true;
+    Arrays.fill(beta, 0.0);
+    sse = 0.0;
+    sst = 0.0;
+    if (n <= 0) {
+      degree = maxDegree;
+      return;
+    }
 
-      // decrease degree and try again
-      this.degree--;
+    // in case the normal equations are singular, reduce degree until they are not
+    for (degree = maxDegree; degree > 0; degree--) {
+      if (solveNormalEquations(degree)) break;
+    }
+    if (degree == 0) {
+      solveNormalEquations(0);
     }
 
-    // create matrix from vector
-    Matrix matrixY = new Matrix(y, n);
+    // sum of squares of the residuals, from the sums: yᵀy - 2cᵀXᵀy + cᵀXᵀXc
+    sse = sumY2;
+    for (int i = 0; i <= degree; i++) {
+      sse -= 2.0 * coefficients[i] * xyPowerSums[i];
+      for (int j = 0; j <= degree; j++) {
+        sse += coefficients[i] * coefficients[j] * xPowerSums[i + j];
+      }
+    }
+    sse = Math.max(sse, 0.0);
+    sst = Math.max(sumY2 - sumY * sumY / n, 0.0);
 
-    // linear regression coefficients
-    beta = qr.solve(matrixY);
+    // expand the shifted polynomial Σ c_j (x - s)^j into Σ β_k x^k
+    for (int j = 0; j <= degree; j++) {
+      double binomial = 1.0;
+      double shiftPower = 1.0;
+      for (int k = j; k >= 0; k--) {
+        beta[k] += coefficients[j] * binomial * shiftPower;
+        // next term: C(j, k - 1) and (-s)^(j - k + 1)
+        binomial = binomial * k / (j - k + 1);
+        shiftPower *= -shift;
+      }
+    }
+  }
 
-    // mean of y[] values
-    double sum = 0.0;
-    for (int i = 0; i < n; i++) sum += y[i];
-    double mean = sum / n;
+  /** Solves the normal equations for the shifted coefficients, false if they are singular. */
+  private boolean solveNormalEquations(int fitDegree) {
+    int size = fitDegree + 1;
+    double scale = 0.0;
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        matrix[i * size + j] = xPowerSums[i + j];
+      }
+      rhs[i] = xyPowerSums[i];
+      scale = Math.max(scale, Math.abs(xPowerSums[2 * i]));
+    }
 
-    // total variation to be accounted for
-    for (int i = 0; i < n; i++) {
-      double dev = y[i] - mean;
-      sst += dev * dev;
+    // Gaussian elimination with partial pivoting
+    for (int col = 0; col < size; col++) {
+      int pivot = col;
+      for (int row = col + 1; row < size; row++) {
+        if (Math.abs(matrix[row * size + col]) > Math.abs(matrix[pivot * size + col])) pivot = row;
+      }
+      if (Math.abs(matrix[pivot * size + col]) <= RANK_TOLERANCE * scale) return false;
+      if (pivot != col) {
+        for (int j = 0; j < size; j++) {
+          double temp = matrix[col * size + j];
+          matrix[col * size + j] = matrix[pivot * size + j];
+          matrix[pivot * size + j] = temp;
+        }
+        double temp = rhs[col];
+        rhs[col] = rhs[pivot];
+        rhs[pivot] = temp;
+      }
+      for (int row = col + 1; row < size; row++) {
+        double factor = matrix[row * size + col] / matrix[col * size + col];
+        for (int j = col; j < size; j++) {
+          matrix[row * size + j] -= factor * matrix[col * size + j];
+        }
+        rhs[row] -= factor * rhs[col];
+      }
     }
 
-    // variation not accounted for
-    Matrix residuals = matrixX.times(beta).minus(matrixY);
-    sse = residuals.norm2() * residuals.norm2();
+    // back substitution
+    for (int i = size - 1; i >= 0; i--) {
+      double sum = rhs[i];
+      for (int j = i + 1; j < size; j++) {
+        sum -= matrix[i * size + j] * coefficients[j];
+      }
+      coefficients[i] = sum / matrix[i * size + i];
+    }
+    return true;
   }
 
   /**
@@ -109,9 +304,11 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
    * @return the {@code j}th regression coefficient
    */
   public double beta(int j) {
+    solve();
+    if (j > degree) return 0.0;
     // to make -0.0 print as 0.0
-    if (Math.abs(beta.get(j, 0)) < 1E-4) return 0.0;
-    return beta.get(j, 0);
+    if (Math.abs(beta[j]) < 1E-4) return 0.0;
+    return beta[j];
   }
 
   /**
@@ -120,6 +317,7 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
    * @return the degree of the polynomial to fit
    */
   public int degree() {
+    solve();
     return degree;
   }
 
@@ -130,6 +328,7 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
    *     0 and 1
    */
   public double R2() {
+    solve();
     if (sst == 0.0) return 1.0; // constant function
     return 1.0 - sse / sst;
   }
@@ -143,7 +342,7 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
   public double predict(double x) {
     // horner's method
     double y = 0.0;
-    for (int j = degree; j >= 0; j--) y = beta(j) + (x * y);
+    for (int j = degree(); j >= 0; j--) y = beta(j) + (x * y);
     return y;
   }
 
@@ -155,7 +354,7 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
    */
   public String toString() {
     StringBuilder s = new StringBuilder();
-    int j = degree;
+    int j = degree();
 
     // ignoring leading zero coefficients
     while (j >= 0 && Math.abs(beta(j)) < 1E-5) j--;
@@ -191,7 +390,8 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
   }
 
   /**
-   * Unit tests the {@code PolynomialRegression} data type.
+   * Unit tests the {@code PolynomialRegression} data type, and benchmarks it against a QR
+   * decomposition of the full Vandermonde matrix on large sample counts.
    *
    * @param args the command-line arguments
    */
@@ -201,5 +401,43 @@ public class PolynomialRegression implements Comparable<PolynomialRegression> {
     PolynomialRegression regression = new PolynomialRegression(x, y, 3);
 
     System.out.println(regression);
+
+    Random random = new Random(6328);
+    for (int n : new int[] {1_000, 100_000, 1_000_000}) {
+      double[] velocity = new double[n];
+      double[] voltage = new double[n];
+      for (int i = 0; i < n; i++) {
+        velocity[i] = 100.0 * random.nextDouble();
+        voltage[i] = 0.2 + 0.12 * velocity[i] + 0.05 * random.nextGaussian();
+      }
+
+      long start = System.nanoTime();
+      Matrix vandermonde = new Matrix(n, 2);
+      for (int i = 0; i < n; i++) {
+        vandermonde.set(i, 0, 1.0);
+        vandermonde.set(i, 1, velocity[i]);
+      }
+      Matrix qrBeta = new QRDecomposition(vandermonde).solve(new Matrix(voltage, n));
+      double qrMs = (System.nanoTime() - start) / 1e6;
+
+      start = System.nanoTime();
+      PolynomialRegression streaming = new PolynomialRegression(1);
+      for (int i = 0; i < n; i++) {
+        streaming.add(velocity[i], voltage[i]);
+      }
+      streaming.solve();
+      double kS = streaming.beta[0];
+      double kV = streaming.beta[1];
+      double streamingMs = (System.nanoTime() - start) / 1e6;
+
+      System.out.println(
+          String.format(
+              "n=%d  QR %.2f ms  streaming %.2f ms  |dkS|=%.2e |dkV|=%.2e",
+              n,
+              qrMs,
+              streamingMs,
+              Math.abs(kS - qrBeta.get(0, 0)),
+              Math.abs(kV - qrBeta.get(1, 0))));
+    }
   }
 }
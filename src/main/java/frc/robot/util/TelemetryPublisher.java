@@ -0,0 +1,186 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.littletonrobotics.junction.LogDataReceiver;
+import org.littletonrobotics.junction.LogTable;
+import org.littletonrobotics.junction.LogTable.LogValue;
+import org.littletonrobotics.junction.Logger;
+import org.littletonrobotics.junction.networktables.NT4Publisher;
+
+import frc.robot.util.Alert.AlertType;
+
+/**
+ * Publishes the log to NetworkTables for the dashboard, downsampled while on the field.
+ *
+ * <p>Off the field every key goes out every loop, like a plain {@link NT4Publisher}. Once the FMS
+ * is attached, only the keys matching the rules below are published, each at most at its rate,
+ * so the dashboard doesn't compete with the Limelight streams and driver station on the radio.
+ * Schemas always go out since they only change when a new struct type is logged. The file log is a separate receiver and still gets everything. The bytes actually handed to NT
+ * are estimated from the changed values, plus a per-value overhead. When they go over
+ * {@link #TARGET_BYTES_PER_SEC} all rates are scaled down until they fit, and scaled back up when
+ * there is room. {@link #periodic()} logs the rate under Telemetry/. Call it from robotPeriodic.
+ */
+public class TelemetryPublisher implements LogDataReceiver {
+  // Leaves most of the 4 Mbit/s field cap to the cameras and driver station
+  private static final double TARGET_BYTES_PER_SEC = 60_000.0;
+  private static final int VALUE_OVERHEAD_BYTES = 12;
+  private static final double MIN_RATE_SCALE = 0.1;
+
+  private record Rule(String prefix, double rateHz) {}
+
+  // Keys published during a match, without the leading slash
+  private static final List<Rule> matchRules =
+      List.of(
+          // Struct and protobuf schemas, the dashboard can't decode those values without them
+          new Rule(".schema/", Double.POSITIVE_INFINITY),
+          new Rule("DriverStation/", 5.0),
+          new Rule("SystemStats/BatteryVoltage", 2.0),
+          new Rule("RealOutputs/Odometry/Robot", 10.0),
+          new Rule("RealOutputs/Shooter/", 5.0),
+          new Rule("RealOutputs/Arm/CAN Disconnect", 1.0),
+          new Rule("RealOutputs/Drive/Turn CAN Disconnect", 1.0),
+          new Rule("RealOutputs/Drive/Drive CAN Disconnect", 1.0),
+          new Rule("RealOutputs/NoteChaseAuto/", 5.0),
+          new Rule("RealOutputs/Logging/", 1.0));
+
+  private final LogDataReceiver publisher = new NT4Publisher();
+  private final Map<String, LogValue> lastSent = new HashMap<>();
+  private final Map<String, Double> lastSentSecs = new HashMap<>();
+  private final Map<String, Rule> ruleCache = new HashMap<>();
+  private final Rule unpublished = new Rule("", 0.0);
+
+  // Only touched from the logging thread
+  private double rateScale = 1.0;
+  private double windowStartSecs = Double.NaN;
+  private long windowBytes = 0;
+
+  // Published for periodic()
+  private volatile double bytesPerSec = 0.0;
+  private volatile double publishedRateScale = 1.0;
+  private volatile boolean matchMode = false;
+
+  private final Alert bandwidthAlert =
+      new Alert("Dashboard telemetry is over its bandwidth budget.", AlertType.WARNING);
+
+  @Override
+  public void start() {
+    publisher.start();
+  }
+
+  @Override
+  public void end() {
+    publisher.end();
+  }
+
+  @Override
+  public void putTable(LogTable table) throws InterruptedException {
+    double now = table.getTimestamp() / 1e6;
+    matchMode = table.get("DriverStation/FMSAttached", false);
+    LogTable published = matchMode ? downsample(table, now) : table;
+
+    // Only values that changed are sent over the network
+    long bytes = 0;
+    for (Map.Entry<String, LogValue> entry : published.getAll(false).entrySet()) {
+      LogValue previous = lastSent.put(entry.getKey(), entry.getValue());
+      if (!entry.getValue().equals(previous)) {
+        bytes += estimateBytes(entry.getValue()) + VALUE_OVERHEAD_BYTES;
+      }
+    }
+    publisher.putTable(published);
+    updateBandwidth(now, bytes);
+  }
+
+  private LogTable downsample(LogTable table, double now) {
+    LogTable filtered = new LogTable(table.getTimestamp());
+    for (Map.Entry<String, LogValue> entry : table.getAll(false).entrySet()) {
+      String key = entry.getKey().startsWith("/") ? entry.getKey().substring(1) : entry.getKey();
+      Rule rule = ruleCache.computeIfAbsent(key, this::findRule);
+      if (rule == unpublished) {
+        continue;
+      }
+      double periodSecs = 1.0 / (rule.rateHz() * rateScale);
+      if (now - lastSentSecs.getOrDefault(key, Double.NEGATIVE_INFINITY) >= periodSecs) {
+        lastSentSecs.put(key, now);
+        filtered.put(key, entry.getValue());
+      }
+    }
+    return filtered;
+  }
+
+  private Rule findRule(String key) {
+    for (Rule rule : matchRules) {
+      if (key.startsWith(rule.prefix())) {
+        return rule;
+      }
+    }
+    return unpublished;
+  }
+
+  private void updateBandwidth(double now, long bytes) {
+    if (Double.isNaN(windowStartSecs)) {
+      windowStartSecs = now;
+    }
+    windowBytes += bytes;
+    double windowSecs = now - windowStartSecs;
+    if (windowSecs < 1.0) {
+      return;
+    }
+
+    bytesPerSec = windowBytes / windowSecs;
+    if (matchMode && bytesPerSec > TARGET_BYTES_PER_SEC) {
+      rateScale = Math.max(MIN_RATE_SCALE, rateScale * TARGET_BYTES_PER_SEC / bytesPerSec);
+    } else if (bytesPerSec < 0.7 * TARGET_BYTES_PER_SEC) {
+      rateScale = Math.min(1.0, rateScale * 1.1);
+    }
+    publishedRateScale = rateScale;
+    windowStartSecs = now;
+    windowBytes = 0;
+  }
+
+  private static int estimateBytes(LogValue value) {
+    switch (value.type) {
+      case Raw:
+        return value.getRaw().length;
+      case Boolean:
+        return 1;
+      case Integer:
+      case Double:
+        return 8;
+      case Float:
+        return 4;
+      case String:
+        return value.getString().length();
+      case BooleanArray:
+        return value.getBooleanArray().length;
+      case IntegerArray:
+        return value.getIntegerArray().length * 8;
+      case FloatArray:
+        return value.getFloatArray().length * 4;
+      case DoubleArray:
+        return value.getDoubleArray().length * 8;
+      case StringArray:
+        int length = 0;
+        for (String string : value.getStringArray()) {
+          length += string.length() + 1;
+        }
+        return length;
+      default:
+        return 0;
+    }
+  }
+
+  /** Logs the telemetry bandwidth and updates its alert. Call once per loop from the main thread. */
+  public void periodic() {
+    Logger.recordOutput("Telemetry/MatchMode", matchMode);
+    Logger.recordOutput("Telemetry/BytesPerSec", bytesPerSec);
+    Logger.recordOutput("Telemetry/RateScale", publishedRateScale);
+    bandwidthAlert.set(matchMode && bytesPerSec > TARGET_BYTES_PER_SEC);
+  }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.littletonrobotics.junction.Logger;
+
+import com.pathplanner.lib.commands.FollowPathCommand;
+import com.pathplanner.lib.commands.PathfindingCommand;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.commands.AutoShootCommand;
+import frc.robot.commands.FaceSpeaker;
+import frc.robot.subsystems.arm.Arm;
+import frc.robot.subsystems.drive.Drive;
+import frc.robot.subsystems.indexer.Indexer;
+import frc.robot.subsystems.intake.Intake;
+import frc.robot.subsystems.shooter.Shooter;
+
+/**
+ * Runs the code paths of the match commands before autonomous, so the first real use doesn't pay
+ * for class loading and interpreted execution.
+ *
+ * <p>Each task calls the same math a command runs every loop, enough times for the JIT to compile
+ * it, through the commands' own static helpers so nothing is copied. Nothing is commanded or
+ * logged besides the timings. One task runs per call to {@link #periodic()} so a disabled
+ * loop never runs long, and the time each one took is logged under Warmup/. PathPlanner's own
+ * pathfinding and path following warm-up commands are scheduled from {@link #start()}; they ignore
+ * disable and don't require the drive. Nothing runs in replay, where the extra outputs weren't in
+ * the original log.
+ */
+public class Warmup {
+  private static final int ITERATIONS = 2000;
+
+  private record Task(String name, int iterations, Runnable body) {}
+
+  private final List<Task> tasks = new ArrayList<>();
+  private int nextTask = 0;
+  private boolean started = false;
+  private double totalMs = 0.0;
+
+  public Warmup(Drive drive, Shooter shooter, Arm arm, Indexer indexer, Intake intake) {
+    SwerveDriveKinematics kinematics = new SwerveDriveKinematics(Drive.getModuleTranslations());
+
+    tasks.add(
+        new Task(
+            "Kinematics",
+            ITERATIONS,
+            () -> {
+              ChassisSpeeds discreteSpeeds =
+                  ChassisSpeeds.discretize(
+                      ChassisSpeeds.fromFieldRelativeSpeeds(1.0, 0.5, 0.3, drive.getRotation()), 0.02);
+              SwerveModuleState[] states = kinematics.toSwerveModuleStates(discreteSpeeds);
+              SwerveDriveKinematics.desaturateWheelSpeeds(states, drive.getMaxLinearSpeedMetersPerSec());
+              for (SwerveModuleState state : states) {
+                state.optimize(Rotation2d.fromDegrees(90.0));
+              }
+              kinematics.toChassisSpeeds(states);
+            }));
+
+    PIDController faceSpeakerController = FaceSpeaker.createController();
+    tasks.add(
+        new Task(
+            "FaceSpeaker",
+            ITERATIONS,
+            () -> {
+              faceSpeakerController.setSetpoint(FaceSpeaker.goalDegrees(drive));
+              FaceSpeaker.calculateRotationSpeed(faceSpeakerController, drive);
+              faceSpeakerController.atSetpoint();
+            }));
+
+    tasks.add(
+        new Task(
+            "AutoShoot",
+            ITERATIONS,
+            () -> {
+              shooter.interpolateArmAngle(drive.getDistanceFromSpeaker());
+              drive.getRotationFromSpeaker();
+              AllianceFlipUtil.apply(drive.getSpeakerPose());
+            }));
+
+    // Load the command classes themselves, constructing them has no side effects
+    tasks.add(
+        new Task(
+            "Commands",
+            1,
+            () -> {
+              new FaceSpeaker(drive);
+              new AutoShootCommand(arm, shooter, indexer, intake, drive);
+            }));
+  }
+
+  /** Schedules PathPlanner's warm-up commands. Call once from robotInit. */
+  public void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    if (Logger.hasReplaySource()) {
+      nextTask = tasks.size();
+      return;
+    }
+    scheduleTimed("FollowPath", FollowPathCommand.warmupCommand());
+    scheduleTimed("Pathfinding", PathfindingCommand.warmupCommand());
+  }
+
+  private static void scheduleTimed(String name, Command command) {
+    long[] startNanos = new long[1];
+    command
+        .beforeStarting(() -> startNanos[0] = System.nanoTime())
+        .finallyDo(() -> Logger.recordOutput("Warmup/" + name + "Ms", (System.nanoTime() - startNanos[0]) / 1e6))
+        .ignoringDisable(true)
+        .schedule();
+  }
+
+  /** Runs the next warm-up task, if any are left. Call periodically while disabled. */
+  public void periodic() {
+    if (isFinished()) {
+      return;
+    }
+    Task task = tasks.get(nextTask++);
+    long startNanos = System.nanoTime();
+    // The first few calls run interpreted, later ones hit the compiled code
+    for (int i = 0; i < task.iterations(); i++) {
+      task.body().run();
+    }
+    double elapsedMs = (System.nanoTime() - startNanos) / 1e6;
+    totalMs += elapsedMs;
+    Logger.recordOutput("Warmup/" + task.name() + "Ms", elapsedMs);
+    Logger.recordOutput("Warmup/TotalMs", totalMs);
+    Logger.recordOutput("Warmup/Complete", isFinished());
+  }
+
+  public boolean isFinished() {
+    return nextTask >= tasks.size();
+  }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.arm;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.math.util.Units;
+import frc.robot.Constants;
+import org.junit.jupiter.api.Test;
+
+class ArmTrajectoryPlannerTest {
+    private static final double LOOP_PERIOD_SECS = 0.02;
+
+    /** Returns the encoder position for an arm angle in degrees from horizontal. */
+    private static double rotations(double armDegrees) {
+        return Constants.ARM_ZERO_ANGLE_ROTATIONS
+            + Units.degreesToRotations(armDegrees) * Constants.ARM_ABSOLUTE_CONVERSION_FACTOR;
+    }
+
+    @Test
+    void armAngleMatchesEncoder() {
+        assertEquals(0.0, ArmTrajectoryPlanner.armRadians(Constants.ARM_ZERO_ANGLE_ROTATIONS), 1e-9);
+        assertEquals(Math.PI / 2.0, ArmTrajectoryPlanner.armRadians(rotations(90.0)), 1e-9);
+    }
+
+    @Test
+    void gentlerNearHorizontal() {
+        TrapezoidProfile.Constraints horizontal = ArmTrajectoryPlanner.constraints(rotations(-10.0), rotations(10.0));
+        TrapezoidProfile.Constraints vertical = ArmTrajectoryPlanner.constraints(rotations(80.0), rotations(100.0));
+
+        assertTrue(horizontal.maxAcceleration > 0.0);
+        assertTrue(horizontal.maxVelocity > 0.0);
+        assertTrue(horizontal.maxAcceleration < vertical.maxAcceleration);
+        assertTrue(horizontal.maxVelocity < vertical.maxVelocity);
+    }
+
+    @Test
+    void sizedForWorstGravityOnTheWay() {
+        // Passing through horizontal needs the same margin as a move at horizontal
+        TrapezoidProfile.Constraints crossing = ArmTrajectoryPlanner.constraints(rotations(-30.0), rotations(60.0));
+        TrapezoidProfile.Constraints atHorizontal = ArmTrajectoryPlanner.constraints(rotations(0.0), rotations(0.0));
+        TrapezoidProfile.Constraints reversed = ArmTrajectoryPlanner.constraints(rotations(60.0), rotations(-30.0));
+
+        assertEquals(atHorizontal.maxAcceleration, crossing.maxAcceleration, 1e-9);
+        assertEquals(atHorizontal.maxVelocity, crossing.maxVelocity, 1e-9);
+        assertEquals(crossing.maxAcceleration, reversed.maxAcceleration, 1e-9);
+        assertEquals(crossing.maxVelocity, reversed.maxVelocity, 1e-9);
+    }
+
+    @Test
+    void holdingVoltsFollowGravity() {
+        double horizontal = ArmTrajectoryPlanner.feedforwardVolts(rotations(0.0), 0.0, 0.0);
+        double raised = ArmTrajectoryPlanner.feedforwardVolts(rotations(60.0), 0.0, 0.0);
+        double vertical = ArmTrajectoryPlanner.feedforwardVolts(rotations(90.0), 0.0, 0.0);
+
+        assertTrue(horizontal > 0.0);
+        assertEquals(horizontal / 2.0, raised, 1e-6);
+        assertEquals(0.0, vertical, 1e-6);
+    }
+
+    @Test
+    void reachesGoalWithinLimits() {
+        double start = Constants.ARM_STOW_ROTATIONS;
+        double goal = rotations(90.0);
+        TrapezoidProfile.Constraints constraints = ArmTrajectoryPlanner.constraints(start, goal);
+        ArmTrajectoryPlanner planner = new ArmTrajectoryPlanner();
+        planner.reset(start);
+        planner.setGoal(goal);
+
+        for (int i = 0; i < 500; i++) {
+            TrapezoidProfile.State setpoint = planner.calculate(LOOP_PERIOD_SECS);
+            assertTrue(setpoint.position <= goal + 1e-9);
+            assertTrue(Math.abs(setpoint.velocity) <= constraints.maxVelocity + 1e-9);
+        }
+
+        assertEquals(goal, planner.getSetpoint().position, 1e-9);
+        assertEquals(0.0, planner.getSetpoint().velocity, 1e-9);
+    }
+
+    @Test
+    void redirectStartsFromSetpoint() {
+        double start = Constants.ARM_STOW_ROTATIONS;
+        ArmTrajectoryPlanner planner = new ArmTrajectoryPlanner();
+        planner.reset(start);
+        planner.setGoal(rotations(90.0));
+        for (int i = 0; i < 10; i++) {
+            planner.calculate(LOOP_PERIOD_SECS);
+        }
+        TrapezoidProfile.State before = planner.getSetpoint();
+
+        // The same goal keeps the move going, a new one turns it around without a jump
+        planner.setGoal(rotations(90.0));
+        assertTrue(planner.calculate(LOOP_PERIOD_SECS).velocity >= before.velocity - 1e-9);
+        before = planner.getSetpoint();
+        planner.setGoal(start);
+        TrapezoidProfile.State after = planner.calculate(LOOP_PERIOD_SECS);
+        assertTrue(Math.abs(after.position - before.position) <= before.velocity * LOOP_PERIOD_SECS + 1e-9);
+        assertTrue(after.velocity < before.velocity);
+    }
+
+    @Test
+    void stillAfterReset() {
+        ArmTrajectoryPlanner planner = new ArmTrajectoryPlanner();
+        planner.reset(Constants.ARM_STOW_ROTATIONS);
+        planner.calculate(LOOP_PERIOD_SECS);
+
+        assertEquals(Constants.ARM_STOW_ROTATIONS, planner.getSetpoint().position);
+        assertEquals(0.0, planner.getSetpoint().velocity);
+        assertEquals(
+            ArmTrajectoryPlanner.feedforwardVolts(Constants.ARM_STOW_ROTATIONS, 0.0, 0.0),
+            planner.getFeedforwardVolts(),
+            1e-9);
+    }
+}
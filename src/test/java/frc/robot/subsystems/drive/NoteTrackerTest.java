@@ -0,0 +1,170 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.subsystems.drive;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.robot.Constants;
+import frc.robot.subsystems.drive.VisionIO.VisionIOInputs;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class NoteTrackerTest {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  private static final Pose2d ORIGIN = new Pose2d();
+  private static final Translation2d AHEAD = new Translation2d(2.5, 0.0);
+
+  private final NoteTracker tracker = new NoteTracker();
+  private double now = 0.0;
+
+  /** Returns a new frame seeing notes at these robot relative positions, by their box centers. */
+  private static VisionIOInputs frame(double timestamp, Translation2d... notes) {
+    VisionIOInputs inputs = new VisionIOInputs();
+    inputs.detectionTimestamp = timestamp;
+    inputs.detectionClassIds = new int[notes.length];
+    inputs.detectionTx = new double[notes.length];
+    inputs.detectionTy = new double[notes.length];
+    for (int i = 0; i < notes.length; i++) {
+      Translation3d fromCamera =
+          new Translation3d(notes[i].getX(), notes[i].getY(), Constants.NOTE_HEIGHT / 2.0)
+              .minus(Constants.ROBOT_TO_NOTE_CAMERA.getTranslation())
+              .rotateBy(Constants.ROBOT_TO_NOTE_CAMERA.getRotation().unaryMinus());
+      inputs.detectionTx[i] = -Math.toDegrees(Math.atan2(fromCamera.getY(), fromCamera.getX()));
+      inputs.detectionTy[i] = Math.toDegrees(Math.atan2(fromCamera.getZ(), fromCamera.getX()));
+    }
+    return inputs;
+  }
+
+  /** Runs one loop with a new frame, the robot standing still at the given pose. */
+  private void see(Pose2d pose, Translation2d... notes) {
+    now += LOOP_PERIOD_SECS;
+    tracker.update(frame(now, notes), Optional.of(pose), pose, now);
+  }
+
+  @Test
+  void oneSightingIsTentative() {
+    see(ORIGIN, AHEAD);
+
+    assertTrue(tracker.getNotes().isEmpty());
+    assertTrue(tracker.getBestTarget().isEmpty());
+  }
+
+  @Test
+  void secondSightingConfirms() {
+    see(ORIGIN, AHEAD);
+    see(ORIGIN, AHEAD);
+
+    assertEquals(1, tracker.getNotes().size());
+    assertEquals(0.0, tracker.getNotes().get(0).getDistance(AHEAD), 0.01);
+    assertEquals(0.0, tracker.getBestTarget().orElseThrow().getDistance(AHEAD), 0.01);
+  }
+
+  @Test
+  void distantNotesMakeSeparateTracks() {
+    Translation2d left = new Translation2d(3.0, 1.0);
+    see(ORIGIN, AHEAD, left);
+    see(ORIGIN, AHEAD, left);
+
+    assertEquals(2, tracker.getNotes().size());
+    // Straight ahead and closer, so cheaper than turning
+    assertEquals(0.0, tracker.getBestTarget().orElseThrow().getDistance(AHEAD), 0.01);
+  }
+
+  @Test
+  void missedFramesDropTrack() {
+    see(ORIGIN, AHEAD);
+    see(ORIGIN, AHEAD);
+    for (int i = 0; i < 4; i++) {
+      see(ORIGIN);
+    }
+    assertEquals(1, tracker.getNotes().size());
+
+    see(ORIGIN);
+
+    assertTrue(tracker.getNotes().isEmpty());
+    assertTrue(tracker.getBestTarget().isEmpty());
+  }
+
+  @Test
+  void sightingResetsMisses() {
+    see(ORIGIN, AHEAD);
+    see(ORIGIN, AHEAD);
+    for (int i = 0; i < 4; i++) {
+      see(ORIGIN);
+    }
+    see(ORIGIN, AHEAD);
+    for (int i = 0; i < 4; i++) {
+      see(ORIGIN);
+    }
+
+    assertEquals(1, tracker.getNotes().size());
+  }
+
+  @Test
+  void repeatedFramesKeepTrack() {
+    see(ORIGIN, AHEAD);
+    see(ORIGIN, AHEAD);
+    VisionIOInputs stale = frame(now);
+    for (int i = 0; i < 50; i++) {
+      now += LOOP_PERIOD_SECS;
+      tracker.update(stale, Optional.of(ORIGIN), ORIGIN, now);
+    }
+
+    assertEquals(1, tracker.getNotes().size());
+  }
+
+  @Test
+  void notesOutOfViewAreNotMissed() {
+    see(ORIGIN, AHEAD);
+    see(ORIGIN, AHEAD);
+    Pose2d facingAway = new Pose2d(0.0, 0.0, Rotation2d.fromDegrees(180));
+    for (int i = 0; i < 20; i++) {
+      see(facingAway);
+    }
+    assertEquals(1, tracker.getNotes().size());
+
+    // Until it hasn't been seen for too long
+    for (int i = 0; i < 150; i++) {
+      see(facingAway);
+    }
+    assertTrue(tracker.getNotes().isEmpty());
+  }
+
+  @Test
+  void intakedNotesAreDropped() {
+    see(ORIGIN, AHEAD);
+    see(ORIGIN, AHEAD);
+    now += LOOP_PERIOD_SECS;
+    Pose2d overNote = new Pose2d(2.4, 0.0, new Rotation2d());
+    tracker.update(new VisionIOInputs(), Optional.of(overNote), overNote, now);
+
+    assertTrue(tracker.getNotes().isEmpty());
+  }
+
+  @Test
+  void framesWithoutPoseAreIgnored() {
+    now += LOOP_PERIOD_SECS;
+    tracker.update(frame(now, AHEAD), Optional.empty(), ORIGIN, now);
+    now += LOOP_PERIOD_SECS;
+    tracker.update(frame(now, AHEAD), Optional.empty(), ORIGIN, now);
+
+    assertTrue(tracker.getNotes().isEmpty());
+  }
+
+  @Test
+  void clearDropsTracks() {
+    see(ORIGIN, AHEAD);
+    see(ORIGIN, AHEAD);
+    tracker.clear();
+
+    assertTrue(tracker.getNotes().isEmpty());
+    assertTrue(tracker.getBestTarget().isEmpty());
+  }
+}
@@ -0,0 +1,97 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FeedforwardEstimatorTest {
+  private static final double LOOP_PERIOD_SECS = 0.02;
+  private static final int SUBSTEPS = 20;
+
+  /**
+   * Drives a simulated mechanism with two sine waves and feeds the estimator what the robot would
+   * log each loop. The voltage is held for a whole loop, like a real motor controller.
+   */
+  private static void simulate(
+      FeedforwardEstimator estimator, double kS, double kV, double kA, double kG, double seconds) {
+    double velocity = 0.0;
+    double angle = 0.0;
+    for (int loop = 0; loop < seconds / LOOP_PERIOD_SECS; loop++) {
+      double time = loop * LOOP_PERIOD_SECS;
+      double volts =
+          kG * Math.cos(angle)
+              + 2.0 * Math.sin(2.0 * Math.PI * 0.25 * time)
+              + 1.0 * Math.sin(2.0 * Math.PI * 0.9 * time);
+      estimator.update(volts, velocity, Math.cos(angle), time);
+
+      double step = LOOP_PERIOD_SECS / SUBSTEPS;
+      for (int i = 0; i < SUBSTEPS; i++) {
+        double accel = (volts - kS * Math.signum(velocity) - kV * velocity - kG * Math.cos(angle)) / kA;
+        velocity += accel * step;
+        angle += velocity * step;
+      }
+    }
+  }
+
+  @Test
+  void convergesWithoutGravity() {
+    FeedforwardEstimator estimator = new FeedforwardEstimator("Test", 0.1);
+    simulate(estimator, 0.25, 0.5, 0.1, 0.0, 20.0);
+
+    assertEquals(0.25, estimator.getKs(), 0.01);
+    assertEquals(0.5, estimator.getKv(), 0.01);
+    assertEquals(0.1, estimator.getKa(), 0.005);
+    assertEquals(0.0, estimator.getKg());
+  }
+
+  @Test
+  void convergesWithGravity() {
+    FeedforwardEstimator estimator = new FeedforwardEstimator("Test", 0.1, true);
+    simulate(estimator, 0.2, 1.5, 0.1, 0.6, 20.0);
+
+    assertEquals(0.2, estimator.getKs(), 0.01);
+    assertEquals(1.5, estimator.getKv(), 0.03);
+    assertEquals(0.1, estimator.getKa(), 0.005);
+    assertEquals(0.6, estimator.getKg(), 0.01);
+  }
+
+  @Test
+  void ignoresSamplesWhileStopped() {
+    FeedforwardEstimator estimator = new FeedforwardEstimator("Test", 0.1);
+    for (int loop = 0; loop < 100; loop++) {
+      estimator.update(3.0, 0.0, 0.0, loop * LOOP_PERIOD_SECS);
+    }
+
+    assertEquals(0, estimator.getSamples());
+    assertEquals(0.0, estimator.getKs());
+    assertEquals(0.0, estimator.getKv());
+  }
+
+  @Test
+  void skipsLongGaps() {
+    FeedforwardEstimator estimator = new FeedforwardEstimator("Test", 0.1);
+    estimator.update(3.0, 1.0, 0.0, 0.0);
+    estimator.update(3.0, 1.0, 0.0, 1.0);
+
+    assertEquals(0, estimator.getSamples());
+  }
+
+  @Test
+  void resetForgetsEstimates() {
+    FeedforwardEstimator estimator = new FeedforwardEstimator("Test", 0.1);
+    simulate(estimator, 0.25, 0.5, 0.1, 0.0, 5.0);
+    assertTrue(estimator.getSamples() > 0);
+
+    estimator.reset();
+
+    assertEquals(0, estimator.getSamples());
+    assertEquals(0.0, estimator.getKs());
+    assertEquals(0.0, estimator.getKv());
+    assertEquals(0.0, estimator.getKa());
+  }
+}
@@ -0,0 +1,227 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Translation2d;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NavGridTest {
+  @TempDir Path tempDir;
+
+  /**
+   * Writes a navgrid.json with one meter cells, one string per row starting at row 0, '#' for an
+   * obstacle, and returns its file.
+   */
+  private File writeJson(String... rows) throws IOException {
+    StringBuilder grid = new StringBuilder();
+    for (int row = 0; row < rows.length; row++) {
+      grid.append(row == 0 ? "[" : ",[");
+      for (int column = 0; column < rows[row].length(); column++) {
+        grid.append(column == 0 ? "" : ",").append(rows[row].charAt(column) == '#');
+      }
+      grid.append("]");
+    }
+    String json =
+        String.format(
+            "{\"field_size\":{\"x\":%d.0,\"y\":%d.0},\"nodeSizeMeters\":1.0,\"grid\":[%s]}",
+            rows[0].length(), rows.length, grid);
+    File jsonFile = tempDir.resolve("navgrid.json").toFile();
+    Files.writeString(jsonFile.toPath(), json);
+    return jsonFile;
+  }
+
+  private NavGrid load(String... rows) throws IOException {
+    return NavGrid.load(tempDir.resolve("navgrid.bin").toFile(), writeJson(rows));
+  }
+
+  /** Five by four grid with one obstacle in column 2, row 1. */
+  private NavGrid singleObstacle() throws IOException {
+    return load(
+        ".....",
+        "..#..",
+        ".....",
+        ".....");
+  }
+
+  @Test
+  void parsesJson() throws IOException {
+    NavGrid grid = singleObstacle();
+
+    assertEquals(5, grid.getColumns());
+    assertEquals(4, grid.getRows());
+    assertEquals(1.0, grid.getNodeSizeMeters());
+    assertTrue(grid.isBlocked(2, 1));
+    assertFalse(grid.isBlocked(1, 1));
+    assertTrue(grid.isBlocked(new Translation2d(2.5, 1.5)));
+    assertFalse(grid.isBlocked(new Translation2d(2.5, 2.5)));
+  }
+
+  @Test
+  void offGridIsBlocked() throws IOException {
+    NavGrid grid = singleObstacle();
+
+    assertTrue(grid.isBlocked(-1, 0));
+    assertTrue(grid.isBlocked(0, -1));
+    assertTrue(grid.isBlocked(5, 0));
+    assertTrue(grid.isBlocked(0, 4));
+    assertTrue(grid.isBlocked(new Translation2d(-0.1, 0.5)));
+  }
+
+  @Test
+  void distanceField() throws IOException {
+    NavGrid grid = singleObstacle();
+
+    assertEquals(0.0, grid.getDistanceToObstacle(new Translation2d(2.5, 1.5)));
+    // Next to the obstacle, measured to its edge
+    assertEquals(0.5, grid.getDistanceToObstacle(new Translation2d(2.5, 2.5)), 1e-3);
+    assertEquals(Math.sqrt(0.5), grid.getDistanceToObstacle(new Translation2d(1.5, 2.5)), 1e-3);
+    // Edge cells are limited by the field wall
+    assertEquals(0.5, grid.getDistanceToObstacle(new Translation2d(0.5, 3.5)), 1e-3);
+    assertEquals(0.0, grid.getDistanceToObstacle(new Translation2d(6.0, 0.5)));
+  }
+
+  @Test
+  void straightLines() throws IOException {
+    NavGrid grid = singleObstacle();
+
+    assertTrue(grid.hasLineOfSight(new Translation2d(0.5, 0.5), new Translation2d(4.5, 0.5)));
+    assertTrue(grid.hasLineOfSight(new Translation2d(4.5, 0.5), new Translation2d(0.5, 0.5)));
+    assertFalse(grid.hasLineOfSight(new Translation2d(0.5, 1.5), new Translation2d(4.5, 1.5)));
+    assertFalse(grid.hasLineOfSight(new Translation2d(4.5, 1.5), new Translation2d(0.5, 1.5)));
+    assertFalse(grid.hasLineOfSight(new Translation2d(2.5, 3.5), new Translation2d(2.5, 0.5)));
+    assertTrue(grid.hasLineOfSight(new Translation2d(1.5, 3.5), new Translation2d(1.5, 0.5)));
+  }
+
+  @Test
+  void segmentsInsideOneCell() throws IOException {
+    NavGrid grid = singleObstacle();
+
+    assertTrue(grid.hasLineOfSight(new Translation2d(1.5, 1.5), new Translation2d(1.5, 1.5)));
+    assertTrue(grid.hasLineOfSight(new Translation2d(1.2, 1.2), new Translation2d(1.8, 1.7)));
+    assertFalse(grid.hasLineOfSight(new Translation2d(2.5, 1.5), new Translation2d(2.5, 1.5)));
+  }
+
+  @Test
+  void leavingTheFieldIsBlocked() throws IOException {
+    NavGrid grid = singleObstacle();
+
+    assertFalse(grid.hasLineOfSight(new Translation2d(4.5, 0.5), new Translation2d(5.5, 0.5)));
+    assertFalse(grid.hasLineOfSight(new Translation2d(0.5, 0.5), new Translation2d(-0.5, 0.5)));
+    assertFalse(grid.hasLineOfSight(new Translation2d(0.5, 3.5), new Translation2d(0.5, 4.5)));
+    // Along the wall, but still inside the field
+    assertTrue(grid.hasLineOfSight(new Translation2d(0.0, 0.0), new Translation2d(4.9, 0.0)));
+  }
+
+  @Test
+  void shallowDiagonals() throws IOException {
+    Translation2d start = new Translation2d(0.5, 0.5);
+    Translation2d end = new Translation2d(4.5, 1.9);
+
+    // Only reaches row 1 after column 1, so it passes beside this obstacle
+    NavGrid beside =
+        load(
+            ".....",
+            "#....",
+            ".....");
+    assertTrue(beside.hasLineOfSight(start, end));
+    assertTrue(beside.hasLineOfSight(end, start));
+
+    NavGrid through =
+        load(
+            ".....",
+            "...#.",
+            ".....");
+    assertFalse(through.hasLineOfSight(start, end));
+    assertFalse(through.hasLineOfSight(end, start));
+  }
+
+  @Test
+  void diagonalBetweenTwoObstacles() throws IOException {
+    NavGrid grid =
+        load(
+            ".#.",
+            "#..",
+            "...");
+
+    assertFalse(grid.hasLineOfSight(new Translation2d(0.5, 0.5), new Translation2d(1.5, 1.5)));
+    assertFalse(grid.hasLineOfSight(new Translation2d(1.5, 1.5), new Translation2d(0.5, 0.5)));
+  }
+
+  @Test
+  void diagonalThroughACornerIsSymmetric() throws IOException {
+    Translation2d start = new Translation2d(0.5, 0.5);
+    Translation2d end = new Translation2d(2.5, 2.5);
+
+    NavGrid right =
+        load(
+            ".#.",
+            "...",
+            "...");
+    NavGrid above =
+        load(
+            "...",
+            "#..",
+            "...");
+
+    // Touching an obstacle's corner counts as hitting it, whichever side it is on
+    assertFalse(right.hasLineOfSight(start, end));
+    assertFalse(above.hasLineOfSight(start, end));
+    assertFalse(right.hasLineOfSight(end, start));
+    assertFalse(above.hasLineOfSight(end, start));
+
+    NavGrid open =
+        load(
+            "..#",
+            "...",
+            "#..");
+    assertTrue(open.hasLineOfSight(start, end));
+    assertTrue(open.hasLineOfSight(end, start));
+  }
+
+  @Test
+  void clearance() throws IOException {
+    NavGrid grid = singleObstacle();
+    Translation2d start = new Translation2d(1.5, 2.5);
+    Translation2d end = new Translation2d(3.5, 2.5);
+
+    assertTrue(grid.hasLineOfSight(start, end));
+    assertTrue(grid.hasLineOfSight(start, end, 0.4));
+    assertFalse(grid.hasLineOfSight(start, end, 0.6));
+  }
+
+  @Test
+  void binaryMatchesJson() throws IOException {
+    File jsonFile =
+        writeJson(
+            "....#",
+            "..#..",
+            "#....",
+            "...##");
+    File binaryFile = tempDir.resolve("generated.bin").toFile();
+    NavGrid.main(jsonFile.getPath(), binaryFile.getPath());
+
+    NavGrid fromJson = NavGrid.load(tempDir.resolve("missing.bin").toFile(), jsonFile);
+    NavGrid fromBinary = NavGrid.load(binaryFile, jsonFile);
+
+    assertEquals(fromJson.getColumns(), fromBinary.getColumns());
+    assertEquals(fromJson.getRows(), fromBinary.getRows());
+    for (int row = 0; row < fromJson.getRows(); row++) {
+      for (int column = 0; column < fromJson.getColumns(); column++) {
+        Translation2d center = new Translation2d(column + 0.5, row + 0.5);
+        assertEquals(fromJson.isBlocked(column, row), fromBinary.isBlocked(column, row));
+        assertEquals(fromJson.getDistanceToObstacle(center), fromBinary.getDistanceToObstacle(center));
+      }
+    }
+  }
+}
@@ -0,0 +1,162 @@
+// Copyright (c) FIRST and other WPILib contributors.
+// Open Source Software; you can modify and/or share it under the terms of
+// the WPILib BSD license file in the root directory of this project.
+
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import Jama.Matrix;
+import Jama.QRDecomposition;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PolynomialRegressionTest {
+  private static final double[] X = {10, 20, 40, 80, 160, 200};
+  private static final double[] Y = {100, 350, 1500, 6700, 20160, 40000};
+
+  /** The least squares fit the regression used to compute, a QR solve of the Vandermonde matrix. */
+  private static double[] qrFit(double[] x, double[] y, int degree) {
+    double[][] vandermonde = new double[x.length][degree + 1];
+    for (int i = 0; i < x.length; i++) {
+      for (int j = 0; j <= degree; j++) {
+        vandermonde[i][j] = Math.pow(x[i], j);
+      }
+    }
+    Matrix beta = new QRDecomposition(new Matrix(vandermonde)).solve(new Matrix(y, y.length));
+    return beta.getColumnPackedCopy();
+  }
+
+  private static double qrPredict(double[] beta, double x) {
+    double y = 0.0;
+    for (int j = beta.length - 1; j >= 0; j--) y = beta[j] + x * y;
+    return y;
+  }
+
+  private static void assertMatchesQr(double[] x, double[] y, int degree, PolynomialRegression regression) {
+    double[] expected = qrFit(x, y, degree);
+    assertEquals(degree, regression.degree());
+    for (int j = 0; j <= degree; j++) {
+      // beta() rounds tiny coefficients to zero
+      if (Math.abs(expected[j]) > 1e-3) {
+        assertEquals(expected[j], regression.beta(j), 1e-6 * Math.abs(expected[j]));
+      }
+    }
+    for (double value : x) {
+      double prediction = qrPredict(expected, value);
+      assertEquals(prediction, regression.predict(value), 1e-6 * Math.max(1.0, Math.abs(prediction)));
+    }
+  }
+
+  @Test
+  void matchesQrFit() {
+    assertMatchesQr(X, Y, 3, new PolynomialRegression(X, Y, 3));
+  }
+
+  @Test
+  void matchesQrFitOnNoisyData() {
+    Random random = new Random(6328);
+    double[] x = new double[500];
+    double[] y = new double[500];
+    for (int i = 0; i < x.length; i++) {
+      x[i] = 1.0 + 5.0 * random.nextDouble();
+      y[i] = 60.0 - 8.0 * x[i] + 0.6 * x[i] * x[i] + 0.5 * random.nextGaussian();
+    }
+
+    assertMatchesQr(x, y, 2, new PolynomialRegression(x, y, 2));
+  }
+
+  @Test
+  void matchesQrR2() {
+    PolynomialRegression regression = new PolynomialRegression(X, Y, 2);
+    double[] beta = qrFit(X, Y, 2);
+    double mean = 0.0;
+    for (double value : Y) mean += value / Y.length;
+    double sse = 0.0;
+    double sst = 0.0;
+    for (int i = 0; i < X.length; i++) {
+      sse += Math.pow(Y[i] - qrPredict(beta, X[i]), 2);
+      sst += Math.pow(Y[i] - mean, 2);
+    }
+
+    assertEquals(1.0 - sse / sst, regression.R2(), 1e-9);
+  }
+
+  @Test
+  void streamingMatchesBatch() {
+    PolynomialRegression streaming = new PolynomialRegression(3);
+    for (int i = 0; i < X.length; i++) {
+      streaming.add(X[i], Y[i]);
+    }
+
+    assertEquals(X.length, streaming.size());
+    assertMatchesQr(X, Y, 3, streaming);
+  }
+
+  @Test
+  void removeUndoesAdd() {
+    PolynomialRegression regression = new PolynomialRegression(3);
+    for (int i = 0; i < X.length; i++) {
+      regression.add(X[i], Y[i]);
+    }
+    regression.add(120, -5000);
+    regression.remove(120, -5000);
+
+    assertEquals(X.length, regression.size());
+    assertMatchesQr(X, Y, 3, regression);
+  }
+
+  @Test
+  void slidingWindowKeepsRecentSamples() {
+    PolynomialRegression regression = new PolynomialRegression(1, 10);
+    for (int i = 0; i < 10; i++) {
+      regression.add(i, 2.0 * i + 1.0);
+    }
+    for (int i = 0; i < 10; i++) {
+      regression.add(i, 5.0 - i);
+    }
+
+    assertEquals(10, regression.size());
+    assertEquals(5.0, regression.beta(0), 1e-9);
+    assertEquals(-1.0, regression.beta(1), 1e-9);
+  }
+
+  @Test
+  void removeThrowsWithSlidingWindow() {
+    PolynomialRegression regression = new PolynomialRegression(1, 10);
+    regression.add(1.0, 1.0);
+
+    assertThrows(IllegalStateException.class, () -> regression.remove(1.0, 1.0));
+  }
+
+  @Test
+  void reducesDegreeWhenRankDeficient() {
+    // Two distinct x values can only fit a line, same as the QR rank check
+    double[] x = {1, 1, 2, 2};
+    double[] y = {3, 5, 7, 9};
+    PolynomialRegression regression = new PolynomialRegression(x, y, 2);
+
+    assertEquals(1, regression.degree());
+    assertEquals(0.0, regression.beta(0), 1e-9);
+    assertEquals(4.0, regression.beta(1), 1e-9);
+  }
+
+  @Test
+  void clearStartsOver() {
+    PolynomialRegression regression = new PolynomialRegression(X, Y, 3);
+    regression.clear();
+    regression.add(1.0, 3.0);
+    regression.add(2.0, 5.0);
+
+    assertEquals(2, regression.size());
+    assertEquals(1.0, regression.beta(0), 1e-9);
+    assertEquals(2.0, regression.beta(1), 1e-9);
+  }
+
+  @Test
+  void rejectsMismatchedArrays() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new PolynomialRegression(new double[2], new double[3], 1));
+  }
+}